@@ -2,16 +2,17 @@ package com.github.rccookie.graph;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
 
 import com.github.rccookie.util.Arguments;
-import com.github.rccookie.util.Console;
 import com.github.rccookie.util.find.Element;
 import com.github.rccookie.util.find.UnionFind;
 
@@ -140,10 +141,18 @@ public interface Algorithm {
             @Override
             public <N,E> DistancePath<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
                                                    @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic) {
+                return compute(graph, source, target, edgeLength, heuristic, Instrumentation.NONE);
+            }
+
+            @Override
+            public <N,E> DistancePath<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
+                                                   @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic,
+                                                   @NotNull Instrumentation instrumentation) {
 
                 Arguments.checkNull(graph, "graph");
                 Arguments.checkNull(source, "source");
                 Arguments.checkNull(target, "target");
+                AlgorithmRun run = AlgorithmRun.start("A*", Arguments.checkNull(instrumentation, "instrumentation"));
 
                 ToDoubleBiFunction<? super N, ? super N> h = heuristic != null ? heuristic : (a,b) -> 0;
 
@@ -156,75 +165,425 @@ public interface Algorithm {
                 Heap<N> q = new BinaryHeap<>(Comparator.comparing(n -> d.get(n) + h.applyAsDouble(n, target)));
                 q.enqueue(source);
 
-                int count = 0;
-
+                long settled = 0, relaxed = 0, heapOperations = 1, decreaseKeys = 0;
+                DistancePath<N,E> path = null;
                 while(!q.isEmpty()) {
                     N n = q.dequeue();
-                    count++;
-                    if(n.equals(target)){
-                        Console.mapDebug("Iterations", count);
-                        return buildPath(graph, edgeLength, target, p);
+                    settled++;
+                    heapOperations++;
+                    if(n.equals(target)) {
+                        path = buildPath(graph, edgeLength, target, p);
+                        break;
                     }
 
                     double nd = d.get(n);
-                    graph.adj(n).forEach((m,e) -> {
-                        double dist = nd + edgeLength.applyAsDouble(e);
+                    for(Map.Entry<N,E> entry : graph.adj(n).entrySet()) {
+                        N m = entry.getKey();
+                        double dist = nd + edgeLength.applyAsDouble(entry.getValue());
+                        relaxed++;
                         if(dist < d.get(m)) {
                             d.put(m,dist);
                             p.put(m,n);
-                            if(!q.updateDecreased(m))
+                            if(q.updateDecreased(m))
+                                decreaseKeys++;
+                            else {
                                 q.enqueue(m);
+                                heapOperations++;
+                            }
                         }
-                    });
+                    }
                 }
 
-                return null;
+                if(run != null) run.finish(settled, relaxed, heapOperations, decreaseKeys, 0, 0);
+                return path;
             }
         };
 
         <N,E> DistancePath<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
                                         @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic);
+
+        /**
+         * Computes the shortest path between the given nodes, reporting the work done
+         * to the given instrumentation. The default implementation does not report
+         * anything and delegates to {@link #compute(ReadableGraph, Object, Object, ToDoubleFunction, ToDoubleBiFunction)}.
+         *
+         * @param graph The graph to search in
+         * @param source The start node
+         * @param target The end node
+         * @param edgeLength Function to determine the length of an edge
+         * @param heuristic Estimate of the distance between two nodes, or <code>null</code>
+         * @param instrumentation The instrumentation to report the run to
+         * @return The shortest path, or <code>null</code> if the target is not reachable
+         */
+        default <N,E> DistancePath<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
+                                                @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic,
+                                                @NotNull Instrumentation instrumentation) {
+            return compute(graph, source, target, edgeLength, heuristic);
+        }
     }
 
     interface SingleSourceShortestPath extends Algorithm {
 
         SingleSourceShortestPath DIJKSTRA = new SingleSourceShortestPath() {
+            private static final String NAME = "Dijkstra";
+
             @Override
             @NotNull
             public <N, E> MapGraph<N, Double, E> compute(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+                return computeTree(graph, source, edgeLength).toMapGraph();
+            }
+
+            @Override
+            @NotNull
+            public <N, E> ShortestPathTree<N, E> computeTree(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+                return computeTree(graph, source, edgeLength, Instrumentation.NONE);
+            }
+
+            @Override
+            @NotNull
+            public <N, E> ShortestPathTree<N, E> computeTree(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                             @NotNull Instrumentation instrumentation) {
                 Arguments.checkNull(graph, "graph");
                 Arguments.checkNull(source, "source");
                 Arguments.checkNull(edgeLength, "edgeLength");
+                AlgorithmRun run = AlgorithmRun.start(NAME, Arguments.checkNull(instrumentation, "instrumentation"));
 
-                MapGraph<N,Double,E> p = new HashMapGraph<>();
-                for(N n : graph) p.add(n, Double.POSITIVE_INFINITY);
-                p.put(source, 0d);
+                IndexedGraph<N,E> g = IndexedGraph.of(graph);
+                EdgeLengths<E> w = EdgeLengths.of(g, edgeLength);
+                int s = indexOfSource(g, source);
+                int size = g.size();
 
-                Heap<N> q = new BinaryHeap<>(Comparator.comparing(p::get));
-                q.enqueue(source);
+                double[] d = new double[size];
+                int[] p = new int[size];
+                long[] pe = new long[size];
+                Arrays.fill(d, Double.POSITIVE_INFINITY);
+                Arrays.fill(p, -1);
+                d[s] = 0;
+
+                IndexedHeap q = new IndexedHeap(size);
+                q.put(s, 0);
 
+                long settled = 0, relaxed = 0, decreaseKeys = 0;
                 while(!q.isEmpty()) {
-                    N n = q.dequeue();
+                    int n = q.poll();
+                    settled++;
+                    double dn = d[n];
+                    for(long e=g.edgeStart(n), end=g.edgeEnd(n); e<end; e++) {
+                        int m = g.target(e);
+                        double dist = dn + w.get(e);
+                        if(dist < d[m]) {
+                            if(d[m] != Double.POSITIVE_INFINITY) decreaseKeys++;
+                            d[m] = dist;
+                            p[m] = n;
+                            pe[m] = e;
+                            q.put(m, dist);
+                        }
+                    }
+                    relaxed += g.edgeEnd(n) - g.edgeStart(n);
+                }
 
-                    double dn = p.get(n);
-                    graph.adj(n).forEach((m,e) -> {
-                        double dist = dn + edgeLength.applyAsDouble(e);
-                        if(dist < p.get(m)) {
-                            p.put(m, dist);
-                            p.disconnectAll(m);
-                            p.connect(m,n,e);
-                            if(!q.updateDecreased(m))
-                                q.enqueue(m);
+                // Every node that was inserted into the heap has been polled
+                if(run != null) run.finish(settled, relaxed, 2 * settled, decreaseKeys, 0, 0);
+                return new ShortestPathTree<>(g, edgeLength, s, d, p, pe);
+            }
+        };
+
+        /**
+         * Queue-based Bellman-Ford algorithm (SPFA) with the small-label-first heuristic.
+         * Supports negative edge lengths, and throws a {@link NegativeCycleException}
+         * containing the cycle if a negative cycle is reachable from the source.
+         */
+        SingleSourceShortestPath BELLMAN_FORD = new SingleSourceShortestPath() {
+            private static final String NAME = "Bellman-Ford";
+
+            @Override
+            @NotNull
+            public <N, E> MapGraph<N, Double, E> compute(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+                return computeTree(graph, source, edgeLength).toMapGraph();
+            }
+
+            @Override
+            @NotNull
+            public <N, E> ShortestPathTree<N, E> computeTree(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+                return computeTree(graph, source, edgeLength, Instrumentation.NONE);
+            }
+
+            @Override
+            @NotNull
+            public <N, E> ShortestPathTree<N, E> computeTree(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                             @NotNull Instrumentation instrumentation) {
+                Arguments.checkNull(graph, "graph");
+                Arguments.checkNull(source, "source");
+                Arguments.checkNull(edgeLength, "edgeLength");
+                AlgorithmRun run = AlgorithmRun.start(NAME, Arguments.checkNull(instrumentation, "instrumentation"));
+
+                IndexedGraph<N,E> g = IndexedGraph.of(graph);
+                EdgeLengths<E> w = EdgeLengths.of(g, edgeLength);
+                int s = indexOfSource(g, source);
+                int size = g.size();
+
+                double[] d = new double[size];
+                int[] p = new int[size];
+                long[] pe = new long[size];
+                Arrays.fill(d, Double.POSITIVE_INFINITY);
+                Arrays.fill(p, -1);
+
+                // Number of edges on the current path to each node. If it reaches the
+                // number of nodes, the path contains a cycle which must be negative.
+                int[] hops = new int[size];
+                boolean[] queued = new boolean[size];
+                // Ring buffer deque, every node is at most once in the queue
+                int[] q = new int[size];
+                int head = 0, count = 1;
+
+                d[s] = 0;
+                q[0] = s;
+                queued[s] = true;
+
+                long processed = 0, relaxed = 0;
+                while(count != 0) {
+                    int n = q[head];
+                    head = (head + 1) % size;
+                    count--;
+                    queued[n] = false;
+                    processed++;
+
+                    double dn = d[n];
+                    relaxed += g.edgeEnd(n) - g.edgeStart(n);
+                    for(long e=g.edgeStart(n), end=g.edgeEnd(n); e<end; e++) {
+                        int m = g.target(e);
+                        double dist = dn + w.get(e);
+                        if(dist >= d[m]) continue;
+
+                        d[m] = dist;
+                        p[m] = n;
+                        pe[m] = e;
+                        if((hops[m] = hops[n] + 1) >= size) {
+                            NegativeCycleException cycle = negativeCycle(g, p, pe, m, edgeLength);
+                            if(cycle != null) {
+                                if(run != null) run.finish(processed, relaxed, 0, 0, 0, 0);
+                                throw cycle;
+                            }
                         }
-                    });
+
+                        if(queued[m]) continue;
+                        queued[m] = true;
+                        // Small label first: nodes with smaller distance than the
+                        // current front are processed next
+                        if(count != 0 && dist < d[q[head]])
+                            q[head = (head + size - 1) % size] = m;
+                        else q[(head + count) % size] = m;
+                        count++;
+                    }
                 }
 
-                return p;
+                if(run != null) run.finish(processed, relaxed, 0, 0, 0, 0);
+                return new ShortestPathTree<>(g, edgeLength, s, d, p, pe);
             }
         };
 
+        /**
+         * Parallel delta-stepping algorithm, running on the common fork-join pool
+         * and using a bucket width derived from the maximum edge length and the average
+         * degree of the graph. Does not support negative edge lengths.
+         *
+         * @see #deltaStepping(double, ForkJoinPool)
+         */
+        SingleSourceShortestPath DELTA_STEPPING = deltaStepping(Double.NaN, ForkJoinPool.commonPool());
+
+        /**
+         * Computes the shortest paths from the given source to all nodes in the graph.
+         * The result maps each node to its distance and connects it to its predecessor
+         * on its shortest path, using the edge from the predecessor to it.
+         *
+         * @param graph The graph to search in
+         * @param source The start node
+         * @param edgeLength Function to determine the length of an edge
+         * @return The shortest paths as map graph
+         * @throws IllegalArgumentException If the source is not in the graph
+         * @see ShortestPathTree#toMapGraph()
+         */
         @NotNull
         <N,E> MapGraph<N,Double,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength);
+
+        /**
+         * Computes the shortest paths from the given source to all nodes in the graph.
+         * The default implementation converts the result of
+         * {@link #compute(ReadableGraph, Object, ToDoubleFunction)}; the built-in
+         * algorithms compute the tree directly.
+         *
+         * @param graph The graph to search in
+         * @param source The start node
+         * @param edgeLength Function to determine the length of an edge
+         * @return The shortest path tree
+         * @throws IllegalArgumentException If the source is not in the graph
+         */
+        @NotNull
+        default <N,E> ShortestPathTree<N,E> computeTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+            return ShortestPathTree.ofPredecessors(graph, source, edgeLength, compute(graph, source, edgeLength));
+        }
+
+        /**
+         * Computes the shortest paths from the given source to all nodes in the graph,
+         * reporting the work done to the given instrumentation. The default implementation
+         * does not report anything and delegates to {@link #computeTree(ReadableGraph, Object, ToDoubleFunction)}.
+         *
+         * @param graph The graph to search in
+         * @param source The start node
+         * @param edgeLength Function to determine the length of an edge
+         * @param instrumentation The instrumentation to report the run to
+         * @return The shortest path tree
+         * @throws IllegalArgumentException If the source is not in the graph
+         */
+        @NotNull
+        default <N,E> ShortestPathTree<N,E> computeTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                        @NotNull Instrumentation instrumentation) {
+            return computeTree(graph, source, edgeLength);
+        }
+
+        /**
+         * Returns a parallel delta-stepping algorithm with the given parameters. Light edges,
+         * which are not longer than delta, are relaxed repeatedly within a bucket of width
+         * delta, heavy edges only once per bucket. Small values for delta approximate
+         * Dijkstra's algorithm with little parallelism, large values approximate the
+         * Bellman-Ford algorithm with lots of redundant work. The algorithm does not
+         * support negative edge lengths.
+         *
+         * <p>The returned algorithm starts its own pool of the given number of threads
+         * once and reuses it for all computations. The threads terminate when idle.</p>
+         *
+         * @param delta The bucket width, or {@link Double#NaN} to choose one automatically
+         * @param threads The number of threads to use, <code>1</code> for a single-threaded
+         *                computation
+         * @return A delta-stepping algorithm with the given parameters
+         */
+        static SingleSourceShortestPath deltaStepping(double delta, int threads) {
+            Arguments.checkRange(threads, 1, null);
+            return new DeltaStepping(delta, threads > 1 ? new ForkJoinPool(threads) : null);
+        }
+
+        /**
+         * Returns a parallel delta-stepping algorithm that relaxes edges on the given
+         * pool, using as many parallel tasks as the pool's parallelism.
+         *
+         * @param delta The bucket width, or {@link Double#NaN} to choose one automatically
+         * @param pool The pool to run the parallel relaxations on, for example
+         *             {@link ForkJoinPool#commonPool()}
+         * @return A delta-stepping algorithm with the given parameters
+         * @see #deltaStepping(double, int)
+         */
+        static SingleSourceShortestPath deltaStepping(double delta, @NotNull ForkJoinPool pool) {
+            return new DeltaStepping(delta, Arguments.checkNull(pool, "pool"));
+        }
+
+        private static int indexOfSource(IndexedGraph<?,?> graph, Object source) {
+            int s = graph.indexOf(source);
+            if(s < 0) throw new IllegalArgumentException("Source is not in the graph: " + source);
+            return s;
+        }
+
+        /**
+         * Searches the predecessor graph, starting at the given node, for a cycle.
+         * Any cycle in the predecessor graph has negative length.
+         */
+        private static <N,E> NegativeCycleException negativeCycle(IndexedGraph<N,E> g, int[] p, long[] pe, int start, ToDoubleFunction<? super E> edgeLength) {
+            boolean[] visited = new boolean[g.size()];
+            int n = start;
+            while(n >= 0 && !visited[n]) {
+                visited[n] = true;
+                n = p[n];
+            }
+            if(n < 0) return null;
+
+            // n is on the cycle, walk it backwards
+            DistancePath<N,E> cycle = new DistancePath<>(g.node(n), edgeLength);
+            int current = n;
+            for(int m = p[n]; m != n; m = p[current = m])
+                cycle.addFirst(g.node(m), g.edgeValue(pe[current]));
+            // The closing edge from the last node (n) to the first one
+            double length = cycle.distance() + edgeLength.applyAsDouble(g.edgeValue(pe[current]));
+            return new NegativeCycleException(cycle, length);
+        }
+    }
+
+    interface MultiSourceShortestPath extends Algorithm {
+
+        /**
+         * Dijkstra's algorithm with the heap initially containing all sources at
+         * distance 0, so that each node is settled from its closest source.
+         */
+        MultiSourceShortestPath DIJKSTRA = new MultiSourceShortestPath() {
+            @Override
+            public @NotNull <N,E> MultiSourceShortestPaths<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                                      @NotNull ToDoubleFunction<? super E> edgeLength) {
+                return compute(graph, sources, edgeLength, Instrumentation.NONE);
+            }
+
+            @Override
+            public @NotNull <N,E> MultiSourceShortestPaths<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                                      @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                                      @NotNull Instrumentation instrumentation) {
+                Arguments.checkNull(graph, "graph");
+                Arguments.checkNull(sources, "sources");
+                Arguments.checkNull(edgeLength, "edgeLength");
+                AlgorithmRun run = AlgorithmRun.start("Multi-source Dijkstra", Arguments.checkNull(instrumentation, "instrumentation"));
+
+                IndexedGraph<N,E> g = IndexedGraph.of(graph);
+                EdgeLengths<E> w = EdgeLengths.of(g, edgeLength);
+                int size = g.size();
+
+                double[] d = new double[size];
+                int[] p = new int[size];
+                long[] pe = new long[size];
+                int[] src = new int[size];
+                Arrays.fill(d, Double.POSITIVE_INFINITY);
+                Arrays.fill(p, -1);
+                Arrays.fill(src, -1);
+
+                IndexedHeap q = new IndexedHeap(size);
+                for(N source : sources) {
+                    int s = g.indexOf(Arguments.checkNull(source, "source"));
+                    if(s < 0) throw new IllegalArgumentException("Source is not in the graph: " + source);
+                    d[s] = 0;
+                    src[s] = s;
+                    q.put(s, 0);
+                }
+
+                long settled = 0, relaxed = 0, decreaseKeys = 0;
+                while(!q.isEmpty()) {
+                    int n = q.poll();
+                    settled++;
+                    double dn = d[n];
+                    for(long e=g.edgeStart(n), end=g.edgeEnd(n); e<end; e++) {
+                        int m = g.target(e);
+                        double dist = dn + w.get(e);
+                        if(dist < d[m]) {
+                            if(d[m] != Double.POSITIVE_INFINITY) decreaseKeys++;
+                            d[m] = dist;
+                            p[m] = n;
+                            pe[m] = e;
+                            src[m] = src[n];
+                            q.put(m, dist);
+                        }
+                    }
+                    relaxed += g.edgeEnd(n) - g.edgeStart(n);
+                }
+
+                if(run != null) run.finish(settled, relaxed, 2 * settled, decreaseKeys, 0, 0);
+                return new MultiSourceShortestPaths<>(g, edgeLength, d, p, pe, src);
+            }
+        };
+
+        @NotNull
+        <N,E> MultiSourceShortestPaths<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                    @NotNull ToDoubleFunction<? super E> edgeLength);
+
+        @NotNull
+        default <N,E> MultiSourceShortestPaths<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                            @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                            @NotNull Instrumentation instrumentation) {
+            return compute(graph, sources, edgeLength);
+        }
     }
 
     interface AllPairsShortestPath extends Algorithm {
@@ -277,17 +636,27 @@ public interface Algorithm {
             @Override
             public @NotNull <N,E> Flow<N> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N drain,
                                                   @NotNull ToDoubleFunction<? super E> edgeCapacity) {
+                return compute(graph, source, drain, edgeCapacity, Instrumentation.NONE);
+            }
+
+            @Override
+            public @NotNull <N,E> Flow<N> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N drain,
+                                                  @NotNull ToDoubleFunction<? super E> edgeCapacity,
+                                                  @NotNull Instrumentation instrumentation) {
 
                 Arguments.checkNull(graph,        "graph");
                 Arguments.checkNull(source,       "source");
                 Arguments.checkNull(drain,        "drain");
                 Arguments.checkNull(edgeCapacity, "edgeCapacity");
+                AlgorithmRun run = AlgorithmRun.start("Edmonds-Karp", Arguments.checkNull(instrumentation, "instrumentation"));
 
                 Graph<N,Double> flowGraph = new HashGraph<>();
                 flowGraph.addAll(graph.nodes());
 
-                if(source.equals(drain))
+                if(source.equals(drain)) {
+                    if(run != null) run.finish(0, 0, 0, 0, 0, 0);
                     return new Flow<>(flowGraph, Double.POSITIVE_INFINITY, source, drain);
+                }
 
                 Graph<N,Double> residual = new HashGraph<>();
                 residual.addAll(graph.nodes());
@@ -299,12 +668,14 @@ public interface Algorithm {
                         throw new IllegalArgumentException("Graph has negative capacities: " + new Edge<>(n,m,e));
                 });
                 double flow = 0;
+                long paths = 0;
 
                 Path<N,Double> p;
                 while((p = Graphs.shortestTopologicalPath(residual, source, drain)) != null) {
 
                     double f = p.weights().stream().min(Comparator.naturalOrder()).get();
                     flow += f;
+                    paths++;
 
                     p.forEach((n,m,of) -> {
                         // Decrease potential flow increase
@@ -334,24 +705,34 @@ public interface Algorithm {
                     });
                 }
 
+                if(run != null) run.finish(0, 0, 0, 0, paths, paths);
                 return new Flow<>(flowGraph, flow, source, drain);
             }
         };
 
         MaxFlowAlg DINIC = new MaxFlowAlg() {
-            @SuppressWarnings("DuplicatedCode")
             @Override
             public @NotNull <N, E> Flow<N> compute(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull N drain, @NotNull ToDoubleFunction<? super E> edgeCapacity) {
+                return compute(graph, source, drain, edgeCapacity, Instrumentation.NONE);
+            }
+
+            @SuppressWarnings("DuplicatedCode")
+            @Override
+            public @NotNull <N, E> Flow<N> compute(@NotNull ReadableGraph<N, E> graph, @NotNull N source, @NotNull N drain, @NotNull ToDoubleFunction<? super E> edgeCapacity,
+                                                   @NotNull Instrumentation instrumentation) {
                 Arguments.checkNull(graph,        "graph");
                 Arguments.checkNull(source,       "source");
                 Arguments.checkNull(drain,        "drain");
                 Arguments.checkNull(edgeCapacity, "edgeCapacity");
+                AlgorithmRun run = AlgorithmRun.start("Dinic", Arguments.checkNull(instrumentation, "instrumentation"));
 
                 Graph<N,Double> flowGraph = new HashGraph<>();
                 flowGraph.addAll(graph.nodes());
 
-                if(source.equals(drain))
+                if(source.equals(drain)) {
+                    if(run != null) run.finish(0, 0, 0, 0, 0, 0);
                     return new Flow<>(flowGraph, Double.POSITIVE_INFINITY, source, drain);
+                }
 
                 Graph<N,Double> residual = new HashGraph<>();
                 residual.addAll(graph.nodes());
@@ -363,10 +744,13 @@ public interface Algorithm {
                         throw new IllegalArgumentException("Graph has negative capacities: " + new Edge<>(n,m,e));
                 });
 
+                long[] paths = { 0 };
+                long phases = 0;
                 Graph<N,Double> levelGraph;
                 while((levelGraph = MaxFlowAlg.levelGraph(residual, source, drain)) != null) {
+                    phases++;
 
-                    blockingFlow(levelGraph, source, drain).forEach((n,m,f) -> {
+                    blockingFlow(levelGraph, source, drain, paths).forEach((n,m,f) -> {
                         // Decrease potential flow increase
                         Double of = residual.edge(n,m); // TODO: is Double needed?
                         if((double) of == f)
@@ -395,6 +779,7 @@ public interface Algorithm {
                     });
                 }
 
+                if(run != null) run.finish(0, 0, 0, 0, paths[0], phases);
                 return new Flow<>(flowGraph, source, drain);
             }
         };
@@ -403,8 +788,18 @@ public interface Algorithm {
         <N,E> Flow<N> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N drain,
                               @NotNull ToDoubleFunction<? super E> edgeCapacity);
 
+        @NotNull
+        default <N,E> Flow<N> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N drain,
+                                      @NotNull ToDoubleFunction<? super E> edgeCapacity, @NotNull Instrumentation instrumentation) {
+            return compute(graph, source, drain, edgeCapacity);
+        }
+
+        /**
+         * Computes a blocking flow in the level graph, adding the number of augmenting
+         * paths found to the first element of the given array.
+         */
         @SuppressWarnings("DuplicatedCode")
-        private static <N> Flow<N> blockingFlow(Graph<N,Double> levelGraph, N source, N drain) {
+        private static <N> Flow<N> blockingFlow(Graph<N,Double> levelGraph, N source, N drain, long[] paths) {
 
             assert !source.equals(drain);
 
@@ -417,6 +812,7 @@ public interface Algorithm {
 
                 double f = p.weights().stream().mapToDouble(c->c).min().getAsDouble();
                 flow += f;
+                paths[0]++;
 
                 p.forEach((n,m,of) -> {
                     // Decrease potential flow increase
@@ -469,15 +865,259 @@ public interface Algorithm {
         }
     }
 
+    interface NodeOrdering extends Algorithm {
+
+        /**
+         * Breadth-first order, starting a new traversal at the node with the lowest
+         * index whenever a connected component is finished.
+         */
+        NodeOrdering BFS = new NodeOrdering() {
+            @Override
+            public @NotNull int[] order(@NotNull IndexedGraph<?,?> graph) {
+                return SymmetricAdjacency.of(Arguments.checkNull(graph, "graph")).bfsOrder();
+            }
+        };
+
+        /**
+         * Reverse Cuthill-McKee order: a breadth-first traversal from a
+         * pseudo-peripheral node of each component, visiting the neighbors of each
+         * node in order of increasing degree, reversed at the end. This minimizes the
+         * bandwidth of the adjacency matrix, so that nodes are close to their
+         * neighbors.
+         */
+        NodeOrdering REVERSE_CUTHILL_MCKEE = new NodeOrdering() {
+            @Override
+            public @NotNull int[] order(@NotNull IndexedGraph<?,?> graph) {
+                SymmetricAdjacency adj = SymmetricAdjacency.of(Arguments.checkNull(graph, "graph"));
+                int size = adj.size;
+
+                long[] byDegree = new long[size];
+                for(int i=0; i<size; i++)
+                    byDegree[i] = ((long) adj.degree(i) << 32) | i;
+                Arrays.sort(byDegree);
+
+                int[] order = new int[size];
+                int[] level = new int[size];
+                Arrays.fill(level, -1);
+                long[] row = new long[16];
+                boolean[] visited = new boolean[size];
+                int count = 0;
+                for(long key : byDegree) {
+                    int s = (int) key;
+                    if(visited[s]) continue;
+                    s = pseudoPeripheralNode(adj, s, level, order, count);
+                    visited[s] = true;
+                    order[count] = s;
+                    for(int head=count++; head<count; head++) {
+                        int n = order[head], degree = 0;
+                        for(int e=adj.offsets[n]; e<adj.offsets[n+1]; e++) {
+                            int m = adj.targets[e];
+                            if(visited[m]) continue;
+                            visited[m] = true;
+                            if(degree == row.length) row = Arrays.copyOf(row, 2 * degree);
+                            row[degree++] = ((long) adj.degree(m) << 32) | m;
+                        }
+                        Arrays.sort(row, 0, degree);
+                        for(int j=0; j<degree; j++)
+                            order[count++] = (int) row[j];
+                    }
+                }
+
+                for(int i=0, j=size-1; i<j; i++, j--) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                }
+                return order;
+            }
+        };
+
+        /**
+         * Orders the nodes by decreasing degree (counting both incoming and outgoing
+         * edges), so that the most frequently accessed nodes are stored together.
+         * Nodes with the same degree keep their relative order.
+         */
+        NodeOrdering DEGREE = new NodeOrdering() {
+            @Override
+            public @NotNull int[] order(@NotNull IndexedGraph<?,?> graph) {
+                Arguments.checkNull(graph, "graph");
+                int size = graph.size();
+                long[] degrees = new long[size];
+                for(int i=0; i<size; i++) {
+                    for(long e=graph.edgeStart(i), end=graph.edgeEnd(i); e<end; e++) {
+                        int j = graph.target(e);
+                        degrees[i]++;
+                        if(graph.isDirected() && i != j) degrees[j]++;
+                    }
+                }
+                long[] keys = new long[size];
+                for(int i=0; i<size; i++)
+                    keys[i] = (Math.min(degrees[i], Integer.MAX_VALUE) ^ Integer.MAX_VALUE) << 32 | i;
+                Arrays.sort(keys);
+                int[] order = new int[size];
+                for(int i=0; i<size; i++)
+                    order[i] = (int) keys[i];
+                return order;
+            }
+        };
+
+        /**
+         * Greedy graph ordering (based on Gorder, Wei et al.): nodes are placed one
+         * after another, always choosing the node with the most neighbors and
+         * siblings (nodes sharing a neighbor) among the last 5 placed nodes. Siblings
+         * are not counted through nodes with more than sqrt(n) neighbors, which would
+         * make nearly all nodes siblings of each other.
+         */
+        NodeOrdering GORDER = new NodeOrdering() {
+            @Override
+            public @NotNull int[] order(@NotNull IndexedGraph<?,?> graph) {
+                SymmetricAdjacency adj = SymmetricAdjacency.of(Arguments.checkNull(graph, "graph"));
+                int size = adj.size;
+                int[] order = new int[size];
+                if(size == 0) return order;
+
+                int window = 5, hubDegree = (int) Math.sqrt(size) + 1;
+                int[] score = new int[size];
+                boolean[] placed = new boolean[size];
+                IndexedHeap heap = new IndexedHeap(size);
+                int start = 0;
+                for(int i=0; i<size; i++) {
+                    heap.put(i, 0);
+                    if(adj.degree(i) > adj.degree(start)) start = i;
+                }
+
+                heap.remove(start);
+                order[0] = start;
+                placed[start] = true;
+                updateScores(adj, start, 1, hubDegree, placed, score, heap);
+                for(int k=1; k<size; k++) {
+                    if(k > window)
+                        updateScores(adj, order[k - window - 1], -1, hubDegree, placed, score, heap);
+                    int n = heap.poll();
+                    order[k] = n;
+                    placed[n] = true;
+                    updateScores(adj, n, 1, hubDegree, placed, score, heap);
+                }
+                return order;
+            }
+        };
+
+        /**
+         * Computes a new order for the nodes of the given graph.
+         *
+         * @param graph The graph to order the nodes of
+         * @return The indices of the nodes in their new order, such that node
+         *         <code>order[i]</code> becomes node <code>i</code>
+         * @see CompactGraph#relabel(int[])
+         */
+        @NotNull
+        int[] order(@NotNull IndexedGraph<?,?> graph);
+
+        /**
+         * Creates a compact graph with the same nodes and edges as the given graph,
+         * with the nodes indexed in the order computed by this ordering.
+         *
+         * @param graph The graph to reorder
+         * @return A new compact graph with the nodes in a new order
+         */
+        @SuppressWarnings("unchecked")
+        @NotNull
+        default <N,E> CompactGraph<N,E> reorder(@NotNull ReadableGraph<N,E> graph) {
+            CompactGraph<N,E> g = graph instanceof CompactGraph ? (CompactGraph<N,E>) graph : new CompactGraph<>(graph);
+            return g.relabel(order(g));
+        }
+
+        /**
+         * Finds a node of maximum or near maximum eccentricity in the component of
+         * the given node (George and Liu). Uses the level array, which must be
+         * filled with -1 and is restored afterwards, and the part of the queue
+         * after the given offset.
+         */
+        private static int pseudoPeripheralNode(SymmetricAdjacency adj, int root, int[] level, int[] queue, int offset) {
+            int eccentricity = -1;
+            while(true) {
+                level[root] = 0;
+                queue[offset] = root;
+                int count = offset + 1;
+                for(int head=offset; head<count; head++) {
+                    int n = queue[head];
+                    for(int e=adj.offsets[n]; e<adj.offsets[n+1]; e++) {
+                        int m = adj.targets[e];
+                        if(level[m] >= 0) continue;
+                        level[m] = level[n] + 1;
+                        queue[count++] = m;
+                    }
+                }
+                int last = level[queue[count-1]], next = queue[count-1];
+                for(int i=count-1; i>=offset && level[queue[i]] == last; i--)
+                    if(adj.degree(queue[i]) < adj.degree(next)) next = queue[i];
+                for(int i=offset; i<count; i++)
+                    level[queue[i]] = -1;
+                if(last <= eccentricity) return root;
+                eccentricity = last;
+                root = next;
+            }
+        }
+
+        /**
+         * Adds the given delta to the score of all unplaced neighbors and siblings
+         * of the given node.
+         */
+        private static void updateScores(SymmetricAdjacency adj, int node, int delta, int hubDegree,
+                                         boolean[] placed, int[] score, IndexedHeap heap) {
+            for(int e=adj.offsets[node]; e<adj.offsets[node+1]; e++) {
+                int n = adj.targets[e];
+                if(!placed[n]) heap.put(n, -(score[n] += delta));
+                if(adj.degree(n) > hubDegree) continue;
+                for(int f=adj.offsets[n]; f<adj.offsets[n+1]; f++) {
+                    int m = adj.targets[f];
+                    if(m != node && !placed[m]) heap.put(m, -(score[m] += delta));
+                }
+            }
+        }
+    }
+
+    interface Partitioner extends Algorithm {
+
+        /**
+         * Size-constrained label propagation, starting from a breadth-first split
+         * of the graph, with up to 16 rounds of refinement.
+         */
+        Partitioner LABEL_PROPAGATION = new LabelPropagation(16, false);
+
+        /**
+         * Size-constrained label propagation like {@link #LABEL_PROPAGATION}, with
+         * the moves of each round computed in parallel on the common fork-join pool.
+         * The result is the same as with the sequential version.
+         */
+        Partitioner PARALLEL_LABEL_PROPAGATION = new LabelPropagation(16, true);
+
+        /**
+         * Partitions the given graph into the given number of parts, trying to
+         * minimize the total weight of edges between different parts.
+         *
+         * @param graph The graph to partition
+         * @param parts The number of parts
+         * @param imbalance The allowed imbalance: no part may contain more than
+         *                  <code>(1 + imbalance)</code> times the average number of
+         *                  nodes per part
+         * @param edgeWeight Function to determine the weight of an edge
+         * @return The partition of the graph
+         */
+        @NotNull
+        <N,E> GraphPartition<N,E> compute(@NotNull ReadableGraph<N,E> graph, int parts, double imbalance,
+                                          @NotNull ToDoubleFunction<? super E> edgeWeight);
+    }
+
     private static <N,E> DistancePath<N,E> buildPath(ReadableGraph<N,E> graph, ToDoubleFunction<? super E> edgeLength, N target, Map<N,N> p) {
         return buildPath(graph, target, p, n -> new DistancePath<>(n, edgeLength));
     }
 
-    private static <N,E,P extends Path<N,E>> P buildPath(ReadableGraph<N,E> graph, N target, Map<N,N> p, Function<N,P> pathCtor) {
+    private static <N,E,P extends ArrayPath<N,E>> P buildPath(ReadableGraph<N,E> graph, N target, Map<N,N> p, Function<N,P> pathCtor) {
         N next, current = target;
         P path = pathCtor.apply(current);
         while((current = p.get(next = current)) != null)
-            path.insertBefore(0, current, graph.edge(current, next));
+            path.addFirst(current, graph.edge(current, next));
         return path;
     }
 }
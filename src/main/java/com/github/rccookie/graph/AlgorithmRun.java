@@ -0,0 +1,207 @@
+package com.github.rccookie.graph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Metrics of a single run of an algorithm, reported to an {@link Instrumentation}.
+ * Counters that don't apply to an algorithm are 0; for example, only max-flow
+ * algorithms report augmenting paths.
+ *
+ * @see Instrumentation
+ */
+public final class AlgorithmRun {
+
+    /**
+     * Used to measure the bytes allocated by the current thread, or
+     * <code>null</code> if not supported by the JVM.
+     */
+    @Nullable
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+    /**
+     * Whether thread allocation accounting was enabled, which is done on the first
+     * run that {@link Instrumentation#measuresAllocations() measures allocations}.
+     */
+    private static volatile boolean allocationsEnabled = false;
+
+    private final String algorithm;
+    private final Instrumentation instrumentation;
+    private final long startNanos;
+    private final long startBytes;
+
+    private long nodesSettled;
+    private long edgesRelaxed;
+    private long heapOperations;
+    private long decreaseKeys;
+    private long augmentingPaths;
+    private long phases;
+    private long wallTimeNanos;
+    private long allocatedBytes;
+
+    private AlgorithmRun(String algorithm, Instrumentation instrumentation) {
+        this.algorithm = algorithm;
+        this.instrumentation = instrumentation;
+        startBytes = instrumentation.measuresAllocations() && enableAllocations() ? threadAllocatedBytes() : -1;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts measuring a run of the given algorithm.
+     *
+     * @return The run to finish when the algorithm is done, or <code>null</code> if
+     *         the instrumentation is disabled
+     */
+    @Nullable
+    static AlgorithmRun start(String algorithm, Instrumentation instrumentation) {
+        return instrumentation.isEnabled() ? new AlgorithmRun(algorithm, instrumentation) : null;
+    }
+
+    /**
+     * Finishes the run with the given counters and reports it to the instrumentation.
+     */
+    void finish(long nodesSettled, long edgesRelaxed, long heapOperations, long decreaseKeys, long augmentingPaths, long phases) {
+        wallTimeNanos = System.nanoTime() - startNanos;
+        allocatedBytes = startBytes < 0 ? -1 : threadAllocatedBytes() - startBytes;
+        this.nodesSettled = nodesSettled;
+        this.edgesRelaxed = edgesRelaxed;
+        this.heapOperations = heapOperations;
+        this.decreaseKeys = decreaseKeys;
+        this.augmentingPaths = augmentingPaths;
+        this.phases = phases;
+        instrumentation.record(this);
+    }
+
+    /**
+     * Returns the name of the algorithm that was run.
+     *
+     * @return The algorithm's name
+     */
+    @NotNull
+    public String algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the number of nodes whose distance or state became final, for example
+     * the nodes removed from the heap by Dijkstra's algorithm. For label-correcting
+     * algorithms like Bellman-Ford, this is the number of times a node was
+     * processed, which may count a node multiple times.
+     *
+     * @return The number of settled nodes
+     */
+    public long nodesSettled() {
+        return nodesSettled;
+    }
+
+    /**
+     * Returns the number of edges examined, whether or not they improved the
+     * distance of their end node.
+     *
+     * @return The number of relaxed edges
+     */
+    public long edgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    /**
+     * Returns the number of insertions into and removals from a priority queue.
+     * Decrease-key operations are counted separately.
+     *
+     * @return The number of heap operations
+     */
+    public long heapOperations() {
+        return heapOperations;
+    }
+
+    /**
+     * Returns the number of times the key of an element already in a priority
+     * queue was decreased.
+     *
+     * @return The number of decrease-key operations
+     */
+    public long decreaseKeys() {
+        return decreaseKeys;
+    }
+
+    /**
+     * Returns the number of augmenting paths found by a max-flow algorithm.
+     *
+     * @return The number of augmenting paths
+     */
+    public long augmentingPaths() {
+        return augmentingPaths;
+    }
+
+    /**
+     * Returns the number of phases of the algorithm, for example the level graphs
+     * built by Dinic's algorithm or the buckets processed by delta-stepping.
+     *
+     * @return The number of phases
+     */
+    public long phases() {
+        return phases;
+    }
+
+    /**
+     * Returns the wall clock time the algorithm took.
+     *
+     * @return The duration of the run in nanoseconds
+     */
+    public long wallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the thread running the algorithm.
+     * Allocations by other threads, for example of parallel algorithms, are not
+     * included.
+     *
+     * @return The number of bytes allocated, or <code>-1</code> if not supported by
+     *         the JVM or not {@link Instrumentation#measuresAllocations() measured}
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + " run: " + nodesSettled + " nodes settled, " + edgesRelaxed + " edges relaxed, "
+                + heapOperations + " heap operations, " + decreaseKeys + " decrease-keys, "
+                + augmentingPaths + " augmenting paths, " + phases + " phases, "
+                + wallTimeNanos / 1e6 + "ms, " + allocatedBytes + " bytes allocated";
+    }
+
+    private static long threadAllocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * Enables thread allocation accounting if it is not already enabled.
+     *
+     * @return Whether allocations can be measured
+     */
+    private static boolean enableAllocations() {
+        if(THREADS == null) return false;
+        if(allocationsEnabled) return true;
+        try {
+            if(!THREADS.isThreadAllocatedMemoryEnabled()) THREADS.setThreadAllocatedMemoryEnabled(true);
+            return allocationsEnabled = true;
+        } catch(UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if(!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            return threads.isThreadAllocatedMemorySupported() ? threads : null;
+        } catch(LinkageError | UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+}
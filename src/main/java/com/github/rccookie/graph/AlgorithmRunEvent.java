@@ -0,0 +1,67 @@
+package com.github.rccookie.graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for a finished algorithm run.
+ *
+ * @see Instrumentation#JFR
+ */
+@Name("com.github.rccookie.graph.AlgorithmRun")
+@Label("Graph Algorithm Run")
+@Category("Graph")
+@Description("Metrics of a finished graph algorithm run")
+@StackTrace(false)
+final class AlgorithmRunEvent extends Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Nodes Settled")
+    long nodesSettled;
+
+    @Label("Edges Relaxed")
+    long edgesRelaxed;
+
+    @Label("Heap Operations")
+    long heapOperations;
+
+    @Label("Decrease Keys")
+    long decreaseKeys;
+
+    @Label("Augmenting Paths")
+    long augmentingPaths;
+
+    @Label("Phases")
+    long phases;
+
+    @Label("Wall Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long wallTime;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+
+    static void commit(AlgorithmRun run) {
+        AlgorithmRunEvent event = new AlgorithmRunEvent();
+        if(!event.isEnabled()) return;
+        event.algorithm = run.algorithm();
+        event.nodesSettled = run.nodesSettled();
+        event.edgesRelaxed = run.edgesRelaxed();
+        event.heapOperations = run.heapOperations();
+        event.decreaseKeys = run.decreaseKeys();
+        event.augmentingPaths = run.augmentingPaths();
+        event.phases = run.phases();
+        event.wallTime = run.wallTimeNanos();
+        event.allocatedBytes = run.allocatedBytes();
+        event.commit();
+    }
+}
@@ -0,0 +1,337 @@
+package com.github.rccookie.graph;
+
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable index over the ancestry relation of a {@link Forest}, answering
+ * lowest common ancestor, level ancestor and tree distance queries without
+ * walking the parents of the nodes. The index is a snapshot: later changes to
+ * the forest are not reflected.
+ * <p>The nodes are numbered in depth-first preorder, so that each subtree is a
+ * contiguous range of indices. For two nodes <code>a</code> and <code>b</code>
+ * with <code>a</code> preceding <code>b</code>, their lowest common ancestor is
+ * the parent with the smallest index among the parents of the nodes in the range
+ * <code>(a, b]</code>, which is found with a sparse table in constant time. Level
+ * ancestors are found by binary search in the preorder indices of all nodes at
+ * the requested depth. Both use <code>O(n log n)</code> respectively
+ * <code>O(n)</code> ints of memory. The tables for {@link #bottleneck(Object, Object)}
+ * are only created when first needed.</p>
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ */
+public final class AncestorIndex<N,E> {
+
+    private final PreorderForest<N> forest;
+    private final int[] parent;
+    private final int[] depth;
+    /**
+     * The weighted distance from the root of its tree of each node.
+     */
+    private final double[] rootDistance;
+    /**
+     * <code>minParent[k][i]</code> is the minimum parent of the nodes
+     * <code>i</code> to <code>i + 2^k - 1</code>.
+     */
+    private final int[][] minParent;
+    /**
+     * The nodes ordered by depth, and by index within each depth.
+     */
+    private final int[] byDepth;
+    private final int[] depthOffsets;
+
+    private int[][] jump = null;
+    private double[][] jumpMax = null;
+
+    /**
+     * Creates a new ancestor index over the given forest, with all edges having a
+     * weight of 1.
+     *
+     * @param forest The forest to index
+     */
+    public AncestorIndex(@NotNull Forest<N,E> forest) {
+        this(forest, e -> 1);
+    }
+
+    /**
+     * Creates a new ancestor index over the given forest.
+     *
+     * @param forest The forest to index
+     * @param edgeWeight Function to determine the weight of an edge, used for
+     *                   distance and bottleneck queries
+     */
+    public AncestorIndex(@NotNull Forest<N,E> forest, @NotNull ToDoubleFunction<? super E> edgeWeight) {
+        this.forest = new PreorderForest<>(forest, edgeWeight);
+        parent = this.forest.parent;
+        depth = this.forest.depth;
+        int size = this.forest.size();
+
+        rootDistance = new double[size];
+        for(int i=0; i<size; i++)
+            if(parent[i] >= 0) rootDistance[i] = rootDistance[parent[i]] + this.forest.weight[i];
+
+        int levels = size <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(size - 1);
+        minParent = new int[levels][];
+        minParent[0] = parent;
+        for(int k=1; k<levels; k++) {
+            int[] prev = minParent[k-1], level = new int[size - (1 << k) + 1];
+            for(int i=0; i<level.length; i++)
+                level[i] = Math.min(prev[i], prev[i + (1 << (k-1))]);
+            minParent[k] = level;
+        }
+
+        int maxDepth = 0;
+        for(int d : depth) maxDepth = Math.max(maxDepth, d);
+        depthOffsets = new int[maxDepth + 2];
+        for(int d : depth) depthOffsets[d+1]++;
+        for(int d=0; d<=maxDepth; d++)
+            depthOffsets[d+1] += depthOffsets[d];
+        byDepth = new int[size];
+        int[] fill = depthOffsets.clone();
+        for(int i=0; i<size; i++)
+            byDepth[fill[depth[i]]++] = i;
+    }
+
+    /**
+     * Returns the number of nodes in the index.
+     *
+     * @return The number of nodes
+     */
+    public int size() {
+        return forest.size();
+    }
+
+    /**
+     * Returns whether the given node is in the index.
+     *
+     * @param node The node to test
+     * @return Whether the node is contained
+     */
+    public boolean contains(Object node) {
+        return forest.index.containsKey(node);
+    }
+
+    /**
+     * Returns the number of edges between the given node and the root of its tree.
+     *
+     * @param node The node to get the depth of
+     * @return The depth of the node, or <code>-1</code> if it is not in the index
+     */
+    public int depth(@NotNull Object node) {
+        Integer i = forest.index.get(node);
+        return i != null ? depth[i] : -1;
+    }
+
+    /**
+     * Returns the root of the tree containing the given node.
+     *
+     * @param node The node to get the root of
+     * @return The root of the node's tree
+     * @throws IllegalArgumentException If the node is not in the index
+     */
+    @NotNull
+    public N root(@NotNull Object node) {
+        return node(ancestor(indexOf(node), 0));
+    }
+
+    /**
+     * Returns the parent of the given node.
+     *
+     * @param node The node to get the parent of
+     * @return The parent, or <code>null</code> if the node is a root
+     * @throws IllegalArgumentException If the node is not in the index
+     */
+    @Nullable
+    public N parent(@NotNull Object node) {
+        int p = parent[indexOf(node)];
+        return p < 0 ? null : node(p);
+    }
+
+    /**
+     * Returns whether the first node is an ancestor of the second one. Every node
+     * is considered an ancestor of itself.
+     *
+     * @param ancestor The potential ancestor
+     * @param node The potential descendant
+     * @return Whether <code>ancestor</code> is on the path from <code>node</code> to
+     *         its root
+     * @throws IllegalArgumentException If one of the nodes is not in the index
+     */
+    public boolean isAncestor(@NotNull Object ancestor, @NotNull Object node) {
+        int a = indexOf(ancestor), n = indexOf(node);
+        return a <= n && n < forest.end[a];
+    }
+
+    /**
+     * Returns the ancestor of the given node <code>k</code> levels above it.
+     *
+     * @param node The node to get the ancestor of
+     * @param k The number of edges between the node and the ancestor; 0 refers to
+     *          the node itself, 1 to its parent
+     * @return The ancestor, or <code>null</code> if the node's depth is less than
+     *         <code>k</code>
+     * @throws IllegalArgumentException If the node is not in the index or <code>k</code>
+     *                                  is negative
+     */
+    @Nullable
+    public N kthAncestor(@NotNull Object node, int k) {
+        Arguments.checkRange(k, 0, null);
+        int n = indexOf(node);
+        if(k > depth[n]) return null;
+        return node(ancestor(n, depth[n] - k));
+    }
+
+    /**
+     * Returns the lowest common ancestor of the given nodes, that is the deepest
+     * node that is an ancestor of both nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The lowest common ancestor, or <code>null</code> if the nodes are in
+     *         different trees
+     * @throws IllegalArgumentException If one of the nodes is not in the index
+     */
+    @Nullable
+    public N lca(@NotNull Object a, @NotNull Object b) {
+        int l = lca(indexOf(a), indexOf(b));
+        return l < 0 ? null : node(l);
+    }
+
+    /**
+     * Returns the number of edges on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The number of edges between the nodes, or <code>-1</code> if they are
+     *         in different trees
+     * @throws IllegalArgumentException If one of the nodes is not in the index
+     */
+    public int topologicalDistance(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b), l = lca(i,j);
+        return l < 0 ? -1 : depth[i] + depth[j] - 2 * depth[l];
+    }
+
+    /**
+     * Returns the total weight of the edges on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The weighted distance between the nodes, or {@link Double#POSITIVE_INFINITY}
+     *         if they are in different trees
+     * @throws IllegalArgumentException If one of the nodes is not in the index
+     */
+    public double distance(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b), l = lca(i,j);
+        return l < 0 ? Double.POSITIVE_INFINITY : rootDistance[i] + rootDistance[j] - 2 * rootDistance[l];
+    }
+
+    /**
+     * Returns the maximum weight of the edges on the path between the given nodes.
+     * On a minimum spanning tree, this is the smallest possible maximum edge weight
+     * of any path between the nodes in the original graph.
+     * <p>The first call creates binary lifting tables of <code>O(n log n)</code>
+     * size; each query takes <code>O(log n)</code> time.</p>
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The maximum edge weight on the path, {@link Double#NEGATIVE_INFINITY}
+     *         if the nodes are equal, or {@link Double#NaN} if they are in different
+     *         trees
+     * @throws IllegalArgumentException If one of the nodes is not in the index
+     */
+    public double bottleneck(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b), l = lca(i,j);
+        if(l < 0) return Double.NaN;
+        initJumps();
+        return Math.max(maxToAncestor(i, depth[i] - depth[l]), maxToAncestor(j, depth[j] - depth[l]));
+    }
+
+    @Override
+    public String toString() {
+        return "Ancestor index with " + forest.size() + " nodes";
+    }
+
+
+    private int indexOf(Object node) {
+        return forest.indexOf(node);
+    }
+
+    private N node(int index) {
+        return forest.node(index);
+    }
+
+    /**
+     * Returns the index of the lowest common ancestor of the nodes with the given
+     * indices, or <code>-1</code> if they are in different trees.
+     */
+    private int lca(int a, int b) {
+        if(a == b) return a;
+        if(a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        // Minimum parent in (a, b]
+        int k = 31 - Integer.numberOfLeadingZeros(b - a);
+        return Math.min(minParent[k][a+1], minParent[k][b - (1 << k) + 1]);
+    }
+
+    /**
+     * Returns the index of the ancestor of the given node at the given depth, which
+     * must not be greater than the depth of the node.
+     */
+    private int ancestor(int node, int depth) {
+        // The ancestor is the last node at that depth that precedes the node
+        int lo = depthOffsets[depth], hi = depthOffsets[depth+1] - 1;
+        while(lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if(byDepth[mid] <= node) lo = mid;
+            else hi = mid - 1;
+        }
+        return byDepth[lo];
+    }
+
+    private double maxToAncestor(int node, int steps) {
+        double max = Double.NEGATIVE_INFINITY;
+        for(int k=0; steps != 0; k++, steps >>>= 1) {
+            if((steps & 1) == 0) continue;
+            max = Math.max(max, jumpMax[k][node]);
+            node = jump[k][node];
+        }
+        return max;
+    }
+
+    private synchronized void initJumps() {
+        if(jumpMax != null) return;
+        int size = forest.size(), maxDepth = depthOffsets.length - 2;
+        int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDepth));
+        int[][] jump = new int[levels][];
+        double[][] jumpMax = new double[levels][];
+        jump[0] = parent;
+        jumpMax[0] = forest.weight;
+        for(int k=1; k<levels; k++) {
+            int[] up = jump[k-1];
+            double[] upMax = jumpMax[k-1];
+            jump[k] = new int[size];
+            jumpMax[k] = new double[size];
+            for(int i=0; i<size; i++) {
+                int mid = up[i];
+                if(mid < 0) {
+                    jump[k][i] = -1;
+                    jumpMax[k][i] = upMax[i];
+                }
+                else {
+                    jump[k][i] = up[mid];
+                    jumpMax[k][i] = Math.max(upMax[i], upMax[mid]);
+                }
+            }
+        }
+        this.jump = jump;
+        this.jumpMax = jumpMax;
+    }
+}
@@ -1,9 +1,10 @@
 package com.github.rccookie.graph;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -13,71 +14,227 @@ import java.util.Set;
 
 import com.github.rccookie.util.Arguments;
 import com.github.rccookie.util.IterableMap;
-import com.github.rccookie.util.Utils;
 import com.github.rccookie.util.ViewModificationException;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Array based implementation of {@link Path}. The nodes and edges are stored in
+ * two arrays with free space at both ends, so that nodes can be added to the
+ * front and the back in amortized constant time; the edge after the node at
+ * array position <code>i</code> is stored at position <code>i</code> of the edge
+ * array. Paths are usually built backwards from the target by following the
+ * predecessors of a shortest path search.
+ * <p>An index from nodes to their position is only created when a node is looked
+ * up, for example by {@link #contains(Object)}, {@link #indexOf(Object)} or when
+ * adding a node using a public method, which has to ensure that the node is not
+ * on the path yet. Once created, the index is updated when nodes are added to
+ * either end, and discarded when nodes are inserted or removed in the middle.</p>
+ * <p>Copies share the arrays with the original path until either of them is
+ * modified, so that {@link #clone()} takes constant time.</p>
+ */
 public class ArrayPath<N,E> implements Path<N,E> {
 
-    final List<N> nodes = new ArrayList<>();
-    final List<E> edges = new ArrayList<>();
-    final Set<N> nodesSet = new HashSet<>();
-
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Object[] nodes;
+    private Object[] edges;
+    /**
+     * The array position of the first node.
+     */
+    private int head;
+    private int size;
+    /**
+     * Whether the arrays may be used by another path, and have to be copied
+     * before modifying them.
+     */
+    private boolean shared = false;
+
+    /**
+     * Maps each node to its array position plus {@link #origin}, or <code>null</code>
+     * if not yet needed.
+     */
+    private Map<Object,Integer> index = null;
+    /**
+     * Offset of the positions in the index, which is adjusted when the arrays are
+     * reallocated so that the index stays valid.
+     */
+    private int origin = 0;
+
+    private List<N> nodesView = null;
     private List<E> edgesView = null;
     private Tree<N,E> tree = null;
 
     public ArrayPath(@NotNull N start) {
-        nodes.add(Arguments.checkNull(start, "start"));
-        nodesSet.add(start);
+        nodes = new Object[INITIAL_CAPACITY];
+        edges = new Object[INITIAL_CAPACITY];
+        head = INITIAL_CAPACITY / 2;
+        nodes[head] = Arguments.checkNull(start, "start");
+        size = 1;
+    }
+
+    /**
+     * Creates a copy of the given path, sharing its arrays until one of the paths
+     * is modified.
+     */
+    ArrayPath(ArrayPath<N,E> path) {
+        size = path.size;
+        head = path.head;
+        nodes = path.nodes;
+        edges = path.edges;
+        shared = true;
+        if(!path.shared) path.shared = true;
+    }
+
+    /**
+     * Copies the arrays if they are shared with another path. Has to be called
+     * before modifying the arrays.
+     */
+    private void unshare() {
+        if(!shared) return;
+        nodes = nodes.clone();
+        edges = edges.clone();
+        shared = false;
+    }
+
+    /**
+     * Called after an edge was added to the path.
+     */
+    void added(E edge) { }
+
+    /**
+     * Called after an edge was removed from the path.
+     */
+    void removed(E edge) { }
+
+    /**
+     * Adds the given node and the edge from it to the current first node to the
+     * front of the path, without checking whether the node is already on the path.
+     * Used to build paths backwards from their last node.
+     */
+    void addFirst(N node, E edge) {
+        if(head == 0) grow(true);
+        else unshare();
+        nodes[--head] = node;
+        edges[head] = edge;
+        size++;
+        if(index != null) index.put(node, head + origin);
+        added(edge);
+    }
+
+    private void addLast(N node, E edge) {
+        if(head + size == nodes.length) grow(false);
+        else unshare();
+        nodes[head + size] = node;
+        edges[head + size - 1] = edge;
+        size++;
+        if(index != null) index.put(node, head + size - 1 + origin);
+        added(edge);
+    }
+
+    /**
+     * Reallocates the arrays with twice the capacity, with the new space at the
+     * front or the back.
+     */
+    private void grow(boolean front) {
+        int capacity = nodes.length * 2;
+        int newHead = front ? head + capacity - nodes.length : head;
+        Object[] newNodes = new Object[capacity], newEdges = new Object[capacity];
+        System.arraycopy(nodes, head, newNodes, newHead, size);
+        System.arraycopy(edges, head, newEdges, newHead, size - 1);
+        origin -= newHead - head;
+        nodes = newNodes;
+        edges = newEdges;
+        head = newHead;
+        shared = false;
+    }
+
+    /**
+     * Inserts the node at the given node index and the edge at the given edge
+     * index, shifting the following nodes and edges back.
+     */
+    private void insert(int nodeIndex, N node, int edgeIndex, E edge) {
+        if(nodeIndex == 0 && edgeIndex == 0) {
+            addFirst(node, edge);
+            return;
+        }
+        if(nodeIndex == size) {
+            addLast(node, edge);
+            return;
+        }
+        if(head + size == nodes.length) grow(false);
+        else unshare();
+        int n = head + nodeIndex, e = head + edgeIndex;
+        System.arraycopy(nodes, n, nodes, n + 1, size - nodeIndex);
+        System.arraycopy(edges, e, edges, e + 1, size - 1 - edgeIndex);
+        nodes[n] = node;
+        edges[e] = edge;
+        size++;
+        index = null;
+        added(edge);
+    }
+
+    private Map<Object,Integer> index() {
+        if(index != null) return index;
+        Map<Object,Integer> index = new HashMap<>(size * 4 / 3 + 1);
+        for(int i=head; i<head+size; i++)
+            index.put(nodes[i], i + origin);
+        return this.index = index;
+    }
+
+    private void checkNode(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index);
     }
 
-    ArrayPath(List<N> nodes, List<E> edges) {
-        nodesSet.addAll(nodes);
-        this.nodes.addAll(nodes);
-        this.edges.addAll(edges);
+    private void checkEdge(int index) {
+        if(index < 0 || index >= size - 1)
+            throw new IndexOutOfBoundsException(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private N node(int index) {
+        return (N) nodes[head + index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private E edgeAt(int index) {
+        return (E) edges[head + index];
     }
 
     @Override
     public boolean append(N node, E edge) {
-        if(!nodesSet.add(Arguments.checkNull(node, "node"))) return false;
-        nodes.add(node);
-        edges.add(edge);
-        return false;
+        if(contains(Arguments.checkNull(node, "node"))) return false;
+        addLast(node, edge);
+        return true;
     }
 
     @Override
     public boolean insertBefore(Object after, N node, E edge) {
-        //noinspection SuspiciousMethodCalls
-        return insertBefore(nodes.indexOf(Arguments.checkNull(after, "after")), node, edge);
+        return insertBefore(indexOf(Arguments.checkNull(after, "after")), node, edge);
     }
 
     @Override
     public boolean insertBefore(int index, N node, E edge) {
         Arguments.checkNull(node, "node");
-        if(index < 0 || index >= nodes.size())
-            throw new IndexOutOfBoundsException(index);
-        if(!nodesSet.add(node)) return false;
-        nodes.add(index, node);
-        edges.add(index, edge);
+        checkNode(index);
+        if(contains(node)) return false;
+        insert(index, node, index, edge);
         return true;
     }
 
     @Override
     public boolean insertAfter(Object after, N node, E edge) {
-        //noinspection SuspiciousMethodCalls
-        return insertAfter(nodes.indexOf(Arguments.checkNull(after, "after")), node, edge);
+        return insertAfter(indexOf(Arguments.checkNull(after, "after")), node, edge);
     }
 
     @Override
     public boolean insertAfter(int index, N node, E edge) {
         Arguments.checkNull(node, "node");
-        if(index < 0 || index >= nodes.size())
-            throw new IndexOutOfBoundsException(index);
-        if(!nodesSet.add(node)) return false;
-        nodes.add(index+1, node);
-        edges.add(index, edge);
+        checkNode(index);
+        if(contains(node)) return false;
+        insert(index+1, node, index, edge);
         return true;
     }
 
@@ -85,164 +242,207 @@ public class ArrayPath<N,E> implements Path<N,E> {
     public boolean set(@NotNull Object old, @NotNull N now) {
         Arguments.checkNull(old, "old");
         Arguments.checkNull(now, "now");
-        //noinspection SuspiciousMethodCalls
-        return set(nodes.indexOf(old), now);
+        return set(indexOf(old), now);
     }
 
     @Override
     public boolean set(int index, N node) {
         Arguments.checkNull(node, "node");
-        if(index < 0 || index >= nodes.size())
-            throw new IndexOutOfBoundsException(index);
-        if(!nodesSet.add(node)) return false;
-        nodesSet.remove(nodes.set(index, node));
+        checkNode(index);
+        if(contains(node)) return false;
+        unshare();
+        Object old = nodes[head + index];
+        nodes[head + index] = node;
+        if(this.index != null)
+            this.index.put(node, this.index.remove(old));
         return true;
     }
 
     @Override
     public E setEdgeBefore(Object node, E edge) {
-        //noinspection SuspiciousMethodCalls
-        return setEdgeBefore(nodes.indexOf(Arguments.checkNull(node, "node")), edge);
+        return setEdgeBefore(indexOf(Arguments.checkNull(node, "node")), edge);
     }
 
     @Override
     public E setEdgeBefore(int index, E edge) {
-        if(index <= 0 || index < edges.size())
+        if(index <= 0 || index >= size)
             throw new IndexOutOfBoundsException(index);
-        return edges.set(index-1, edge);
+        return setEdge(index-1, edge);
     }
 
     @Override
     public E setEdgeAfter(Object node, E edge) {
-        //noinspection SuspiciousMethodCalls
-        return setEdgeAfter(nodes.indexOf(Arguments.checkNull(node, "node")), edge);
+        return setEdgeAfter(indexOf(Arguments.checkNull(node, "node")), edge);
     }
 
     @Override
     public E setEdgeAfter(int index, E edge) {
-        if(index < 0 || index <= edges.size())
-            throw new IndexOutOfBoundsException(index);
-        return edges.set(index, edge);
+        checkEdge(index);
+        return setEdge(index, edge);
+    }
+
+    private E setEdge(int index, E edge) {
+        unshare();
+        E old = edgeAt(index);
+        edges[head + index] = edge;
+        removed(old);
+        added(edge);
+        return old;
     }
 
-    @SuppressWarnings("SuspiciousMethodCalls")
     @Override
     public boolean remove(Object node) {
-        if(!nodesSet.remove(Arguments.checkNull(node, "node"))) return false;
-        int index = nodes.indexOf(node);
-        nodes.remove(index);
-        edges.remove(Math.max(0, index-1));
+        int index = indexOf(Arguments.checkNull(node, "node"));
+        if(index < 0) return false;
+        remove(index);
         return true;
     }
 
     @Override
     public N remove(int index) {
-        if(edges.isEmpty()) throw new IllegalStateException("Path cannot be empty");
-        if(index < 0 || index >= nodes.size())
-            throw new IndexOutOfBoundsException(index);
-        N node = nodes.remove(index);
-        nodesSet.remove(node);
-        edges.remove(Math.max(0, index-1));
+        if(size == 1) throw new IllegalStateException("Path cannot be empty");
+        checkNode(index);
+        unshare();
+        N node = node(index);
+        int edgeIndex = Math.max(0, index-1);
+        E edge = edgeAt(edgeIndex);
+        if(index == 0) {
+            nodes[head] = edges[head] = null;
+            head++;
+        }
+        else {
+            int n = head + index, e = head + edgeIndex;
+            System.arraycopy(nodes, n + 1, nodes, n, size - index - 1);
+            System.arraycopy(edges, e + 1, edges, e, size - edgeIndex - 2);
+            nodes[head + size - 1] = edges[head + size - 2] = null;
+            if(index != size - 1) this.index = null;
+        }
+        size--;
+        if(this.index != null) this.index.remove(node);
+        removed(edge);
         return node;
     }
 
     @Override
     public N first() {
-        return nodes.get(0);
+        return node(0);
     }
 
     @Override
     public N last() {
-        return nodes.get(nodes.size()-1);
+        return node(size-1);
     }
 
     @Override
     public N get(int index) {
-        return nodes.get(index);
+        checkNode(index);
+        return node(index);
     }
 
     @Override
     public E getEdgeBefore(int index) {
-        if(index <= 0 || index > edges.size())
+        if(index <= 0 || index >= size)
             throw new IndexOutOfBoundsException(index);
-        return edges.get(index-1);
+        return edgeAt(index-1);
     }
 
     @Override
     public E getEdgeAfter(int index) {
-        return edges.get(index);
+        checkEdge(index);
+        return edgeAt(index);
     }
 
     @Override
     public int indexOf(Object node) {
-        //noinspection SuspiciousMethodCalls
-        return nodes.indexOf(Arguments.checkNull(node, "node"));
+        Integer position = index().get(Arguments.checkNull(node, "node"));
+        return position != null ? position - origin - head : -1;
     }
 
     @Override
     public int indexOfEdge(Object edge) {
-        //noinspection SuspiciousMethodCalls
-        return edges.indexOf(edge);
+        for(int i=0; i<size-1; i++)
+            if(Objects.equals(edges[head + i], edge)) return i;
+        return -1;
     }
 
     @Override
     public int lastIndexOfEdge(Object edge) {
-        //noinspection SuspiciousMethodCalls
-        return edges.lastIndexOf(edge);
+        for(int i=size-2; i>=0; i--)
+            if(Objects.equals(edges[head + i], edge)) return i;
+        return -1;
     }
 
     @Override
     public IterableMap<N,E> adj(Object node) {
-        //noinspection SuspiciousMethodCalls
-        if(!nodesSet.contains(Arguments.checkNull(node, "node"))) return null;
-        int index = indexOf(node);
-        if(index == edges.size()) return IterableMap.of(Map.of());
-        return IterableMap.of(Map.of(nodes.get(index+1), edges.get(index)));
+        int index = indexOf(Arguments.checkNull(node, "node"));
+        if(index < 0) return null;
+        if(index == size-1) return IterableMap.of(Map.of());
+        return IterableMap.of(Collections.singletonMap(node(index+1), edgeAt(index)));
     }
 
     @Override
     public Map<N, ? extends Map<N, E>> adjacencyList() {
-        Map<N,Map<N,E>> adj = new HashMap<>();
-        for(int i=0; i<edges.size(); i++)
-            adj.put(nodes.get(i), Map.of(nodes.get(i+1), edges.get(i)));
-        adj.put(nodes.get(edges.size()), Map.of());
+        Map<N,Map<N,E>> adj = new HashMap<>(size * 4 / 3 + 1);
+        for(int i=0; i<size-1; i++)
+            adj.put(node(i), Collections.singletonMap(node(i+1), edgeAt(i)));
+        adj.put(last(), Map.of());
         return adj;
     }
 
     @Override
     public E edge(@NotNull Object a, @NotNull Object b) {
-        Arguments.checkNull(a, "a");
         Arguments.checkNull(b, "b");
-        if(!contains(a) || !contains(b)) return null;
-        int aIndex = indexOf(a);
-        return aIndex < edges.size() ? edges.get(aIndex) : null;
+        int aIndex = indexOf(Arguments.checkNull(a, "a"));
+        return aIndex >= 0 && aIndex < size-1 && node(aIndex+1).equals(b) ? edgeAt(aIndex) : null;
     }
 
     @Override
     public boolean connected(@NotNull Object a, @NotNull Object b) {
-        Arguments.checkNull(a, "a");
         Arguments.checkNull(b, "b");
-        if(!contains(a) || !contains(b)) return false;
-        int aIndex = indexOf(a);
-        return aIndex < edges.size() && nodes.get(aIndex).equals(b);
+        int aIndex = indexOf(Arguments.checkNull(a, "a"));
+        return aIndex >= 0 && aIndex < size-1 && node(aIndex+1).equals(b);
     }
 
     @Override
     public Set<N> nodes() {
-        return new LinkedHashSet<>(nodes);
+        return new LinkedHashSet<>(nodesView());
     }
 
     @Override
     public @NotNull Set<? extends Edge<N, E>> edges() {
         Set<Edge<N,E>> edges = new LinkedHashSet<>();
-        for(int i=0; i<this.edges.size(); i++)
-            edges.add(new Edge<>(nodes.get(i), nodes.get(i+1), this.edges.get(i)));
+        for(int i=0; i<size-1; i++)
+            edges.add(new Edge<>(node(i), node(i+1), edgeAt(i)));
         return edges;
     }
 
     @Override
     public @NotNull List<E> weights() {
-        return edgesView != null ? edgesView : (edgesView = Utils.view(edges));
+        return edgesView != null ? edgesView : (edgesView = new AbstractList<>() {
+            @Override
+            public E get(int index) {
+                return getEdgeAfter(index);
+            }
+
+            @Override
+            public int size() {
+                return size - 1;
+            }
+        });
+    }
+
+    private List<N> nodesView() {
+        return nodesView != null ? nodesView : (nodesView = new AbstractList<>() {
+            @Override
+            public N get(int index) {
+                return ArrayPath.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        });
     }
 
     @Override
@@ -273,6 +473,12 @@ public class ArrayPath<N,E> implements Path<N,E> {
                 return first();
             }
 
+            @Override
+            public N parent(@NotNull Object node) {
+                int index = indexOf(node);
+                return index > 0 ? node(index - 1) : null;
+            }
+
             @Override
             public @NotNull Tree<N, E> clone() {
                 return this; // View, cannot be changed anyways
@@ -373,18 +579,17 @@ public class ArrayPath<N,E> implements Path<N,E> {
 
     @Override
     public boolean contains(Object node) {
-        //noinspection SuspiciousMethodCalls
-        return nodesSet.contains(node);
+        return node != null && indexOf(node) >= 0;
     }
 
     @Override
     public int size() {
-        return nodes.size();
+        return size;
     }
 
     @Override
     public int edgeCount() {
-        return edges.size();
+        return size - 1;
     }
 
     @Override
@@ -394,11 +599,13 @@ public class ArrayPath<N,E> implements Path<N,E> {
 
     @Override
     public boolean clear() {
-        edges.clear();
-        nodes.subList(1, nodes.size()).clear();
-        nodesSet.clear();
-        nodesSet.add(nodes.get(0));
-        return false;
+        if(size == 1) return false;
+        unshare();
+        Arrays.fill(nodes, head + 1, head + size, null);
+        Arrays.fill(edges, head, head + size - 1, null);
+        size = 1;
+        index = null;
+        return true;
     }
 
     @Override
@@ -408,19 +615,19 @@ public class ArrayPath<N,E> implements Path<N,E> {
 
     @Override
     public void forEach(EdgeConsumer<? super N, ? super E> action) {
-        for(int i=0; i<edges.size(); i++)
-            action.accept(nodes.get(i), nodes.get(i+1), edges.get(i));
+        for(int i=0; i<size-1; i++)
+            action.accept(node(i), node(i+1), edgeAt(i));
     }
 
     @Override
     public @NotNull ArrayPath<N,E> clone() {
-        return new ArrayPath<>(nodes, edges);
+        return new ArrayPath<>(this);
     }
 
     @NotNull
     @Override
     public Iterator<N> iterator() {
-        return nodes.iterator();
+        return Collections.unmodifiableList(nodesView()).iterator();
     }
 
     @Override
@@ -428,24 +635,26 @@ public class ArrayPath<N,E> implements Path<N,E> {
         if(this == o) return true;
         if(!(o instanceof ArrayPath)) return false;
         ArrayPath<?, ?> arrayPath = (ArrayPath<?, ?>) o;
-        return nodes.equals(arrayPath.nodes) && edges.equals(arrayPath.edges);
+        return size == arrayPath.size &&
+               Arrays.equals(nodes, head, head + size, arrayPath.nodes, arrayPath.head, arrayPath.head + size) &&
+               Arrays.equals(edges, head, head + size - 1, arrayPath.edges, arrayPath.head, arrayPath.head + size - 1);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(nodes, edges);
+        return Objects.hash(nodesView(), weights());
     }
 
     @Override
     public String toString() {
-        StringBuilder str = new StringBuilder().append(nodes.get(0));
-        for(int i=0; i<edges.size(); i++) {
+        StringBuilder str = new StringBuilder().append(first());
+        for(int i=0; i<size-1; i++) {
             str.append(" ----");
-            String e = Objects.toString(edges.get(i));
+            String e = Objects.toString(edgeAt(i));
             if(e.startsWith("-")) str.append(' ');
             str.append(e);
             if(e.endsWith("_")) str.append(' ');
-            str.append("---> ").append(nodes.get(i+1));
+            str.append("---> ").append(node(i+1));
         }
         return str.toString();
     }
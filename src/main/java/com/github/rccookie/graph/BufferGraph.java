@@ -0,0 +1,339 @@
+package com.github.rccookie.graph;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base class for read-only graphs whose edges are stored in a {@link LargeBuffer}
+ * in compressed sparse row format: the edge offsets of each node as longs, the
+ * targets of all edges as ints, sorted by target within each row, and the edge
+ * lengths as doubles. Subclasses define how nodes are mapped to indices.
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ */
+abstract class BufferGraph<N> implements IndexedGraph<N,Double> {
+
+    final LargeBuffer buffer;
+    final boolean directed;
+    final int size;
+    final long edges;
+    private final long offsetsPos;
+    private final long targetsPos;
+    private final long weightsPos;
+
+    private Set<N> nodesView = null;
+    private Map<N, Map<N,Double>> adjacencyView = null;
+
+    BufferGraph(LargeBuffer buffer, boolean directed, int size, long edges, long offsetsPos, long targetsPos, long weightsPos) {
+        this.buffer = buffer;
+        this.directed = directed;
+        this.size = size;
+        this.edges = edges;
+        this.offsetsPos = offsetsPos;
+        this.targetsPos = targetsPos;
+        this.weightsPos = weightsPos;
+    }
+
+    @Override
+    public long edgeStart(int node) {
+        return buffer.getLong(offsetsPos + 8L * node);
+    }
+
+    @Override
+    public long edgeEnd(int node) {
+        return buffer.getLong(offsetsPos + 8L * (node + 1));
+    }
+
+    @Override
+    public int target(long edge) {
+        return buffer.getInt(targetsPos + 4 * edge);
+    }
+
+    @Override
+    public Double edgeValue(long edge) {
+        return length(edge);
+    }
+
+    /**
+     * Returns the length of the given edge, without boxing it.
+     *
+     * @param edge The index of the edge
+     * @return The length of the edge
+     */
+    public double length(long edge) {
+        return buffer.getDouble(weightsPos + 8 * edge);
+    }
+
+    /**
+     * Returns the index of the edge from node <code>a</code> to node <code>b</code>,
+     * using a binary search in the row of <code>a</code>.
+     */
+    private long find(int a, int b) {
+        long low = edgeStart(a), high = edgeEnd(a) - 1;
+        while(low <= high) {
+            long mid = (low + high) >>> 1;
+            int t = target(mid);
+            if(t < b) low = mid + 1;
+            else if(t > b) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public IterableMap<N,Double> adj(Object node) {
+        int i = indexOf(node);
+        return i < 0 ? null : IterableMap.of(new Row(i));
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,Double>> adjacencyList() {
+        return adjacencyView != null ? adjacencyView : (adjacencyView = new AbstractMap<>() {
+            @Override
+            public Map<N,Double> get(Object key) {
+                int i = indexOf(key);
+                return i < 0 ? null : new Row(i);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return indexOf(key) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @NotNull
+            @Override
+            public Set<Entry<N, Map<N,Double>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<N, Map<N,Double>>> iterator() {
+                        return new Iterator<>() {
+                            int i = 0;
+                            @Override
+                            public boolean hasNext() {
+                                return i < size;
+                            }
+
+                            @Override
+                            public Entry<N, Map<N,Double>> next() {
+                                if(i >= size) throw new NoSuchElementException();
+                                return new SimpleImmutableEntry<>(node(i), new Row(i++));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+        });
+    }
+
+    @Override
+    public Double edge(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b);
+        if(i < 0 || j < 0) return null;
+        long e = find(i, j);
+        return e < 0 ? null : length(e);
+    }
+
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b);
+        return i >= 0 && j >= 0 && find(i, j) >= 0;
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return nodesView != null ? nodesView : (nodesView = new AbstractSet<>() {
+            @Override
+            public Iterator<N> iterator() {
+                return BufferGraph.this.iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return indexOf(o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        });
+    }
+
+    @Override
+    public @NotNull Set<? extends Edge<N,Double>> edges() {
+        Set<Edge<N,Double>> edges = new HashSet<>();
+        forEach((a,b,e) -> edges.add(new Edge<>(a,b,e)));
+        return edges;
+    }
+
+    /**
+     * Returns a read-only view of the lengths of all edges, ordered by edge index.
+     *
+     * @return The edge lengths
+     */
+    @Override
+    public @NotNull Collection<Double> weights() {
+        return new AbstractList<>() {
+            @Override
+            public Double get(int index) {
+                Objects.checkIndex(index, size());
+                return length(index);
+            }
+
+            @Override
+            public int size() {
+                return edgeCount();
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return indexOf(node) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of edges in this graph, or {@link Integer#MAX_VALUE} if
+     * there are more edges than that. The exact number is given by
+     * <code>edgeEnd(size()-1)</code>.
+     *
+     * @return The number of edges
+     */
+    @Override
+    public int edgeCount() {
+        return (int) Math.min(edges, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super Double> action) {
+        for(int i=0; i<size; i++) {
+            N n = node(i);
+            for(long e=edgeStart(i), end=edgeEnd(i); e<end; e++)
+                action.accept(n, node(target(e)), length(e));
+        }
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        return new Iterator<>() {
+            int i = 0;
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public N next() {
+                if(i >= size) throw new NoSuchElementException();
+                return node(i++);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of edges, with undirected edges counted once, as used by
+     * {@link #toString()}.
+     */
+    String edgeCountString() {
+        return directed ? edges + "" : edges/2 + "(" + edges + ")";
+    }
+
+    /**
+     * Read-only map view of the outgoing edges of a single node.
+     */
+    private class Row extends AbstractMap<N,Double> {
+
+        private final int node;
+
+        Row(int node) {
+            this.node = node;
+        }
+
+        @Override
+        public Double get(Object key) {
+            int j = indexOf(key);
+            if(j < 0) return null;
+            long e = find(node, j);
+            return e < 0 ? null : length(e);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int j = indexOf(key);
+            return j >= 0 && find(node, j) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return degree(node);
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<N,Double>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<N,Double>> iterator() {
+                    return new Iterator<>() {
+                        long e = edgeStart(node);
+                        final long end = edgeEnd(node);
+                        @Override
+                        public boolean hasNext() {
+                            return e < end;
+                        }
+
+                        @Override
+                        public Entry<N,Double> next() {
+                            if(e >= end) throw new NoSuchElementException();
+                            return new SimpleImmutableEntry<>(node(target(e)), length(e++));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return degree(node);
+                }
+            };
+        }
+    }
+
+}
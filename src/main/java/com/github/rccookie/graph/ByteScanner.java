@@ -0,0 +1,257 @@
+package com.github.rccookie.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line based scanner for ASCII text read from a channel. Numbers are parsed
+ * directly from the buffered bytes without creating any objects, only
+ * {@link #nextToken()} and unusual number formats allocate strings.
+ */
+final class ByteScanner {
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private final byte[] bytes = buffer.array();
+    private int position = 0, limit = 0;
+    private boolean eof = false;
+    private long line = 1;
+    private long fills = 0;
+
+    ByteScanner(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns the next byte without consuming it, or <code>-1</code> at the end
+     * of the input.
+     */
+    int peek() throws IOException {
+        if(position == limit && !fill()) return -1;
+        return bytes[position] & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if(position == limit && !fill()) return -1;
+        return bytes[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        if(eof) return false;
+        buffer.clear();
+        int n;
+        do n = channel.read(buffer);
+        while(n == 0);
+        if(n < 0) {
+            eof = true;
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        fills++;
+        return true;
+    }
+
+    /**
+     * Returns the current line number, starting at 1.
+     */
+    long line() {
+        return line;
+    }
+
+    /**
+     * Skips spaces, tabs and carriage returns, but not line breaks.
+     */
+    void skipSpaces() throws IOException {
+        for(int c; (c = peek()) == ' ' || c == '\t' || c == '\r';)
+            position++;
+    }
+
+    /**
+     * Returns whether the rest of the current line contains only whitespace.
+     */
+    boolean endOfLine() throws IOException {
+        skipSpaces();
+        int c = peek();
+        return c == '\n' || c == -1;
+    }
+
+    /**
+     * Returns whether the end of the input has been reached.
+     */
+    boolean eof() throws IOException {
+        return peek() == -1;
+    }
+
+    /**
+     * Skips the rest of the current line, including the line break.
+     */
+    void nextLine() throws IOException {
+        for(int c; (c = read()) != -1;) {
+            if(c == '\n') {
+                line++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next whitespace separated token on the current line.
+     */
+    String nextToken() throws IOException {
+        skipSpaces();
+        StringBuilder token = null;
+        int start = position;
+        while(true) {
+            if(position == limit) {
+                if(token == null) token = new StringBuilder();
+                token.append(new String(bytes, start, position - start, StandardCharsets.UTF_8));
+                if(!fill()) {
+                    // The token is complete, don't append the collected bytes again
+                    start = position;
+                    break;
+                }
+                start = 0;
+            }
+            int c = bytes[position];
+            if(c == ' ' || c == '\t' || c == '\r' || c == '\n') break;
+            position++;
+        }
+        String s = token == null ? new String(bytes, start, position - start, StandardCharsets.UTF_8)
+                : token.append(new String(bytes, start, position - start, StandardCharsets.UTF_8)).toString();
+        if(s.isEmpty()) throw error("Expected token");
+        return s;
+    }
+
+    /**
+     * Reads the next integer on the current line.
+     */
+    long nextLong() throws IOException {
+        skipSpaces();
+        boolean negative = false;
+        int c = peek();
+        if(c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+            c = peek();
+        }
+        if(c < '0' || c > '9') throw error("Expected integer");
+        long value = 0;
+        while(c >= '0' && c <= '9') {
+            if(value > (Long.MAX_VALUE - (c - '0')) / 10) throw error("Integer too large");
+            value = value * 10 + (c - '0');
+            position++;
+            c = peek();
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next integer on the current line, which must be in int range.
+     */
+    int nextInt() throws IOException {
+        long value = nextLong();
+        if(value != (int) value) throw error("Integer too large");
+        return (int) value;
+    }
+
+    /**
+     * Reads the next decimal number on the current line. Numbers with at most 15
+     * significant digits and a small exponent are parsed exactly without
+     * allocating; other numbers are delegated to {@link Double#parseDouble(String)}.
+     */
+    double nextDouble() throws IOException {
+        skipSpaces();
+        // Make sure the number is not split between two buffer fills
+        if(limit - position < 64 && !eof) compact();
+
+        int start = position;
+        long fills = this.fills;
+        boolean negative = false;
+        int c = peek();
+        if(c == '-' || c == '+') {
+            negative = c == '-';
+            position++;
+            c = peek();
+        }
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false;
+        while(c >= '0' && c <= '9') {
+            any = true;
+            if(digits < 18) {
+                if(mantissa != 0 || c != '0') digits++;
+                mantissa = mantissa * 10 + (c - '0');
+            }
+            else exponent++;
+            position++;
+            c = peek();
+        }
+        if(c == '.') {
+            position++;
+            c = peek();
+            while(c >= '0' && c <= '9') {
+                any = true;
+                if(digits < 18) {
+                    if(mantissa != 0 || c != '0') digits++;
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                }
+                position++;
+                c = peek();
+            }
+        }
+        if(any && (c == 'e' || c == 'E')) {
+            position++;
+            exponent += (int) Math.max(-10000, Math.min(10000, nextLong()));
+            c = peek();
+        }
+        if(any && (c == -1 || c == ' ' || c == '\t' || c == '\r' || c == '\n')
+                && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            return negative ? -value : value;
+        }
+
+        // Slow path for long or special numbers like "Infinity"
+        if(fills != this.fills) throw error("Number too long");
+        position = start;
+        String token = nextToken();
+        try {
+            return Double.parseDouble(token);
+        } catch(NumberFormatException e) {
+            throw error("Expected number");
+        }
+    }
+
+    /**
+     * Moves the remaining bytes to the front of the buffer and reads more input.
+     */
+    private void compact() throws IOException {
+        int remaining = limit - position;
+        System.arraycopy(bytes, position, bytes, 0, remaining);
+        buffer.clear().position(remaining);
+        position = 0;
+        limit = remaining;
+        while(buffer.hasRemaining()) {
+            int n = channel.read(buffer);
+            if(n < 0) {
+                eof = true;
+                break;
+            }
+            limit += n;
+            if(limit - position >= 64) break;
+        }
+    }
+
+    IOException error(String message) {
+        return new IOException(message + " in line " + line);
+    }
+}
@@ -0,0 +1,431 @@
+package com.github.rccookie.graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable array based implementation of {@link IndexedGraph}. The edges are
+ * stored in compressed sparse row format: one array with the targets of all
+ * edges grouped by start node, and one array with the offset of each node's
+ * group. A compact graph is usually created as snapshot of another graph to run
+ * algorithms on it.
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public class CompactGraph<N,E> implements IndexedGraph<N,E> {
+
+    final boolean directed;
+    final Object[] nodes;
+    final Map<N,Integer> index;
+    final int[] offsets;
+    final int[] targets;
+    final Object[] edges;
+
+    private Set<N> nodesView = null;
+    private Map<N, Map<N,E>> adjacencyView = null;
+
+    /**
+     * Creates a new compact graph with the same nodes and edges as the given graph.
+     * The node indices follow the iteration order of the given graph.
+     * <p>The graph is read in a single pass over the nodes and their adjacencies,
+     * so that graphs that may be modified while being read, like a {@link ConcurrentGraph},
+     * can be copied as well. In that case, the copy contains the nodes seen while
+     * iterating, and edges to nodes that were not seen are left out.</p>
+     *
+     * @param graph The graph to copy
+     */
+    @SuppressWarnings("unchecked")
+    public CompactGraph(@NotNull ReadableGraph<? extends N, ? extends E> graph) {
+        Arguments.checkNull(graph, "graph");
+        directed = graph.isDirected();
+
+        int capacity = graph.size();
+        Object[] nodes = new Object[capacity];
+        int[] offsets = new int[capacity + 1];
+        Object[][] edges = { new Object[16], new Object[16] }; // Target nodes and edge values
+        int size = 0, edgeCount = 0;
+        for(N n : graph) {
+            IterableMap<N,E> adj = ((ReadableGraph<N,E>) graph).adj(n);
+            if(adj == null) continue; // Removed meanwhile
+            if(size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(16, 2 * size));
+                offsets = Arrays.copyOf(offsets, nodes.length + 1);
+            }
+            nodes[size] = n;
+            for(Map.Entry<N,E> e : adj.entrySet()) {
+                if(edgeCount == edges[0].length) {
+                    edges[0] = Arrays.copyOf(edges[0], 2 * edgeCount);
+                    edges[1] = Arrays.copyOf(edges[1], 2 * edgeCount);
+                }
+                edges[0][edgeCount] = e.getKey();
+                edges[1][edgeCount++] = e.getValue();
+            }
+            offsets[++size] = edgeCount;
+        }
+
+        this.nodes = size == nodes.length ? nodes : Arrays.copyOf(nodes, size);
+        index = new HashMap<>(size * 4 / 3 + 1);
+        for(int i=0; i<size; i++)
+            index.put((N) nodes[i], i);
+
+        // Resolve the targets, dropping edges to nodes that were added meanwhile
+        int[] targets = new int[edgeCount];
+        int j = 0;
+        for(int i=0; i<size; i++) {
+            int start = offsets[i];
+            offsets[i] = j;
+            for(int k=start; k<offsets[i+1]; k++) {
+                Integer t = index.get(edges[0][k]);
+                if(t == null) continue;
+                targets[j] = t;
+                edges[1][j++] = edges[1][k];
+            }
+        }
+        offsets[size] = j;
+        this.offsets = offsets.length == size + 1 ? offsets : Arrays.copyOf(offsets, size + 1);
+        this.targets = j == edgeCount ? targets : Arrays.copyOf(targets, j);
+        this.edges = Arrays.copyOf(edges[1], j);
+    }
+
+    CompactGraph(boolean directed, Object[] nodes, Map<N,Integer> index, int[] offsets, int[] targets, Object[] edges) {
+        this.directed = directed;
+        this.nodes = nodes;
+        this.index = index;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.edges = edges;
+    }
+
+    @Override
+    public int indexOf(Object node) {
+        Integer i = index.get(node);
+        return i != null ? i : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public N node(int index) {
+        return (N) nodes[index];
+    }
+
+    @Override
+    public long edgeStart(int node) {
+        return offsets[node];
+    }
+
+    @Override
+    public long edgeEnd(int node) {
+        return offsets[node+1];
+    }
+
+    @Override
+    public int target(long edge) {
+        return targets[(int) edge];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E edgeValue(long edge) {
+        return (E) edges[(int) edge];
+    }
+
+    @Override
+    public int degree(int node) {
+        return offsets[node+1] - offsets[node];
+    }
+
+    @Override
+    public IterableMap<N,E> adj(Object node) {
+        int i = indexOf(node);
+        return i < 0 ? null : IterableMap.of(new Row(i));
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,E>> adjacencyList() {
+        return adjacencyView != null ? adjacencyView : (adjacencyView = new AbstractMap<>() {
+            @Override
+            public Map<N,E> get(Object key) {
+                int i = indexOf(key);
+                return i < 0 ? null : new Row(i);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return index.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+
+            @NotNull
+            @Override
+            public Set<Entry<N, Map<N,E>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<N, Map<N,E>>> iterator() {
+                        return new Iterator<>() {
+                            int i = 0;
+                            @Override
+                            public boolean hasNext() {
+                                return i < nodes.length;
+                            }
+
+                            @Override
+                            public Entry<N, Map<N,E>> next() {
+                                if(i >= nodes.length) throw new NoSuchElementException();
+                                return new SimpleImmutableEntry<>(node(i), new Row(i++));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return nodes.length;
+                    }
+                };
+            }
+        });
+    }
+
+    @Override
+    public E edge(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b);
+        if(i < 0 || j < 0) return null;
+        for(int e=offsets[i]; e<offsets[i+1]; e++)
+            if(targets[e] == j) return edgeValue(e);
+        return null;
+    }
+
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        int i = indexOf(a), j = indexOf(b);
+        if(i < 0 || j < 0) return false;
+        for(int e=offsets[i]; e<offsets[i+1]; e++)
+            if(targets[e] == j) return true;
+        return false;
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return nodesView != null ? nodesView : (nodesView = new AbstractSet<>() {
+            @Override
+            public Iterator<N> iterator() {
+                return CompactGraph.this.iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return index.containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+        });
+    }
+
+    @Override
+    public @NotNull Set<? extends Edge<N,E>> edges() {
+        Set<Edge<N,E>> edges = new HashSet<>();
+        forEach((a,b,e) -> edges.add(new Edge<>(a,b,e)));
+        return edges;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public @NotNull Collection<E> weights() {
+        return Collections.unmodifiableList(Arrays.asList((E[]) edges));
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return index.containsKey(node);
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+
+    @Override
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super E> action) {
+        for(int i=0; i<nodes.length; i++)
+            for(int e=offsets[i]; e<offsets[i+1]; e++)
+                action.accept((N) nodes[i], (N) nodes[targets[e]], (E) edges[e]);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        return new Iterator<>() {
+            int i = 0;
+            @Override
+            public boolean hasNext() {
+                return i < nodes.length;
+            }
+
+            @Override
+            public N next() {
+                if(i >= nodes.length) throw new NoSuchElementException();
+                return node(i++);
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of this graph with the nodes indexed in the given order. The
+     * edges of each node are sorted by the new index of their end node, so that
+     * traversals access the node arrays in ascending order.
+     *
+     * @param order The current indices of the nodes in their new order, such that
+     *              node <code>order[i]</code> of this graph becomes node <code>i</code>
+     *              of the new graph
+     * @return A new compact graph with the same nodes and edges in the given order
+     * @throws IllegalArgumentException If the order is not a permutation of the
+     *                                  node indices of this graph
+     * @see Algorithm.NodeOrdering
+     */
+    @NotNull
+    public CompactGraph<N,E> relabel(@NotNull int[] order) {
+        Arguments.checkNull(order, "order");
+        int size = nodes.length;
+        if(order.length != size)
+            throw new IllegalArgumentException("Order contains " + order.length + " nodes, expected " + size);
+        int[] newIndex = new int[size];
+        Arrays.fill(newIndex, -1);
+        for(int i=0; i<size; i++) {
+            int old = order[i];
+            if(old < 0 || old >= size || newIndex[old] >= 0)
+                throw new IllegalArgumentException("Order is not a permutation of the node indices");
+            newIndex[old] = i;
+        }
+
+        Object[] nodes = new Object[size];
+        Map<N,Integer> index = new HashMap<>(size * 4 / 3 + 1);
+        int[] offsets = new int[size + 1];
+        int[] targets = new int[this.targets.length];
+        Object[] edges = new Object[this.edges.length];
+        long[] row = new long[16];
+        for(int i=0; i<size; i++) {
+            int old = order[i];
+            nodes[i] = this.nodes[old];
+            index.put(node(old), i);
+
+            int start = this.offsets[old], degree = this.offsets[old+1] - start;
+            if(degree > row.length) row = new long[degree];
+            for(int j=0; j<degree; j++)
+                row[j] = ((long) newIndex[this.targets[start + j]] << 32) | j;
+            Arrays.sort(row, 0, degree);
+            int offset = offsets[i];
+            for(int j=0; j<degree; j++) {
+                targets[offset + j] = (int) (row[j] >>> 32);
+                edges[offset + j] = this.edges[start + (int) row[j]];
+            }
+            offsets[i+1] = offset + degree;
+        }
+        return new CompactGraph<>(directed, nodes, index, offsets, targets, edges);
+    }
+
+    @Override
+    public String toString() {
+        return (directed ? "Directed compact graph" : "Compact graph") + " with " + size() + " nodes and " + (directed ? edgeCount() : (edgeCount()/2 + "("+edgeCount()+")")) + " edges";
+    }
+
+    /**
+     * Read-only map view of the outgoing edges of a single node.
+     */
+    private class Row extends AbstractMap<N,E> {
+
+        private final int node;
+
+        Row(int node) {
+            this.node = node;
+        }
+
+        private int find(Object key) {
+            int j = indexOf(key);
+            if(j < 0) return -1;
+            for(int e=offsets[node]; e<offsets[node+1]; e++)
+                if(targets[e] == j) return e;
+            return -1;
+        }
+
+        @Override
+        public E get(Object key) {
+            int e = find(key);
+            return e < 0 ? null : edgeValue(e);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return degree(node);
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<N,E>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<N,E>> iterator() {
+                    return new Iterator<>() {
+                        int e = offsets[node];
+                        @Override
+                        public boolean hasNext() {
+                            return e < offsets[node+1];
+                        }
+
+                        @Override
+                        public Entry<N,E> next() {
+                            if(e >= offsets[node+1]) throw new NoSuchElementException();
+                            return new SimpleImmutableEntry<>(node(targets[e]), edgeValue(e++));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return degree(node);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package com.github.rccookie.graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thread-safe implementation of {@link Graph} based on {@link ConcurrentHashMap}s.
+ * Reading operations never block and can run concurrently with modifications,
+ * iterating over the graph or the adjacency of a node is weakly consistent and
+ * never throws a {@link java.util.ConcurrentModificationException}.
+ * <p>Connecting or disconnecting nodes locks the two nodes involved (using lock
+ * striping), so that both directions of an undirected edge are always changed
+ * atomically. Operations that affect many nodes, like {@link #remove(Object)},
+ * {@link #set(Object, Object)} or {@link #clear()}, lock the whole graph for
+ * writing, but do not block readers either.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public class ConcurrentGraph<N,E> implements Graph<N,E> {
+
+    /**
+     * Placeholder for <code>null</code> edges, which are not permitted as values in
+     * concurrent hash maps.
+     */
+    private static final Object NULL = new Object();
+
+    final boolean directed;
+    final ConcurrentHashMap<N, ConcurrentHashMap<N,Object>> nodes = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks;
+
+    private Set<N> nodesView = null;
+    private Map<N, Map<N,E>> adjacencyView = null;
+
+    /**
+     * Creates a new, empty, directed concurrent graph.
+     */
+    public ConcurrentGraph() {
+        this(true);
+    }
+
+    /**
+     * Creates a new, empty concurrent graph.
+     *
+     * @param directed Whether the graph should be directed
+     */
+    public ConcurrentGraph(boolean directed) {
+        this.directed = directed;
+        int stripes = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        locks = new ReentrantLock[stripes];
+        for(int i=0; i<stripes; i++)
+            locks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Creates a new concurrent graph with the same nodes and edges as the
+     * given graph. It is directed if and only if the given graph is directed.
+     *
+     * @param graph The graph to copy
+     */
+    public ConcurrentGraph(@NotNull ReadableGraph<? extends N, ? extends E> graph) {
+        this(Arguments.checkNull(graph, "graph").isDirected());
+        for(N n : graph) add(n);
+        for(Edge<? extends N, ? extends E> e : graph.edges())
+            connect(e.a, e.b, e.value);
+    }
+
+    private static Object mask(Object edge) {
+        return edge != null ? edge : NULL;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E unmask(Object edge) {
+        return edge != NULL ? (E) edge : null;
+    }
+
+    private int stripe(Object node) {
+        int h = node.hashCode();
+        return (h ^ (h >>> 16)) & (locks.length - 1);
+    }
+
+    /**
+     * Locks the stripes of the two given nodes in a fixed order to prevent deadlocks.
+     */
+    private void lock(Object a, Object b) {
+        int i = stripe(a), j = stripe(b);
+        locks[Math.min(i,j)].lock();
+        if(i != j) locks[Math.max(i,j)].lock();
+    }
+
+    private void unlock(Object a, Object b) {
+        int i = stripe(a), j = stripe(b);
+        if(i != j) locks[Math.max(i,j)].unlock();
+        locks[Math.min(i,j)].unlock();
+    }
+
+    private void lockAll() {
+        for(ReentrantLock lock : locks) lock.lock();
+    }
+
+    private void unlockAll() {
+        for(int i=locks.length-1; i>=0; i--) locks[i].unlock();
+    }
+
+    @Override
+    public boolean add(@NotNull N node) {
+        return nodes.putIfAbsent(Arguments.checkNull(node, "node"), new ConcurrentHashMap<>()) == null;
+    }
+
+    @Override
+    public boolean remove(@NotNull Object node) {
+        lockAll();
+        try {
+            if(nodes.remove(node) == null) return false;
+            for(Map<N,Object> adj : nodes.values())
+                adj.remove(node);
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean set(@NotNull Object old, @NotNull N now) {
+        Arguments.checkNull(old, "old");
+        Arguments.checkNull(now, "now");
+        lockAll();
+        try {
+            if(!contains(old) || old.equals(now)) return false;
+            add(now);
+            nodes.forEach((n,adj) -> {
+                Object e = adj.get(old);
+                if(e != null && !n.equals(old)) adj.put(now, e);
+            });
+            //noinspection SuspiciousMethodCalls
+            nodes.get(old).forEach((n,e) -> connect(now, n.equals(old) ? now : n, unmask(e)));
+            remove(old);
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public boolean join(@NotNull Object a, @NotNull Object b, @NotNull N into) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        Arguments.checkNull(into, "into");
+        lockAll();
+        try {
+            if(a.equals(b) || a.equals(into) || !contains(a))
+                return set(b, into);
+            if(b.equals(into) || !contains(b))
+                return set(a, into);
+
+            add(into);
+            nodes.forEach((n,adj) -> {
+                Object e = adj.get(b);
+                if(e == null) e = adj.get(a);
+                if(e != null) adj.put(into, e);
+            });
+            nodes.get(a).forEach((n,e) -> connect(into, n, unmask(e)));
+            nodes.get(b).forEach((n,e) -> connect(into, n, unmask(e)));
+            remove(a);
+            remove(b);
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public E connect(@NotNull N a, @NotNull N b, E edge) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        lock(a, b);
+        try {
+            Map<N,Object> adjB = nodes.computeIfAbsent(b, n -> new ConcurrentHashMap<>());
+            if(!directed)
+                adjB.put(a, mask(edge));
+            return unmask(nodes.computeIfAbsent(a, n -> new ConcurrentHashMap<>()).put(b, mask(edge)));
+        } finally {
+            unlock(a, b);
+        }
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public E disconnect(@NotNull Object a, @NotNull Object b) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        lock(a, b);
+        try {
+            Map<N,Object> adj = nodes.get(a);
+            if(adj == null) return null;
+            Object edge = adj.remove(b);
+            if(!directed && (adj = nodes.get(b)) != null)
+                adj.remove(a);
+            return unmask(edge);
+        } finally {
+            unlock(a, b);
+        }
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public boolean disconnectAll(@NotNull Object node) {
+        lockAll();
+        try {
+            Map<N,Object> adj = nodes.get(node);
+            if(adj == null || adj.isEmpty()) return false;
+            if(!directed)
+                for(N n : adj.keySet())
+                    if(!n.equals(node))
+                        nodes.get(n).remove(node);
+            adj.clear();
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        return nodes.keySet().containsAll(c);
+    }
+
+    @Override
+    public boolean addAll(@NotNull Collection<? extends N> c) {
+        boolean diff = false;
+        for(N n : c) diff |= add(n);
+        return diff;
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) {
+        lockAll();
+        try {
+            Set<Object> remove = new HashSet<>();
+            for(N n : this)
+                if(!c.contains(n))
+                    remove.add(n);
+            return removeAll(remove);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) {
+        lockAll();
+        try {
+            boolean diff = false;
+            for(Object o : c) diff |= remove(o);
+            return diff;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return nodesView != null ? nodesView : (nodesView = Collections.unmodifiableSet(nodes.keySet()));
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public IterableMap<N,E> adj(Object node) {
+        ConcurrentHashMap<N,Object> adj = nodes.get(node);
+        return adj != null ? IterableMap.of(new AdjView<>(adj)) : null;
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,E>> adjacencyList() {
+        return adjacencyView != null ? adjacencyView : (adjacencyView = new AbstractMap<>() {
+            @Override
+            public Map<N,E> get(Object key) {
+                //noinspection SuspiciousMethodCalls
+                ConcurrentHashMap<N,Object> adj = nodes.get(key);
+                return adj != null ? new AdjView<>(adj) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return nodes.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return nodes.size();
+            }
+
+            @NotNull
+            @Override
+            public Set<Entry<N, Map<N,E>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<N, Map<N,E>>> iterator() {
+                        Iterator<Entry<N, ConcurrentHashMap<N,Object>>> it = nodes.entrySet().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public Entry<N, Map<N,E>> next() {
+                                Entry<N, ConcurrentHashMap<N,Object>> e = it.next();
+                                return new SimpleImmutableEntry<>(e.getKey(), new AdjView<>(e.getValue()));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return nodes.size();
+                    }
+                };
+            }
+        });
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public E edge(@NotNull Object a, @NotNull Object b) {
+        Map<N,Object> adj = nodes.get(a);
+        return adj != null ? unmask(adj.get(b)) : null;
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        Map<N,Object> adj = nodes.get(a);
+        return adj != null && adj.containsKey(b);
+    }
+
+    @Override
+    public @NotNull Set<? extends Edge<N,E>> edges() {
+        Set<Edge<N,E>> edges = new HashSet<>();
+        forEach((a,b,e) -> edges.add(new Edge<>(a,b,e)));
+        return edges;
+    }
+
+    @Override
+    public @NotNull Collection<E> weights() {
+        Collection<E> weights = new ArrayList<>();
+        for(Map<N,Object> adj : nodes.values())
+            for(Object e : adj.values())
+                weights.add(unmask(e));
+        return weights;
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        //noinspection SuspiciousMethodCalls
+        return nodes.containsKey(node);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        Iterator<N> it = nodes.keySet().iterator();
+        return new Iterator<>() {
+            N last = null;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public N next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                if(last == null) throw new IllegalStateException();
+                ConcurrentGraph.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Object @NotNull [] toArray() {
+        return nodes.keySet().toArray();
+    }
+
+    @NotNull
+    @Override
+    public <T> T @NotNull [] toArray(@NotNull T @NotNull [] a) {
+        return nodes.keySet().toArray(a);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        int count = 0;
+        for(Map<N,Object> adj : nodes.values())
+            count += adj.size();
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        lockAll();
+        try {
+            nodes.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super E> action) {
+        nodes.forEach((n,adj) -> adj.forEach((m,e) -> action.accept(n,m,unmask(e))));
+    }
+
+    /**
+     * Returns a copy of this graph. The graph is locked for writing while it is
+     * being copied, so the copy represents a consistent state.
+     *
+     * @return A copy of this graph
+     */
+    @Override
+    public @NotNull ConcurrentGraph<N,E> clone() {
+        ConcurrentGraph<N,E> clone = newInstance();
+        lockAll();
+        try {
+            nodes.forEach((n,adj) -> clone.nodes.put(n, new ConcurrentHashMap<>(adj)));
+        } finally {
+            unlockAll();
+        }
+        return clone;
+    }
+
+    @Override
+    public @NotNull ConcurrentGraph<N,E> newInstance() {
+        return new ConcurrentGraph<>(directed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof Graph)) return false;
+        Graph<?,?> graph = (Graph<?,?>) o;
+        return directed == graph.isDirected() && adjacencyList().equals(graph.adjacencyList());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(directed, adjacencyList());
+    }
+
+    @Override
+    public String toString() {
+        int edges = edgeCount();
+        return (directed ? "Directed concurrent graph" : "Concurrent graph") + " with " + size() + " nodes and " + (directed ? edges : (edges/2 + "("+edges+")")) + " edges";
+    }
+
+    /**
+     * Read-only view of an adjacency map that replaces the placeholder for
+     * <code>null</code> edges.
+     */
+    private static final class AdjView<N,E> extends AbstractMap<N,E> {
+
+        private final ConcurrentHashMap<N,Object> adj;
+
+        AdjView(ConcurrentHashMap<N,Object> adj) {
+            this.adj = adj;
+        }
+
+        @Override
+        public E get(Object key) {
+            return unmask(adj.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return adj.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return adj.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return adj.isEmpty();
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super N, ? super E> action) {
+            adj.forEach((n,e) -> action.accept(n, unmask(e)));
+        }
+
+        @NotNull
+        @Override
+        public Set<N> keySet() {
+            return Collections.unmodifiableSet(adj.keySet());
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<N,E>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<N,E>> iterator() {
+                    Iterator<Entry<N,Object>> it = adj.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<N,E> next() {
+                            Entry<N,Object> e = it.next();
+                            return new SimpleImmutableEntry<>(e.getKey(), unmask(e.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return adj.size();
+                }
+            };
+        }
+    }
+}
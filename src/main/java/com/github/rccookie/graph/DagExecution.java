@@ -0,0 +1,154 @@
+package com.github.rccookie.graph;
+
+import java.util.Map;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The result of running a task for each node of a directed acyclic graph
+ * in dependency order, as done by
+ * {@link Graphs#executeTopologically(ReadableGraph, java.util.function.Consumer, java.util.concurrent.Executor)}.
+ * All times are measured using {@link System#nanoTime()} and given in
+ * nanoseconds, relative to the start of the execution.
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ */
+public class DagExecution<N,E> {
+
+    private final ReadableGraph<N,E> graph;
+    private final Object[] nodes;
+    private final Map<N,Integer> index;
+    private final long[] start;
+    private final long[] end;
+    private final int[] releasedBy;
+    private final long startTime;
+    private final long endTime;
+
+    private Path<N,E> criticalPath = null;
+
+    DagExecution(ReadableGraph<N,E> graph, Object[] nodes, Map<N,Integer> index, long[] start, long[] end,
+                 int[] releasedBy, long startTime, long endTime) {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.index = index;
+        this.start = start;
+        this.end = end;
+        this.releasedBy = releasedBy;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    /**
+     * Returns the time it took to run the task of the given node.
+     *
+     * @param node The node to get the latency for
+     * @return The task duration of that node
+     * @throws IllegalArgumentException If the node was not part of the execution
+     */
+    public long latency(@NotNull N node) {
+        int i = indexOf(node);
+        return end[i] - start[i];
+    }
+
+    /**
+     * Returns the time at which the task of the given node was started.
+     *
+     * @param node The node to get the start time for
+     * @return The start time of the node's task
+     * @throws IllegalArgumentException If the node was not part of the execution
+     */
+    public long startTime(@NotNull N node) {
+        return start[indexOf(node)] - startTime;
+    }
+
+    /**
+     * Returns the time at which the task of the given node finished.
+     *
+     * @param node The node to get the finish time for
+     * @return The finish time of the node's task
+     * @throws IllegalArgumentException If the node was not part of the execution
+     */
+    public long finishTime(@NotNull N node) {
+        return end[indexOf(node)] - startTime;
+    }
+
+    /**
+     * Returns the predecessor whose completion released the given node, that is,
+     * the predecessor that finished last.
+     *
+     * @param node The node to get the releasing predecessor for
+     * @return The releasing predecessor, or <code>null</code> if the node has no
+     *         predecessors
+     * @throws IllegalArgumentException If the node was not part of the execution
+     */
+    @SuppressWarnings("unchecked")
+    public N releasedBy(@NotNull N node) {
+        int r = releasedBy[indexOf(node)];
+        return r < 0 ? null : (N) nodes[r];
+    }
+
+    /**
+     * Returns the time from starting the first task to finishing the last one.
+     *
+     * @return The overall execution time
+     */
+    public long totalTime() {
+        return endTime - startTime;
+    }
+
+    /**
+     * Returns the realized critical path of the execution. This is the chain of
+     * nodes that ends with the task that finished last, where each node is the
+     * one that released the next one. Unlike the critical path computed from
+     * estimated costs, this path includes scheduling delays that actually occurred.
+     *
+     * @return The critical path, or <code>null</code> if no node was executed
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public Path<N,E> criticalPath() {
+        if(criticalPath != null || nodes.length == 0) return criticalPath;
+
+        int last = 0;
+        for(int i=1; i<end.length; i++)
+            if(end[i] > end[last]) last = i;
+
+        N next = (N) nodes[last];
+        ArrayPath<N,E> path = new ArrayPath<>(next);
+        for(int i = releasedBy[last]; i >= 0; i = releasedBy[i]) {
+            N current = (N) nodes[i];
+            path.addFirst(current, graph.edge(current, next));
+            next = current;
+        }
+        return criticalPath = path;
+    }
+
+    /**
+     * Returns the summed up latency of all tasks on the {@link #criticalPath() critical path}.
+     * The difference to {@link #totalTime()} is the time spent waiting for scheduling.
+     *
+     * @return The latency of the critical path
+     */
+    public long criticalPathLatency() {
+        Path<N,E> path = criticalPath();
+        if(path == null) return 0;
+        long latency = 0;
+        for(N n : path) latency += latency(n);
+        return latency;
+    }
+
+    private int indexOf(N node) {
+        Integer i = index.get(Arguments.checkNull(node, "node"));
+        if(i == null) throw new IllegalArgumentException("Node was not executed: " + node);
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return "Execution of " + nodes.length + " nodes in " + totalTime() + "ns (critical path latency: " + criticalPathLatency() + "ns)";
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.rccookie.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs a task for each node of a directed acyclic graph as soon as all of its
+ * predecessors have finished. Each node has an atomic counter of unfinished
+ * predecessors; the task that decrements a counter to zero submits the
+ * successor to the executor, so no thread ever waits for or polls the graph.
+ * <p>To detect cycles (which would otherwise never finish), the number of
+ * submitted but not yet finished tasks is tracked. If it drops to zero while
+ * some nodes have not been run, they are part of or behind a cycle. The same
+ * counter delays the completion after a task failed until all tasks that were
+ * already running have finished; tasks that did not start yet are skipped.</p>
+ * <p>Executors may run tasks synchronously on the submitting thread. To avoid one
+ * level of recursion per dependency in that case, nodes submitted from within a
+ * task on the same thread are collected in a work list and run in a loop by the
+ * outermost call.</p>
+ */
+final class DagScheduler<N,E> {
+
+    private final ReadableGraph<N,E> graph;
+    private final Consumer<? super N> task;
+    private final Executor executor;
+
+    private final Object[] nodes;
+    private final Map<N,Integer> index;
+    private final int[][] successors;
+    private final AtomicIntegerArray pending;
+
+    private final long[] start;
+    private final long[] end;
+    private final int[] releasedBy;
+    private long startTime;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger remaining;
+    /**
+     * The first exception thrown by a task or the executor, if any.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    /**
+     * The nodes still to run by the current thread, if it is running nodes.
+     */
+    private final ThreadLocal<IntList> work = new ThreadLocal<>();
+    private final CompletableFuture<DagExecution<N,E>> result = new CompletableFuture<>();
+
+    DagScheduler(ReadableGraph<N,E> graph, Consumer<? super N> task, Executor executor) {
+        if(!graph.isDirected())
+            throw new IllegalArgumentException("Cannot schedule undirected graph");
+        this.graph = graph;
+        this.task = task;
+        this.executor = executor;
+
+        int size = graph.size();
+        nodes = new Object[size];
+        index = new HashMap<>(size * 4 / 3 + 1);
+        int i = 0;
+        for(N n : graph) {
+            nodes[i] = n;
+            index.put(n, i++);
+        }
+
+        successors = new int[size][];
+        int[] inDegrees = new int[size];
+        for(i=0; i<size; i++) {
+            int[] succ = successors[i] = new int[graph.adj(nodes[i]).size()];
+            int j = 0;
+            for(N m : graph.adj(nodes[i]))
+                inDegrees[succ[j++] = index.get(m)]++;
+        }
+        pending = new AtomicIntegerArray(inDegrees);
+
+        start = new long[size];
+        end = new long[size];
+        releasedBy = new int[size];
+        remaining = new AtomicInteger(size);
+    }
+
+    CompletableFuture<DagExecution<N,E>> start() {
+        startTime = System.nanoTime();
+        // Guard to prevent completion while the roots are still being submitted
+        inFlight.set(1);
+        // Collect roots first, a synchronous executor may already release other nodes
+        IntList roots = new IntList();
+        for(int i=0; i<nodes.length; i++)
+            if(pending.get(i) == 0)
+                roots.add(i);
+        for(int i=0; i<roots.size(); i++)
+            submit(roots.get(i), -1);
+        finished();
+        return result;
+    }
+
+    private void submit(int node, int releaser) {
+        releasedBy[node] = releaser;
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(() -> execute(node));
+        } catch(RuntimeException e) {
+            fail(e);
+            finished();
+        }
+    }
+
+    /**
+     * Runs the given node, and all nodes submitted synchronously while doing so.
+     */
+    private void execute(int node) {
+        IntList nodes = work.get();
+        if(nodes != null) {
+            // Called by the executor from within run(), defer to the outer loop
+            nodes.add(node);
+            return;
+        }
+        nodes = new IntList();
+        nodes.add(node);
+        work.set(nodes);
+        try {
+            for(int i=0; i<nodes.size(); i++)
+                run(nodes.get(i));
+        } finally {
+            work.remove();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run(int node) {
+        try {
+            if(failure.get() != null) return; // Failed elsewhere
+            start[node] = System.nanoTime();
+            task.accept((N) nodes[node]);
+            end[node] = System.nanoTime();
+            remaining.decrementAndGet();
+            for(int s : successors[node])
+                if(pending.decrementAndGet(s) == 0)
+                    submit(s, node);
+        } catch(Throwable t) {
+            fail(t);
+        } finally {
+            finished();
+        }
+    }
+
+    private void fail(Throwable t) {
+        if(!failure.compareAndSet(null, t) && failure.get() != t)
+            failure.get().addSuppressed(t);
+    }
+
+    private void finished() {
+        if(inFlight.decrementAndGet() != 0) return;
+        Throwable t = failure.get();
+        if(t != null)
+            result.completeExceptionally(t);
+        else if(remaining.get() != 0)
+            result.completeExceptionally(new IllegalArgumentException("Graph contains a cycle"));
+        else result.complete(new DagExecution<>(graph, nodes, index, start, end, releasedBy, startTime, System.nanoTime()));
+    }
+}
@@ -0,0 +1,268 @@
+package com.github.rccookie.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parallel single source shortest path algorithm (delta-stepping, Meyer and Sanders).
+ * Nodes are put into buckets of width delta by their tentative distance. The buckets
+ * are processed in order; within a bucket, all light edges (length at most delta) of
+ * the bucket's nodes are relaxed in parallel until the bucket stays empty, then the
+ * heavy edges of all nodes removed from the bucket are relaxed in parallel.
+ * <p>Distances are kept in a lock-free array of doubles, updated using compare-and-set.
+ * Because concurrent relaxations race on the predecessors, those are reconstructed
+ * after all distances are final.</p>
+ * <p>The parallel relaxations run on a fork-join pool that is shared by all runs of
+ * the same instance, so that no threads have to be started per computation.</p>
+ *
+ * @see Algorithm.SingleSourceShortestPath#deltaStepping(double, int)
+ * @see Algorithm.SingleSourceShortestPath#deltaStepping(double, ForkJoinPool)
+ */
+final class DeltaStepping implements Algorithm.SingleSourceShortestPath {
+
+    /**
+     * Node sets smaller than this will be relaxed on the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private final double delta;
+    private final int threads;
+    /**
+     * The pool to relax edges in parallel on, or <code>null</code> to run single-threaded.
+     */
+    private final ForkJoinPool pool;
+
+    DeltaStepping(double delta, ForkJoinPool pool) {
+        if(!Double.isNaN(delta))
+            Arguments.checkRange(delta, Double.MIN_VALUE, null);
+        this.delta = delta;
+        this.pool = pool;
+        threads = pool != null ? pool.getParallelism() : 1;
+    }
+
+    @Override
+    @NotNull
+    public <N,E> MapGraph<N,Double,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+        return computeTree(graph, source, edgeLength).toMapGraph();
+    }
+
+    @Override
+    @NotNull
+    public <N,E> ShortestPathTree<N,E> computeTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength) {
+        return computeTree(graph, source, edgeLength, Instrumentation.NONE);
+    }
+
+    @Override
+    @NotNull
+    public <N,E> ShortestPathTree<N,E> computeTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                   @NotNull Instrumentation instrumentation) {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkNull(source, "source");
+        Arguments.checkNull(edgeLength, "edgeLength");
+        AlgorithmRun run = AlgorithmRun.start("Delta-stepping", Arguments.checkNull(instrumentation, "instrumentation"));
+        long settledCount = 0, relaxed = 0, phases = 0;
+
+        WeightedGraph<N,E> g = WeightedGraph.of(graph, edgeLength);
+        int s = g.indexOf(source);
+        if(s < 0) throw new IllegalArgumentException("Source is not in the graph: " + source);
+        int size = g.size();
+
+        double[] d = new double[size];
+        int[] p = new int[size];
+        long[] pe = new long[size];
+        Arrays.fill(p, -1);
+
+        double[] w = g.lengths;
+        double maxLength = 0;
+        for(double length : w) {
+            if(length < 0)
+                throw new IllegalArgumentException("Graph has negative edge lengths: " + length);
+            maxLength = Math.max(maxLength, length);
+        }
+        double delta = this.delta;
+        if(Double.isNaN(delta))
+            delta = maxLength == 0 ? 1 : maxLength * size / Math.max(1, w.length);
+
+        AtomicLongArray dist = new AtomicLongArray(size);
+        long inf = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for(int i=0; i<size; i++) dist.set(i, inf);
+        dist.set(s, Double.doubleToRawLongBits(0));
+
+        TreeMap<Long,IntList> buckets = new TreeMap<>();
+        IntList start = new IntList();
+        start.add(s);
+        buckets.put(0L, start);
+
+        int[] inFrontier = new int[size];
+        int[] settledIn = new int[size];
+        int frontierStamp = 0, bucketStamp = 0;
+
+        while(!buckets.isEmpty()) {
+            Map.Entry<Long,IntList> bucket = buckets.pollFirstEntry();
+            long i = bucket.getKey();
+            IntList candidates = bucket.getValue();
+            IntList settled = new IntList();
+            bucketStamp++;
+            phases++;
+
+            while(!candidates.isEmpty()) {
+                // Buckets may contain stale or duplicate entries
+                frontierStamp++;
+                IntList frontier = new IntList(candidates.size());
+                for(int j=0; j<candidates.size(); j++) {
+                    int n = candidates.get(j);
+                    if(inFrontier[n] == frontierStamp || bucket(dist, n, delta) != i) continue;
+                    inFrontier[n] = frontierStamp;
+                    frontier.add(n);
+                    if(settledIn[n] != bucketStamp) {
+                        settledIn[n] = bucketStamp;
+                        settled.add(n);
+                    }
+                }
+
+                if(run != null) relaxed += degreeSum(g, frontier);
+                IntList improved = relax(g, w, dist, frontier, true, delta);
+                candidates = new IntList();
+                for(int j=0; j<improved.size(); j++) {
+                    int n = improved.get(j);
+                    long b = bucket(dist, n, delta);
+                    if(b == i) candidates.add(n);
+                    else buckets.computeIfAbsent(b, $ -> new IntList()).add(n);
+                }
+            }
+
+            if(run != null) {
+                settledCount += settled.size();
+                relaxed += degreeSum(g, settled);
+            }
+            IntList improved = relax(g, w, dist, settled, false, delta);
+            for(int j=0; j<improved.size(); j++) {
+                int n = improved.get(j);
+                // May re-add the current bucket due to rounding, it will be processed again
+                buckets.computeIfAbsent(bucket(dist, n, delta), $ -> new IntList()).add(n);
+            }
+        }
+
+        for(int i=0; i<size; i++)
+            d[i] = Double.longBitsToDouble(dist.get(i));
+
+        // Reconstruct predecessors: every reachable node has an incoming edge with
+        // d[n] + w == d[m], because that is exactly how its distance was computed.
+        // Searching from the source along those edges ensures the predecessors form
+        // a tree, even if there are cycles of length 0.
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        p[s] = s;
+        while(head != tail) {
+            int n = queue[head++];
+            for(long e=g.edgeStart(n), end=g.edgeEnd(n); e<end; e++) {
+                int m = g.target(e);
+                if(p[m] < 0 && d[n] + w[(int) e] == d[m]) {
+                    p[m] = n;
+                    pe[m] = e;
+                    queue[tail++] = m;
+                }
+            }
+        }
+        p[s] = -1;
+
+        if(run != null) run.finish(settledCount, relaxed, 0, 0, 0, phases);
+        return new ShortestPathTree<>(g, edgeLength, s, d, p, pe);
+    }
+
+    /**
+     * Returns the number of edges scanned when relaxing the given nodes.
+     */
+    private static long degreeSum(IndexedGraph<?,?> g, IntList nodes) {
+        long sum = 0;
+        for(int i=0; i<nodes.size(); i++)
+            sum += g.degree(nodes.get(i));
+        return sum;
+    }
+
+    private static long bucket(AtomicLongArray dist, int node, double delta) {
+        return (long) (Double.longBitsToDouble(dist.get(node)) / delta);
+    }
+
+    /**
+     * Relaxes the light or heavy edges of the given nodes, in parallel if the pool is
+     * not null and there are enough nodes.
+     *
+     * @return The nodes whose distance was decreased, possibly with duplicates
+     */
+    private IntList relax(IndexedGraph<?,?> g, double[] w, AtomicLongArray dist, IntList nodes,
+                          boolean light, double delta) {
+        if(pool == null || nodes.size() < PARALLEL_THRESHOLD)
+            return relax(g, w, dist, nodes, 0, nodes.size(), light, delta);
+
+        int chunks = threads * 4;
+        int chunkSize = (nodes.size() + chunks - 1) / chunks;
+        List<Callable<IntList>> tasks = new ArrayList<>(chunks);
+        for(int i=0; i<nodes.size(); i+=chunkSize) {
+            int from = i, to = Math.min(i + chunkSize, nodes.size());
+            tasks.add(() -> relax(g, w, dist, nodes, from, to, light, delta));
+        }
+
+        IntList improved = new IntList();
+        try {
+            for(Future<IntList> result : pool.invokeAll(tasks))
+                improved.addAll(result.get());
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during shortest path computation", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return improved;
+    }
+
+    private static IntList relax(IndexedGraph<?,?> g, double[] w, AtomicLongArray dist, IntList nodes,
+                                 int from, int to, boolean light, double delta) {
+        IntList improved = new IntList();
+        for(int i=from; i<to; i++) {
+            int n = nodes.get(i);
+            double dn = Double.longBitsToDouble(dist.get(n));
+            for(long e=g.edgeStart(n), end=g.edgeEnd(n); e<end; e++) {
+                double length = w[(int) e];
+                if((length <= delta) != light) continue;
+                int m = g.target(e);
+                if(decrease(dist, m, dn + length))
+                    improved.add(m);
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Atomically sets the distance of the given node to the given value, if it is
+     * smaller than the current distance.
+     */
+    private static boolean decrease(AtomicLongArray dist, int node, double value) {
+        long current;
+        while(value < Double.longBitsToDouble(current = dist.get(node)))
+            if(dist.compareAndSet(node, current, Double.doubleToRawLongBits(value)))
+                return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "Delta-stepping (delta: " + (Double.isNaN(delta) ? "auto" : delta) + ", threads: " + threads + ")";
+    }
+}
@@ -0,0 +1,468 @@
+package com.github.rccookie.graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Shortest path trees from a fixed set of sources that are kept up to date while
+ * the graph changes, using the dynamic algorithm of Ramalingam and Reps. After an
+ * edge was added, removed or changed its value, only the part of each tree that
+ * is affected by the change is repaired:
+ * <ul>
+ *     <li>If the edge became shorter, the new distances are propagated from the
+ *     end of the edge, like in Dijkstra's algorithm, but only to nodes whose
+ *     distance actually decreases.</li>
+ *     <li>If an edge of a shortest path tree became longer or was removed, the
+ *     subtree below it is detached, each of its nodes is reattached by the best
+ *     edge from outside of the subtree, and the distances within the subtree are
+ *     then computed using Dijkstra's algorithm restricted to the subtree.</li>
+ * </ul>
+ * Changes of edges that are not in a shortest path tree and don't shorten any
+ * path cost constant time per source.
+ * <p>The structure keeps its own copy of the edge lengths, including incoming
+ * edges, so that it can determine what changed. Changes of the graph have to be
+ * reported using {@link #edgeChanged(Object, Object)} or {@link #nodeChanged(Object)},
+ * or, for a {@link HashGraph}, by registering the instance as synchronous listener
+ * using {@link HashGraph#addListener(GraphListener)}. This class is not thread
+ * safe.</p>
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ */
+public class DynamicShortestPaths<N,E> implements GraphListener<N,E> {
+
+    private final ReadableGraph<N,E> graph;
+    private final ToDoubleFunction<? super E> edgeLength;
+
+    private final Map<N,Integer> index = new HashMap<>();
+    private Object[] nodes = new Object[0];
+    private int size = 0;
+    private Arcs[] out = new Arcs[0];
+    private Arcs[] in = new Arcs[0];
+
+    /**
+     * Maps each source to its row in {@link #distances} and {@link #previous}.
+     */
+    private final Map<N,Integer> sources = new LinkedHashMap<>();
+    private final double[][] distances;
+    private final int[][] previous;
+
+    private IndexedHeap heap = new IndexedHeap(0);
+    private int[] mark = new int[0];
+    private int stamp = 0;
+    private final IntList affected = new IntList();
+
+    /**
+     * Computes the shortest path trees from the given sources.
+     *
+     * @param graph The graph to search in, which may change afterwards
+     * @param sources The sources of the shortest path trees
+     * @param edgeLength Function to determine the length of an edge. Must not
+     *                   return negative values
+     * @throws IllegalArgumentException If a source is not in the graph or an edge
+     *                                  has negative length
+     */
+    public DynamicShortestPaths(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                @NotNull ToDoubleFunction<? super E> edgeLength) {
+        this.graph = Arguments.checkNull(graph, "graph");
+        this.edgeLength = Arguments.checkNull(edgeLength, "edgeLength");
+        Arguments.checkNull(sources, "sources");
+
+        ensureCapacity(graph.size());
+        for(N n : graph)
+            indexOrAdd(n);
+        for(N n : graph) {
+            int i = index.get(n);
+            graph.adj(n).forEach((m,e) -> setArc(i, indexOrAdd(m), length(e)));
+        }
+
+        for(N source : sources) {
+            if(!graph.contains(Arguments.checkNull(source, "source")))
+                throw new IllegalArgumentException("Source is not in the graph: " + source);
+            this.sources.putIfAbsent(source, this.sources.size());
+        }
+        distances = new double[this.sources.size()][];
+        previous = new int[this.sources.size()][];
+        for(Map.Entry<N,Integer> source : this.sources.entrySet()) {
+            int r = source.getValue();
+            distances[r] = new double[nodes.length];
+            previous[r] = new int[nodes.length];
+            Arrays.fill(distances[r], Double.POSITIVE_INFINITY);
+            Arrays.fill(previous[r], -1);
+            int s = index.get(source.getKey());
+            distances[r][s] = 0;
+            previous[r][s] = -1;
+            decrease(r, s);
+        }
+    }
+
+    /**
+     * Returns the sources of the shortest path trees.
+     *
+     * @return All sources
+     */
+    @NotNull
+    public Set<N> sources() {
+        return Collections.unmodifiableSet(sources.keySet());
+    }
+
+    /**
+     * Returns the length of the shortest path from the given source to the given
+     * node.
+     *
+     * @param source The source of the path
+     * @param node The node to get the distance to
+     * @return The distance, or {@link Double#POSITIVE_INFINITY} if the node cannot
+     *         be reached
+     * @throws IllegalArgumentException If the source is not one of the sources, or
+     *                                  the node is not in the graph
+     */
+    public double distance(@NotNull N source, @NotNull N node) {
+        int r = row(source), i = indexOf(node);
+        return i < 0 ? Double.POSITIVE_INFINITY : distances[r][i];
+    }
+
+    /**
+     * Returns the predecessor of the given node on the shortest path from the
+     * given source.
+     *
+     * @param source The source of the path
+     * @param node The node to get the predecessor of
+     * @return The predecessor, or <code>null</code> if the node is the source or
+     *         cannot be reached
+     * @throws IllegalArgumentException If the source is not one of the sources, or
+     *                                  the node is not in the graph
+     */
+    @Nullable
+    public N previous(@NotNull N source, @NotNull N node) {
+        int r = row(source), i = indexOf(node);
+        return i < 0 || previous[r][i] < 0 ? null : node(previous[r][i]);
+    }
+
+    /**
+     * Returns the shortest path from the given source to the given node.
+     *
+     * @param source The source of the path
+     * @param node The target node
+     * @return The shortest path, or <code>null</code> if the node cannot be reached
+     * @throws IllegalArgumentException If the source is not one of the sources, or
+     *                                  the node is not in the graph
+     */
+    @Nullable
+    public DistancePath<N,E> path(@NotNull N source, @NotNull N node) {
+        int r = row(source), i = indexOf(node);
+        if(i < 0 || distances[r][i] == Double.POSITIVE_INFINITY) return null;
+        DistancePath<N,E> path = new DistancePath<>(node, edgeLength);
+        for(int p; (p = previous[r][i]) >= 0; i = p)
+            path.addFirst(node(p), graph.edge(node(p), node(i)));
+        return path;
+    }
+
+    /**
+     * Updates the shortest paths after the edge from <code>a</code> to <code>b</code>
+     * was added, removed or changed its value. For undirected graphs, both
+     * directions are updated. Calling this method if the edge did not change has
+     * no effect.
+     *
+     * @param a The start node of the edge
+     * @param b The end node of the edge
+     * @throws IllegalArgumentException If the edge now has a negative length
+     */
+    public void edgeChanged(@NotNull N a, @NotNull N b) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        int i = indexOrAdd(a), j = indexOrAdd(b);
+        update(i, j);
+        if(!graph.isDirected())
+            update(j, i);
+    }
+
+    /**
+     * Updates the shortest paths after the given node was added to or removed from
+     * the graph, or some of its outgoing edges changed. Edges from other nodes to a
+     * newly added node have to be reported using {@link #edgeChanged(Object, Object)}.
+     *
+     * @param node The node that changed
+     * @throws IllegalArgumentException If an edge of the node now has a negative
+     *                                  length
+     */
+    public void nodeChanged(@NotNull N node) {
+        Arguments.checkNull(node, "node");
+        int i = indexOrAdd(node);
+        // Edges known before, in both directions
+        for(int k : out[i].targets())
+            update(i, k);
+        for(int k : in[i].targets())
+            update(k, i);
+        // New outgoing edges
+        if(graph.contains(node))
+            for(N m : graph.adj(node))
+                edgeChanged(node, m);
+    }
+
+    /**
+     * Updates the shortest paths according to the given changes of the graph.
+     *
+     * @param events The changes of the graph
+     */
+    @Override
+    public void graphChanged(@NotNull List<GraphEvent<N,E>> events) {
+        for(GraphEvent<N,E> event : events) {
+            switch(event.type()) {
+                case NODE_ADDED: break; // Its edges are reported separately
+                case NODE_REMOVED: nodeChanged(event.node()); break;
+                case CLEARED: {
+                    for(int i=0, size=this.size; i<size; i++)
+                        nodeChanged(node(i));
+                    break;
+                }
+                default: edgeChanged(event.node(), event.b());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Dynamic shortest paths from " + sources.size() + " sources in " + graph;
+    }
+
+    private int row(N source) {
+        Integer r = sources.get(Arguments.checkNull(source, "source"));
+        if(r == null) throw new IllegalArgumentException("Not a source: " + source);
+        return r;
+    }
+
+    /**
+     * Returns the index of the given node, or <code>-1</code> if it was added to the
+     * graph without being reported. Nodes that were removed from the graph keep
+     * their index, so the graph is checked first.
+     */
+    private int indexOf(N node) {
+        if(!graph.contains(Arguments.checkNull(node, "node")))
+            throw new IllegalArgumentException("Node is not in the graph: " + node);
+        Integer i = index.get(node);
+        return i != null ? i : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private N node(int index) {
+        return (N) nodes[index];
+    }
+
+    private int indexOrAdd(N node) {
+        Integer i = index.get(node);
+        if(i != null) return i;
+        ensureCapacity(size + 1);
+        nodes[size] = node;
+        out[size] = new Arcs();
+        in[size] = new Arcs();
+        index.put(node, size);
+        return size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= nodes.length) return;
+        int length = Math.max(capacity, nodes.length * 3 / 2 + 1);
+        nodes = Arrays.copyOf(nodes, length);
+        out = Arrays.copyOf(out, length);
+        in = Arrays.copyOf(in, length);
+        mark = Arrays.copyOf(mark, length);
+        heap = new IndexedHeap(length);
+        // Not yet initialized while indexing the graph in the constructor
+        if(distances == null) return;
+        for(int r=0; r<distances.length; r++) {
+            int old = distances[r].length;
+            distances[r] = Arrays.copyOf(distances[r], length);
+            previous[r] = Arrays.copyOf(previous[r], length);
+            Arrays.fill(distances[r], old, length, Double.POSITIVE_INFINITY);
+            Arrays.fill(previous[r], old, length, -1);
+        }
+    }
+
+    private double length(E edge) {
+        double length = edgeLength.applyAsDouble(edge);
+        if(!(length >= 0))
+            throw new IllegalArgumentException("Graph has negative edge lengths: " + length);
+        return length;
+    }
+
+    private void setArc(int i, int j, double length) {
+        out[i].put(j, length);
+        in[j].put(i, length);
+    }
+
+    /**
+     * Compares the arc from i to j with the graph and repairs all trees if it
+     * changed.
+     */
+    private void update(int i, int j) {
+        N a = node(i), b = node(j);
+        boolean exists = graph.contains(a) && graph.connected(a, b);
+        double length = exists ? length(graph.edge(a, b)) : Double.NaN;
+        double old = out[i].get(j);
+        if(exists ? length == old : old != old) return;
+
+        if(exists) setArc(i, j, length);
+        else {
+            out[i].remove(j);
+            in[j].remove(i);
+        }
+
+        for(int r=0; r<distances.length; r++) {
+            double[] d = distances[r];
+            if(exists && d[i] + length < d[j]) {
+                d[j] = d[i] + length;
+                previous[r][j] = i;
+                decrease(r, j);
+            }
+            else if(previous[r][j] == i && (!exists || length > old))
+                increase(r, j);
+        }
+    }
+
+    /**
+     * Propagates the decreased distance of the given node.
+     */
+    private void decrease(int r, int start) {
+        double[] d = distances[r];
+        int[] p = previous[r];
+        heap.put(start, d[start]);
+        while(!heap.isEmpty()) {
+            int x = heap.poll();
+            Arcs arcs = out[x];
+            for(int k=0; k<arcs.size; k++) {
+                int y = arcs.targets[k];
+                double dist = d[x] + arcs.lengths[k];
+                if(dist < d[y]) {
+                    d[y] = dist;
+                    p[y] = x;
+                    heap.put(y, dist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes the distances in the subtree of the given node after the edge to
+     * it got longer or was removed.
+     */
+    private void increase(int r, int root) {
+        double[] d = distances[r];
+        int[] p = previous[r];
+
+        // Collect the subtree
+        int stamp = ++this.stamp;
+        affected.clear();
+        affected.add(root);
+        mark[root] = stamp;
+        for(int k=0; k<affected.size(); k++) {
+            Arcs arcs = out[affected.get(k)];
+            for(int l=0; l<arcs.size; l++) {
+                int y = arcs.targets[l];
+                if(mark[y] != stamp && p[y] == affected.get(k)) {
+                    mark[y] = stamp;
+                    affected.add(y);
+                }
+            }
+        }
+        for(int k=0; k<affected.size(); k++) {
+            int x = affected.get(k);
+            d[x] = Double.POSITIVE_INFINITY;
+            p[x] = -1;
+        }
+
+        // Reattach by the best edge from outside of the subtree
+        for(int k=0; k<affected.size(); k++) {
+            int x = affected.get(k);
+            Arcs arcs = in[x];
+            for(int l=0; l<arcs.size; l++) {
+                int y = arcs.targets[l];
+                if(mark[y] == stamp) continue;
+                double dist = d[y] + arcs.lengths[l];
+                if(dist < d[x]) {
+                    d[x] = dist;
+                    p[x] = y;
+                }
+            }
+            if(d[x] != Double.POSITIVE_INFINITY)
+                heap.put(x, d[x]);
+        }
+
+        // Dijkstra within the subtree; distances outside of it cannot decrease
+        while(!heap.isEmpty()) {
+            int x = heap.poll();
+            Arcs arcs = out[x];
+            for(int l=0; l<arcs.size; l++) {
+                int y = arcs.targets[l];
+                if(mark[y] != stamp) continue;
+                double dist = d[x] + arcs.lengths[l];
+                if(dist < d[y]) {
+                    d[y] = dist;
+                    p[y] = x;
+                    heap.put(y, dist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Edges from or to a single node with their lengths, in insertion order.
+     */
+    private static final class Arcs {
+
+        int[] targets = new int[2];
+        double[] lengths = new double[2];
+        int size = 0;
+
+        /**
+         * Returns the length of the arc to the given node, or {@link Double#NaN} if
+         * there is none.
+         */
+        double get(int target) {
+            for(int k=0; k<size; k++)
+                if(targets[k] == target) return lengths[k];
+            return Double.NaN;
+        }
+
+        void put(int target, double length) {
+            for(int k=0; k<size; k++) {
+                if(targets[k] == target) {
+                    lengths[k] = length;
+                    return;
+                }
+            }
+            if(size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            targets[size] = target;
+            lengths[size++] = length;
+        }
+
+        void remove(int target) {
+            for(int k=0; k<size; k++) {
+                if(targets[k] == target) {
+                    targets[k] = targets[--size];
+                    lengths[k] = lengths[size];
+                    return;
+                }
+            }
+        }
+
+        int[] targets() {
+            return Arrays.copyOf(targets, size);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.rccookie.graph;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Source of the edge lengths of an {@link IndexedGraph} for the inner loops of
+ * the shortest path algorithms. Reads the lengths from the array of a
+ * {@link WeightedGraph} or directly from the storage of a {@link BufferGraph} if
+ * possible, and otherwise applies the length function to each edge value. This is
+ * a final class rather than an interface so that the lookup stays monomorphic.
+ */
+final class EdgeLengths<E> {
+
+    private final double[] lengths;
+    private final BufferGraph<?> buffer;
+    private final IndexedGraph<?,E> graph;
+    private final ToDoubleFunction<? super E> edgeLength;
+
+    private EdgeLengths(double[] lengths, BufferGraph<?> buffer, IndexedGraph<?,E> graph, ToDoubleFunction<? super E> edgeLength) {
+        this.lengths = lengths;
+        this.buffer = buffer;
+        this.graph = graph;
+        this.edgeLength = edgeLength;
+    }
+
+    /**
+     * Returns the lengths of the edges of the given graph, without copying them.
+     */
+    static <E> EdgeLengths<E> of(IndexedGraph<?,E> graph, ToDoubleFunction<? super E> edgeLength) {
+        if(graph instanceof WeightedGraph && ((WeightedGraph<?,E>) graph).edgeLength() == edgeLength)
+            return new EdgeLengths<>(((WeightedGraph<?,E>) graph).lengths, null, graph, edgeLength);
+        if(graph instanceof BufferGraph && (Object) edgeLength == WeightedGraph.DOUBLE_VALUE)
+            return new EdgeLengths<>(null, (BufferGraph<?>) graph, graph, edgeLength);
+        return new EdgeLengths<>(null, null, graph, edgeLength);
+    }
+
+    double get(long edge) {
+        if(lengths != null) return lengths[(int) edge];
+        if(buffer != null) return buffer.length(edge);
+        return edgeLength.applyAsDouble(graph.edgeValue(edge));
+    }
+}
@@ -45,6 +45,11 @@ public interface Forest<N,E> extends ReadableGraph<N,E> {
             return false;
         }
 
+        @Override
+        public Object parent(@NotNull Object node) {
+            return null;
+        }
+
         @Override
         public @NotNull Forest<Object, Object> clone() {
             return this;
@@ -146,6 +151,30 @@ public interface Forest<N,E> extends ReadableGraph<N,E> {
     void clear();
 
 
+    /**
+     * Returns the parent of the given node.
+     *
+     * @param node The node to get the parent of
+     * @return The parent of the node, or <code>null</code> if the node is a root
+     *         or not in this forest
+     */
+    @Nullable
+    N parent(@NotNull Object node);
+
+    /**
+     * Returns the number of edges between the given node and the root of its tree.
+     *
+     * @param node The node to get the depth of
+     * @return The depth of the node, or <code>-1</code> if it is not in this forest
+     */
+    default int depth(@NotNull Object node) {
+        if(!contains(node)) return -1;
+        int depth = 0;
+        for(N n = parent(node); n != null; n = parent(n))
+            depth++;
+        return depth;
+    }
+
     default Set<Tree<N,E>> getTrees() {
         return Graphs.trees(this);
     }
@@ -2,6 +2,7 @@ package com.github.rccookie.graph;
 
 import java.util.Set;
 
+import com.github.rccookie.util.Arguments;
 import com.github.rccookie.util.Cloneable;
 
 import org.jetbrains.annotations.Contract;
@@ -82,6 +83,21 @@ public interface Graph<N,E> extends ReadableGraph<N,E>, Set<N>, Cloneable<Graph<
      */
     E connect(@NotNull N a, @NotNull N b, E edge);
 
+    /**
+     * Connects the start and end node of each of the given edges, as if by calling
+     * {@link #connect(Object, Object, Object)} for each edge in iteration order.
+     * Implementations may override this method to load many edges more efficiently.
+     *
+     * @param edges The edges to add to the graph
+     * @throws IllegalArgumentException If the specific graph implementation does not allow
+     *                                  one of the given connections
+     * @see GraphBuilder
+     */
+    default void connectAll(@NotNull Iterable<? extends Edge<? extends N, ? extends E>> edges) {
+        for(Edge<? extends N, ? extends E> e : Arguments.checkNull(edges, "edges"))
+            connect(e.a, e.b, e.value);
+    }
+
     /**
      * Removes the connection from <code>a</code> to <code>b</code>, if
      * a and b are present in this graph and were connected.
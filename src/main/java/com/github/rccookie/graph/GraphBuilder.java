@@ -0,0 +1,172 @@
+package com.github.rccookie.graph;
+
+import java.util.Arrays;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Builder for loading large numbers of edges into a {@link HashGraph}. Instead of
+ * updating the graph with every connection, the builder stores the edges in plain
+ * arrays. When {@link #build()} is called, the edges are grouped by their start
+ * node, so that each adjacency map can be created with the right capacity and
+ * filled in one go, optionally in parallel for different nodes.
+ * <p>The resulting graph is the same as if all nodes and edges were added to
+ * an empty graph in the order they were added to the builder, so later edges
+ * override earlier edges between the same nodes.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public class GraphBuilder<N,E> {
+
+    private final boolean directed;
+    private boolean parallel = false;
+
+    private Object[] nodes;
+    private int nodeCount = 0;
+    private Object[] from, to, values;
+    private int edgeCount = 0;
+
+    /**
+     * Creates a new builder for a directed graph.
+     */
+    public GraphBuilder() {
+        this(true);
+    }
+
+    /**
+     * Creates a new graph builder.
+     *
+     * @param directed Whether the resulting graph should be directed
+     */
+    public GraphBuilder(boolean directed) {
+        this(directed, 16);
+    }
+
+    /**
+     * Creates a new graph builder with space for the given number of edges.
+     *
+     * @param directed Whether the resulting graph should be directed
+     * @param expectedEdges The number of edges expected to be added. For undirected
+     *                      graphs, each connection counts only once
+     */
+    public GraphBuilder(boolean directed, int expectedEdges) {
+        this.directed = directed;
+        Arguments.checkRange(expectedEdges, 0, null);
+        nodes = new Object[16];
+        from = new Object[expectedEdges];
+        to = new Object[expectedEdges];
+        values = new Object[expectedEdges];
+    }
+
+    /**
+     * Sets whether the adjacency of the graph should be built in parallel using the
+     * common fork join pool. By default, the graph is built on the calling thread.
+     *
+     * @param parallel Whether to build in parallel
+     * @return This builder
+     */
+    @Contract("_->this")
+    @NotNull
+    public GraphBuilder<N,E> parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Adds the given node to the graph. Nodes that are part of an edge don't have to be
+     * added separately.
+     *
+     * @param node The node to add
+     * @return This builder
+     */
+    @Contract("_->this")
+    @NotNull
+    public GraphBuilder<N,E> add(@NotNull N node) {
+        if(nodeCount == nodes.length)
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        nodes[nodeCount++] = Arguments.checkNull(node, "node");
+        return this;
+    }
+
+    /**
+     * Connects the two given nodes. If the graph is undirected, this also adds the
+     * reverse connection.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @param edge The edge weight
+     * @return This builder
+     */
+    @Contract("_,_,_->this")
+    @NotNull
+    public GraphBuilder<N,E> connect(@NotNull N a, @NotNull N b, E edge) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        if(edgeCount == from.length) {
+            int capacity = Math.max(16, from.length + (from.length >> 1));
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        from[edgeCount] = a;
+        to[edgeCount] = b;
+        values[edgeCount++] = edge;
+        return this;
+    }
+
+    /**
+     * Connects the start and end node of each of the given edges.
+     *
+     * @param edges The edges to add
+     * @return This builder
+     */
+    @Contract("_->this")
+    @NotNull
+    public GraphBuilder<N,E> connectAll(@NotNull Iterable<? extends Edge<? extends N, ? extends E>> edges) {
+        for(Edge<? extends N, ? extends E> e : Arguments.checkNull(edges, "edges"))
+            connect(e.a, e.b, e.value);
+        return this;
+    }
+
+    /**
+     * Returns the number of edges added to this builder so far.
+     *
+     * @return The number of edges added
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Creates a new hash graph with the nodes and edges added to this builder. The
+     * builder can be used further afterwards, the graph is not affected by that.
+     *
+     * @return A new hash graph
+     */
+    @Contract(pure = true)
+    @NotNull
+    public HashGraph<N,E> build() {
+        HashGraph<N,E> graph = new HashGraph<>(directed);
+        addTo(graph);
+        return graph;
+    }
+
+    /**
+     * Adds the nodes and edges of this builder to the given graph.
+     */
+    @SuppressWarnings("unchecked")
+    void addTo(HashGraph<N,E> graph) {
+        for(int i=0; i<nodeCount; i++)
+            graph.add((N) nodes[i]);
+        graph.connectAll(from, to, values, edgeCount, parallel);
+    }
+
+    @Override
+    public String toString() {
+        return "Graph builder with " + edgeCount + " edges";
+    }
+}
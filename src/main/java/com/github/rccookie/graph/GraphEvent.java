@@ -0,0 +1,184 @@
+package com.github.rccookie.graph;
+
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single change of a graph, reported to {@link GraphListener}s. Node events
+ * carry the added or removed node, edge events the start and end node of the edge
+ * and its value before and after the change. For undirected graphs, an edge event
+ * describes both directions of the edge.
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ * @see HashGraph#addListener(GraphListener)
+ */
+public final class GraphEvent<N,E> {
+
+    /**
+     * The kinds of changes of a graph.
+     */
+    public enum Type {
+        /**
+         * A node was added to the graph.
+         */
+        NODE_ADDED,
+        /**
+         * A node was removed from the graph. The removal of its edges is reported
+         * in preceding events of the same batch.
+         */
+        NODE_REMOVED,
+        /**
+         * Two nodes that were not connected before got connected.
+         */
+        EDGE_ADDED,
+        /**
+         * The value of an existing edge was replaced.
+         */
+        EDGE_CHANGED,
+        /**
+         * An edge was removed.
+         */
+        EDGE_REMOVED,
+        /**
+         * All nodes and edges were removed at once. No separate events are reported
+         * for the individual nodes and edges.
+         */
+        CLEARED
+    }
+
+    private final Type type;
+    private final N a;
+    private final N b;
+    private final E oldEdge;
+    private final E newEdge;
+
+    private GraphEvent(Type type, N a, N b, E oldEdge, E newEdge) {
+        this.type = type;
+        this.a = a;
+        this.b = b;
+        this.oldEdge = oldEdge;
+        this.newEdge = newEdge;
+    }
+
+    static <N,E> GraphEvent<N,E> nodeAdded(N node) {
+        return new GraphEvent<>(Type.NODE_ADDED, node, null, null, null);
+    }
+
+    static <N,E> GraphEvent<N,E> nodeRemoved(N node) {
+        return new GraphEvent<>(Type.NODE_REMOVED, node, null, null, null);
+    }
+
+    static <N,E> GraphEvent<N,E> edgeAdded(N a, N b, E edge) {
+        return new GraphEvent<>(Type.EDGE_ADDED, a, b, null, edge);
+    }
+
+    static <N,E> GraphEvent<N,E> edgeChanged(N a, N b, E oldEdge, E newEdge) {
+        return new GraphEvent<>(Type.EDGE_CHANGED, a, b, oldEdge, newEdge);
+    }
+
+    static <N,E> GraphEvent<N,E> edgeRemoved(N a, N b, E edge) {
+        return new GraphEvent<>(Type.EDGE_REMOVED, a, b, edge, null);
+    }
+
+    static <N,E> GraphEvent<N,E> cleared() {
+        return new GraphEvent<>(Type.CLEARED, null, null, null, null);
+    }
+
+    /**
+     * Returns the kind of this change.
+     *
+     * @return The type of this event
+     */
+    @NotNull
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * Returns whether this event describes a change of an edge.
+     *
+     * @return Whether this is an edge event
+     */
+    public boolean isEdgeEvent() {
+        return b != null;
+    }
+
+    /**
+     * Returns the node that was added or removed. For edge events, this is the start
+     * node of the edge.
+     *
+     * @return The changed node, or <code>null</code> for {@link Type#CLEARED}
+     */
+    public N node() {
+        return a;
+    }
+
+    /**
+     * Returns the start node of the changed edge.
+     *
+     * @return The start node, or <code>null</code> if this is not an edge event
+     */
+    @Nullable
+    public N a() {
+        return isEdgeEvent() ? a : null;
+    }
+
+    /**
+     * Returns the end node of the changed edge.
+     *
+     * @return The end node, or <code>null</code> if this is not an edge event
+     */
+    @Nullable
+    public N b() {
+        return b;
+    }
+
+    /**
+     * Returns the value of the edge before the change.
+     *
+     * @return The old edge value, or <code>null</code> if the edge was added or this
+     *         is not an edge event
+     */
+    public E oldEdge() {
+        return oldEdge;
+    }
+
+    /**
+     * Returns the value of the edge after the change.
+     *
+     * @return The new edge value, or <code>null</code> if the edge was removed or this
+     *         is not an edge event
+     */
+    public E newEdge() {
+        return newEdge;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof GraphEvent)) return false;
+        GraphEvent<?,?> event = (GraphEvent<?,?>) o;
+        return type == event.type && Objects.equals(a, event.a) && Objects.equals(b, event.b) &&
+               Objects.equals(oldEdge, event.oldEdge) && Objects.equals(newEdge, event.newEdge);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, a, b, oldEdge, newEdge);
+    }
+
+    @Override
+    public String toString() {
+        switch(type) {
+            case NODE_ADDED: return "Added " + a;
+            case NODE_REMOVED: return "Removed " + a;
+            case EDGE_ADDED: return "Connected " + a + " -> " + b + " (" + newEdge + ")";
+            case EDGE_CHANGED: return "Changed " + a + " -> " + b + " (" + oldEdge + " -> " + newEdge + ")";
+            case EDGE_REMOVED: return "Disconnected " + a + " -> " + b + " (" + oldEdge + ")";
+            default: return "Cleared";
+        }
+    }
+}
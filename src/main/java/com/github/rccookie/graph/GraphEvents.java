@@ -0,0 +1,109 @@
+package com.github.rccookie.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The listeners of a graph and the events of the current batch. Graphs only
+ * create an instance once a listener is registered.
+ */
+final class GraphEvents<N,E> {
+
+    private final List<Subscription<N,E>> subscriptions = new CopyOnWriteArrayList<>();
+    private List<GraphEvent<N,E>> pending = new ArrayList<>();
+    private int depth = 0;
+
+    void add(GraphListener<N,E> listener, Executor executor) {
+        subscriptions.add(new Subscription<>(listener, executor));
+    }
+
+    boolean remove(GraphListener<N,E> listener) {
+        return subscriptions.removeIf(s -> s.listener == listener);
+    }
+
+    boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    /**
+     * Starts a batch; events are collected until the matching {@link #end()}.
+     */
+    void begin() {
+        depth++;
+    }
+
+    /**
+     * Ends a batch and delivers its events if it was the outermost one.
+     */
+    void end() {
+        if(--depth == 0 && !pending.isEmpty())
+            flush();
+    }
+
+    void fire(GraphEvent<N,E> event) {
+        pending.add(event);
+        if(depth == 0) flush();
+    }
+
+    private void flush() {
+        List<GraphEvent<N,E>> batch = Collections.unmodifiableList(pending);
+        pending = new ArrayList<>();
+        for(Subscription<N,E> subscription : subscriptions)
+            subscription.deliver(batch);
+    }
+
+    private static final class Subscription<N,E> {
+
+        final GraphListener<N,E> listener;
+        /**
+         * The executor to deliver on, or <code>null</code> for synchronous delivery.
+         */
+        private final Executor executor;
+        private final Queue<List<GraphEvent<N,E>>> queue;
+        private final AtomicBoolean scheduled;
+
+        Subscription(GraphListener<N,E> listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+            queue = executor != null ? new ConcurrentLinkedQueue<>() : null;
+            scheduled = executor != null ? new AtomicBoolean() : null;
+        }
+
+        void deliver(List<GraphEvent<N,E>> batch) {
+            if(executor == null) {
+                listener.graphChanged(batch);
+                return;
+            }
+            queue.add(batch);
+            if(!scheduled.compareAndSet(false, true)) return;
+            try {
+                executor.execute(this::drain);
+            } catch(RuntimeException e) {
+                // Allow delivery on a later change
+                scheduled.set(false);
+                throw e;
+            }
+        }
+
+        /**
+         * Delivers the queued batches one after another, so that the listener
+         * receives them in order even if the executor runs tasks concurrently.
+         */
+        private void drain() {
+            do {
+                try {
+                    for(List<GraphEvent<N,E>> batch; (batch = queue.poll()) != null; )
+                        listener.graphChanged(batch);
+                } finally {
+                    scheduled.set(false);
+                }
+            } while(!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+    }
+}
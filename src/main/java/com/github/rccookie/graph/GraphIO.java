@@ -0,0 +1,667 @@
+package com.github.rccookie.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reading and writing graphs in common text formats:
+ * <ul>
+ *     <li>Edge lists: one edge per line, consisting of the start node, the end
+ *     node and optionally a weight, separated by whitespace. Lines starting with
+ *     <code>#</code> or <code>%</code> are comments.</li>
+ *     <li>DIMACS shortest path (<code>.gr</code>) and maximum flow
+ *     (<code>.max</code>) files, as used by the DIMACS implementation
+ *     challenges. Nodes are numbered from 1.</li>
+ *     <li>METIS graph files, as used by the METIS partitioning tools. Graphs are
+ *     undirected and nodes are numbered from 1.</li>
+ * </ul>
+ * Files are read in a streaming fashion through a buffered channel, and numeric
+ * fields are parsed without creating objects. Readers working with integer node
+ * ids report the edges to an {@link EdgeSink}, so that they can be loaded into any
+ * storage; {@link EdgeBuffer} collects them to create a {@link HashGraph} or a
+ * {@link CompactGraph} in bulk.
+ */
+public final class GraphIO {
+
+    private GraphIO() {
+        throw new UnsupportedOperationException();
+    }
+
+
+
+    /**
+     * Receives the edges read from a file with integer node ids.
+     */
+    public interface EdgeSink {
+
+        /**
+         * Called when the file declares how many nodes it contains. The nodes are
+         * then numbered from 1 to the given count, including nodes without edges.
+         *
+         * @param count The number of nodes
+         */
+        default void nodes(int count) { }
+
+        /**
+         * Called for each edge read.
+         *
+         * @param a The start node
+         * @param b The end node
+         * @param weight The weight of the edge, or 1 if the file does not specify
+         *               edge weights
+         */
+        void edge(int a, int b, double weight);
+
+        /**
+         * Called for the source and sink node declarations of a DIMACS max-flow file.
+         *
+         * @param node The node
+         * @param source Whether the node is the source or the sink
+         */
+        default void terminal(int node, boolean source) { }
+    }
+
+    /**
+     * An edge sink that collects the edges in primitive arrays, from which graphs
+     * can be created in bulk.
+     */
+    public static class EdgeBuffer implements EdgeSink {
+
+        int declaredNodes = 0;
+        int[] from = new int[16], to = new int[16];
+        double[] weights = new double[16];
+        int count = 0;
+        int source = -1, sink = -1;
+
+        @Override
+        public void nodes(int count) {
+            declaredNodes = Arguments.checkRange(count, 0, null);
+        }
+
+        @Override
+        public void edge(int a, int b, double weight) {
+            if(count == from.length) {
+                int capacity = count + (count >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            from[count] = a;
+            to[count] = b;
+            weights[count++] = weight;
+        }
+
+        @Override
+        public void terminal(int node, boolean source) {
+            if(source) this.source = node;
+            else sink = node;
+        }
+
+        /**
+         * Returns the number of edges collected.
+         *
+         * @return The number of edges
+         */
+        public int edgeCount() {
+            return count;
+        }
+
+        /**
+         * Creates a hash graph with the collected edges. If the number of nodes was
+         * declared, the nodes 1 to that number will be part of the graph even if
+         * they have no edges.
+         *
+         * @param directed Whether the graph should be directed
+         * @return A new hash graph
+         */
+        @NotNull
+        public HashGraph<Integer,Double> toHashGraph(boolean directed) {
+            GraphBuilder<Integer,Double> builder = new GraphBuilder<Integer,Double>(directed, count).parallel(count > 1 << 20);
+            for(int i=1; i<=declaredNodes; i++)
+                builder.add(i);
+            for(int i=0; i<count; i++)
+                builder.connect(from[i], to[i], weights[i]);
+            return builder.build();
+        }
+
+        /**
+         * Creates a compact graph with the collected edges. If the number of nodes
+         * was declared, the nodes 1 to that number will be part of the graph even if
+         * they have no edges. Nodes are indexed in ascending order. If the same edge
+         * was collected multiple times, the last one is used.
+         *
+         * @param directed Whether the graph should be directed
+         * @return A new compact graph
+         */
+        @NotNull
+        public CompactGraph<Integer,Double> toCompactGraph(boolean directed) {
+            // Sorted, distinct node ids
+            int[] ids = new int[declaredNodes + 2 * count];
+            for(int i=0; i<declaredNodes; i++)
+                ids[i] = i + 1;
+            System.arraycopy(from, 0, ids, declaredNodes, count);
+            System.arraycopy(to, 0, ids, declaredNodes + count, count);
+            Arrays.sort(ids);
+            int size = 0;
+            for(int i=0; i<ids.length; i++)
+                if(i == 0 || ids[i] != ids[i-1]) ids[size++] = ids[i];
+
+            Object[] nodes = new Object[size];
+            Map<Integer,Integer> index = new HashMap<>(size * 4 / 3 + 1);
+            for(int i=0; i<size; i++) {
+                nodes[i] = ids[i];
+                index.put(ids[i], i);
+            }
+
+            // Entries of each row in input order, negative for reverse edges
+            int[] offsets = new int[size + 1];
+            int[] a = new int[count], b = new int[count];
+            for(int i=0; i<count; i++) {
+                a[i] = Arrays.binarySearch(ids, 0, size, from[i]);
+                b[i] = Arrays.binarySearch(ids, 0, size, to[i]);
+                offsets[a[i] + 1]++;
+                if(!directed && a[i] != b[i]) offsets[b[i] + 1]++;
+            }
+            for(int i=0; i<size; i++)
+                offsets[i+1] += offsets[i];
+            int[] entries = new int[offsets[size]];
+            int[] fill = Arrays.copyOf(offsets, size);
+            for(int i=0; i<count; i++) {
+                entries[fill[a[i]]++] = i;
+                if(!directed && a[i] != b[i]) entries[fill[b[i]]++] = ~i;
+            }
+
+            // Sort each row by target, keeping only the last of duplicate edges
+            int[] targets = new int[entries.length];
+            Object[] edges = new Object[entries.length];
+            int[] compactOffsets = new int[size + 1];
+            int edgeCount = 0;
+            for(int i=0; i<size; i++) {
+                int start = offsets[i], degree = offsets[i+1] - start;
+                long[] row = new long[degree];
+                for(int j=0; j<degree; j++) {
+                    int e = entries[start + j];
+                    row[j] = ((long) (e >= 0 ? b[e] : a[~e]) << 32) | j;
+                }
+                Arrays.sort(row);
+                for(int j=0; j<degree; j++) {
+                    if(j+1 < degree && (row[j+1] >>> 32) == (row[j] >>> 32)) continue;
+                    targets[edgeCount] = (int) (row[j] >>> 32);
+                    int e = entries[start + (int) row[j]];
+                    edges[edgeCount++] = weights[e >= 0 ? e : ~e];
+                }
+                compactOffsets[i+1] = edgeCount;
+            }
+            return new CompactGraph<>(directed, nodes, index, compactOffsets,
+                    Arrays.copyOf(targets, edgeCount), Arrays.copyOf(edges, edgeCount));
+        }
+
+        @Override
+        public String toString() {
+            return "Edge buffer with " + count + " edges";
+        }
+    }
+
+    /**
+     * A flow network read from a DIMACS max-flow file.
+     */
+    public static final class FlowNetwork {
+
+        /**
+         * The directed graph, with the capacity of each edge as edge value.
+         */
+        @NotNull
+        public final HashGraph<Integer,Double> graph;
+        /**
+         * The source node.
+         */
+        public final int source;
+        /**
+         * The sink node.
+         */
+        public final int sink;
+
+        FlowNetwork(@NotNull HashGraph<Integer,Double> graph, int source, int sink) {
+            this.graph = graph;
+            this.source = source;
+            this.sink = sink;
+        }
+
+        @Override
+        public String toString() {
+            return "Flow network from " + source + " to " + sink + " in " + graph;
+        }
+    }
+
+
+
+    // ---------------------------------------------------------------------
+    // Edge lists
+    // ---------------------------------------------------------------------
+
+    /**
+     * Reads an edge list file with arbitrary node names.
+     *
+     * @param file The file to read
+     * @param directed Whether the graph should be directed
+     * @return The graph described by the file, with the edge weights as edge
+     *         values, or 1 for edges without weight
+     * @throws IOException If an I/O error occurs or the file is malformed
+     */
+    @NotNull
+    public static HashGraph<String,Double> readEdgeList(@NotNull Path file, boolean directed) throws IOException {
+        return readEdgeList(file, directed, Function.identity());
+    }
+
+    /**
+     * Reads an edge list file, converting node names to nodes using the given
+     * function. The same name is only converted once.
+     *
+     * @param file The file to read
+     * @param directed Whether the graph should be directed
+     * @param parser Function to convert node names to nodes
+     * @return The graph described by the file, with the edge weights as edge
+     *         values, or 1 for edges without weight
+     * @throws IOException If an I/O error occurs or the file is malformed
+     */
+    @NotNull
+    public static <N> HashGraph<N,Double> readEdgeList(@NotNull Path file, boolean directed,
+                                                      @NotNull Function<String, ? extends N> parser) throws IOException {
+        Arguments.checkNull(parser, "parser");
+        try(FileChannel channel = FileChannel.open(Arguments.checkNull(file, "file"), StandardOpenOption.READ)) {
+            ByteScanner in = new ByteScanner(channel);
+            Map<String,N> nodes = new HashMap<>();
+            GraphBuilder<N,Double> builder = new GraphBuilder<>(directed);
+            for(; !in.eof(); in.nextLine()) {
+                if(in.endOfLine() || in.peek() == '#' || in.peek() == '%') continue;
+                N a = nodes.computeIfAbsent(in.nextToken(), parser);
+                N b = nodes.computeIfAbsent(in.nextToken(), parser);
+                builder.connect(a, b, in.endOfLine() ? 1 : in.nextDouble());
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Reads an edge list with integer node ids from the given channel.
+     *
+     * @param in The channel to read from
+     * @param sink The sink to report the edges to
+     * @throws IOException If an I/O error occurs or the input is malformed
+     */
+    public static void readEdgeList(@NotNull ReadableByteChannel in, @NotNull EdgeSink sink) throws IOException {
+        Arguments.checkNull(sink, "sink");
+        ByteScanner s = new ByteScanner(Arguments.checkNull(in, "in"));
+        for(; !s.eof(); s.nextLine()) {
+            if(s.endOfLine() || s.peek() == '#' || s.peek() == '%') continue;
+            int a = s.nextInt(), b = s.nextInt();
+            sink.edge(a, b, s.endOfLine() ? 1 : s.nextDouble());
+        }
+    }
+
+    /**
+     * Writes the given graph as edge list. Nodes are written using their
+     * {@link Object#toString()} representation, which must not contain whitespace.
+     * For undirected graphs, each edge is written only once.
+     *
+     * @param graph The graph to write
+     * @param file The file to write to. Existing files will be overridden
+     * @param weight Function to determine the weight of each edge, or
+     *               <code>null</code> to write no weights
+     * @throws IOException If an I/O error occurs
+     */
+    public static <N,E> void writeEdgeList(@NotNull ReadableGraph<N,E> graph, @NotNull Path file,
+                                           @Nullable ToDoubleFunction<? super E> weight) throws IOException {
+        IndexedGraph<N,E> g = IndexedGraph.of(Arguments.checkNull(graph, "graph"));
+        try(Output out = new Output(file)) {
+            for(int i=0; i<g.size(); i++) {
+                String a = Objects.toString(g.node(i));
+                for(long e=g.edgeStart(i), end=g.edgeEnd(i); e<end; e++) {
+                    int j = g.target(e);
+                    if(!g.isDirected() && j < i) continue;
+                    out.put(a).put(' ').put(Objects.toString(g.node(j)));
+                    if(weight != null) out.put(' ').putNumber(weight.applyAsDouble(g.edgeValue(e)));
+                    out.put('\n');
+                }
+            }
+        }
+    }
+
+
+
+    // ---------------------------------------------------------------------
+    // DIMACS
+    // ---------------------------------------------------------------------
+
+    /**
+     * Reads a DIMACS shortest path (<code>.gr</code>) or max-flow
+     * (<code>.max</code>) file.
+     *
+     * @param file The file to read
+     * @return The directed graph described by the file, with the edge lengths or
+     *         capacities as edge values
+     * @throws IOException If an I/O error occurs or the file is malformed
+     */
+    @NotNull
+    public static HashGraph<Integer,Double> readDimacs(@NotNull Path file) throws IOException {
+        EdgeBuffer buffer = new EdgeBuffer();
+        readDimacs(file, buffer);
+        return buffer.toHashGraph(true);
+    }
+
+    /**
+     * Reads a DIMACS max-flow (<code>.max</code>) file.
+     *
+     * @param file The file to read
+     * @return The flow network described by the file
+     * @throws IOException If an I/O error occurs or the file is malformed, or does
+     *                     not declare a source and a sink
+     */
+    @NotNull
+    public static FlowNetwork readDimacsMaxFlow(@NotNull Path file) throws IOException {
+        EdgeBuffer buffer = new EdgeBuffer();
+        readDimacs(file, buffer);
+        if(buffer.source < 0 || buffer.sink < 0)
+            throw new IOException("Flow network without source or sink");
+        return new FlowNetwork(buffer.toHashGraph(true), buffer.source, buffer.sink);
+    }
+
+    /**
+     * Reads a DIMACS shortest path or max-flow file.
+     *
+     * @param file The file to read
+     * @param sink The sink to report the edges to
+     * @throws IOException If an I/O error occurs or the file is malformed
+     */
+    public static void readDimacs(@NotNull Path file, @NotNull EdgeSink sink) throws IOException {
+        try(FileChannel channel = FileChannel.open(Arguments.checkNull(file, "file"), StandardOpenOption.READ)) {
+            readDimacs(channel, sink);
+        }
+    }
+
+    /**
+     * Reads a DIMACS shortest path or max-flow file from the given channel. Arcs
+     * are reported as edges, with the length or capacity as weight.
+     *
+     * @param in The channel to read from
+     * @param sink The sink to report the edges to
+     * @throws IOException If an I/O error occurs or the input is malformed
+     */
+    public static void readDimacs(@NotNull ReadableByteChannel in, @NotNull EdgeSink sink) throws IOException {
+        Arguments.checkNull(sink, "sink");
+        ByteScanner s = new ByteScanner(Arguments.checkNull(in, "in"));
+        for(; !s.eof(); s.nextLine()) {
+            if(s.endOfLine()) continue;
+            String type;
+            switch(s.peek()) {
+                case 'c': break;
+                case 'a':
+                    s.nextToken();
+                    int a = s.nextInt(), b = s.nextInt();
+                    sink.edge(a, b, s.nextDouble());
+                    break;
+                case 'p':
+                    s.nextToken();
+                    type = s.nextToken();
+                    if(!type.equals("sp") && !type.equals("max"))
+                        throw s.error("Unsupported problem type '" + type + "'");
+                    sink.nodes(s.nextInt());
+                    break;
+                case 'n':
+                    s.nextToken();
+                    int node = s.nextInt();
+                    type = s.nextToken();
+                    if(!type.equals("s") && !type.equals("t"))
+                        throw s.error("Unknown node designator '" + type + "'");
+                    sink.terminal(node, type.equals("s"));
+                    break;
+                default: throw s.error("Unknown line type");
+            }
+        }
+    }
+
+    /**
+     * Writes the given graph as DIMACS shortest path file. The nodes are numbered
+     * from 1 in iteration order. Undirected edges are written in both directions.
+     *
+     * @param graph The graph to write
+     * @param file The file to write to. Existing files will be overridden
+     * @param edgeLength Function to determine the length of each edge
+     * @throws IOException If an I/O error occurs
+     */
+    public static <N,E> void writeDimacs(@NotNull ReadableGraph<N,E> graph, @NotNull Path file,
+                                         @NotNull ToDoubleFunction<? super E> edgeLength) throws IOException {
+        IndexedGraph<N,E> g = IndexedGraph.of(Arguments.checkNull(graph, "graph"));
+        try(Output out = new Output(file)) {
+            out.put("p sp ").putNumber(g.size()).put(' ').putNumber(edges(g)).put('\n');
+            writeArcs(g, out, Arguments.checkNull(edgeLength, "edgeLength"));
+        }
+    }
+
+    /**
+     * Writes the given graph as DIMACS max-flow file. The nodes are numbered from 1
+     * in iteration order. Undirected edges are written in both directions.
+     *
+     * @param graph The graph to write
+     * @param source The source of the flow
+     * @param sink The sink of the flow
+     * @param file The file to write to. Existing files will be overridden
+     * @param capacity Function to determine the capacity of each edge
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If the source or sink are not in the graph
+     */
+    public static <N,E> void writeDimacsMaxFlow(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N sink,
+                                                @NotNull Path file, @NotNull ToDoubleFunction<? super E> capacity) throws IOException {
+        IndexedGraph<N,E> g = IndexedGraph.of(Arguments.checkNull(graph, "graph"));
+        int s = g.indexOf(Arguments.checkNull(source, "source")), t = g.indexOf(Arguments.checkNull(sink, "sink"));
+        if(s < 0) throw new IllegalArgumentException("Source is not in the graph: " + source);
+        if(t < 0) throw new IllegalArgumentException("Sink is not in the graph: " + sink);
+        try(Output out = new Output(file)) {
+            out.put("p max ").putNumber(g.size()).put(' ').putNumber(edges(g)).put('\n');
+            out.put("n ").putNumber(s + 1).put(" s\n");
+            out.put("n ").putNumber(t + 1).put(" t\n");
+            writeArcs(g, out, Arguments.checkNull(capacity, "capacity"));
+        }
+    }
+
+    private static <N,E> void writeArcs(IndexedGraph<N,E> g, Output out, ToDoubleFunction<? super E> weight) throws IOException {
+        for(int i=0; i<g.size(); i++) {
+            for(long e=g.edgeStart(i), end=g.edgeEnd(i); e<end; e++) {
+                out.put("a ").putNumber(i + 1).put(' ').putNumber(g.target(e) + 1).put(' ')
+                        .putNumber(weight.applyAsDouble(g.edgeValue(e))).put('\n');
+            }
+        }
+    }
+
+    private static long edges(IndexedGraph<?,?> g) {
+        return g.size() == 0 ? 0 : g.edgeEnd(g.size() - 1);
+    }
+
+
+
+    // ---------------------------------------------------------------------
+    // METIS
+    // ---------------------------------------------------------------------
+
+    /**
+     * Reads a METIS graph file.
+     *
+     * @param file The file to read
+     * @return The undirected graph described by the file, with the edge weights as
+     *         edge values, or 1 if the file has no edge weights
+     * @throws IOException If an I/O error occurs or the file is malformed
+     */
+    @NotNull
+    public static HashGraph<Integer,Double> readMetis(@NotNull Path file) throws IOException {
+        EdgeBuffer buffer = new EdgeBuffer();
+        try(FileChannel channel = FileChannel.open(Arguments.checkNull(file, "file"), StandardOpenOption.READ)) {
+            readMetis(channel, buffer);
+        }
+        return buffer.toHashGraph(false);
+    }
+
+    /**
+     * Reads a METIS graph file from the given channel. Vertex sizes and weights are
+     * skipped. Because METIS lists each edge for both of its nodes, each edge is
+     * only reported once, from the node with the smaller id.
+     *
+     * @param in The channel to read from
+     * @param sink The sink to report the edges to
+     * @throws IOException If an I/O error occurs or the input is malformed
+     */
+    public static void readMetis(@NotNull ReadableByteChannel in, @NotNull EdgeSink sink) throws IOException {
+        Arguments.checkNull(sink, "sink");
+        ByteScanner s = new ByteScanner(Arguments.checkNull(in, "in"));
+        while(!s.eof() && (s.peek() == '%' || s.endOfLine()))
+            s.nextLine();
+        if(s.eof()) throw s.error("Missing header");
+
+        int nodes = s.nextInt();
+        s.nextLong(); // Edge count
+        int format = s.endOfLine() ? 0 : s.nextInt();
+        int constraints = s.endOfLine() ? 1 : s.nextInt();
+        boolean sizes = format / 100 % 10 != 0, nodeWeights = format / 10 % 10 != 0, edgeWeights = format % 10 != 0;
+        s.nextLine();
+        sink.nodes(nodes);
+
+        for(int node=1; node<=nodes; node++) {
+            while(!s.eof() && s.peek() == '%')
+                s.nextLine();
+            if(s.eof()) throw s.error("Expected " + nodes + " nodes, found " + (node - 1));
+            if(sizes) s.nextLong();
+            if(nodeWeights)
+                for(int i=0; i<constraints; i++) s.nextLong();
+            while(!s.endOfLine()) {
+                int other = s.nextInt();
+                double weight = edgeWeights ? s.nextDouble() : 1;
+                if(other < 1 || other > nodes) throw s.error("Invalid node " + other);
+                if(node < other) sink.edge(node, other, weight);
+            }
+            s.nextLine();
+        }
+    }
+
+    /**
+     * Writes the given undirected graph as METIS graph file. The nodes are numbered
+     * from 1 in iteration order.
+     *
+     * @param graph The graph to write
+     * @param file The file to write to. Existing files will be overridden
+     * @param weight Function to determine the integer weight of each edge, or
+     *               <code>null</code> to write no weights
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If the graph is directed or contains
+     *                                  self-loops, which METIS does not support
+     */
+    public static <N,E> void writeMetis(@NotNull ReadableGraph<N,E> graph, @NotNull Path file,
+                                        @Nullable ToLongFunction<? super E> weight) throws IOException {
+        IndexedGraph<N,E> g = IndexedGraph.of(Arguments.checkNull(graph, "graph"));
+        if(g.isDirected()) throw new IllegalArgumentException("METIS files only support undirected graphs");
+        for(int i=0; i<g.size(); i++)
+            for(long e=g.edgeStart(i), end=g.edgeEnd(i); e<end; e++)
+                if(g.target(e) == i) throw new IllegalArgumentException("METIS files do not support self-loops: " + g.node(i));
+
+        try(Output out = new Output(file)) {
+            out.putNumber(g.size()).put(' ').putNumber(edges(g) / 2);
+            if(weight != null) out.put(" 001");
+            out.put('\n');
+            for(int i=0; i<g.size(); i++) {
+                for(long e=g.edgeStart(i), end=g.edgeEnd(i); e<end; e++) {
+                    if(e != g.edgeStart(i)) out.put(' ');
+                    out.putNumber(g.target(e) + 1);
+                    if(weight != null) out.put(' ').putNumber(weight.applyAsLong(g.edgeValue(e)));
+                }
+                out.put('\n');
+            }
+        }
+    }
+
+
+
+    /**
+     * Buffered ASCII output to a file.
+     */
+    private static final class Output implements AutoCloseable {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private final byte[] digits = new byte[20];
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(Arguments.checkNull(file, "file"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        Output put(char c) throws IOException {
+            if(!buffer.hasRemaining()) flush();
+            buffer.put((byte) c);
+            return this;
+        }
+
+        Output put(String s) throws IOException {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            for(int i=0; i<bytes.length;) {
+                if(!buffer.hasRemaining()) flush();
+                int length = Math.min(bytes.length - i, buffer.remaining());
+                buffer.put(bytes, i, length);
+                i += length;
+            }
+            return this;
+        }
+
+        Output putNumber(long value) throws IOException {
+            if(value == Long.MIN_VALUE) return put(Long.toString(value));
+            if(value < 0) {
+                put('-');
+                value = -value;
+            }
+            int i = digits.length;
+            do {
+                digits[--i] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while(value != 0);
+            if(buffer.remaining() < digits.length - i) flush();
+            buffer.put(digits, i, digits.length - i);
+            return this;
+        }
+
+        Output putNumber(double value) throws IOException {
+            if(value == (long) value) return putNumber((long) value);
+            return put(Double.toString(value));
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
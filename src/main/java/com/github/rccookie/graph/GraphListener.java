@@ -0,0 +1,27 @@
+package com.github.rccookie.graph;
+
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener for changes of a graph. Changes are delivered in batches: each
+ * mutating method call results in one batch, containing for example the removal
+ * of all edges of a removed node followed by the removal of the node itself, and
+ * {@link HashGraph#batch(Runnable)} groups the changes of several calls.
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ * @see HashGraph#addListener(GraphListener)
+ */
+@FunctionalInterface
+public interface GraphListener<N,E> {
+
+    /**
+     * Called after the graph changed.
+     *
+     * @param events The changes in the order they were made. The list is
+     *               unmodifiable and is not changed afterwards
+     */
+    void graphChanged(@NotNull List<GraphEvent<N,E>> events);
+}
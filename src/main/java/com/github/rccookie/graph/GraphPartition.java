@@ -0,0 +1,321 @@
+package com.github.rccookie.graph;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The result of partitioning a graph into a fixed number of parts. Each node is
+ * assigned to exactly one part, numbered from 0. An edge between nodes of different
+ * parts is a cut edge, and nodes with at least one cut edge (in either direction)
+ * are boundary nodes.
+ * <p>For distributed processing, each part can be extracted as {@link Shard},
+ * which additionally contains the nodes of other parts adjacent to it as ghost
+ * nodes.</p>
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ * @see Graphs#partition(ReadableGraph, int, double, ToDoubleFunction)
+ */
+public class GraphPartition<N,E> {
+
+    private final IndexedGraph<N,E> graph;
+    private final int parts;
+    private final int[] part;
+    private final int[] sizes;
+    private final boolean[] boundary;
+    private final long cutEdges;
+    private final double cutWeight;
+
+    GraphPartition(IndexedGraph<N,E> graph, ToDoubleFunction<? super E> edgeWeight, int parts, int[] part) {
+        this.graph = graph;
+        this.parts = parts;
+        this.part = part;
+
+        sizes = new int[parts];
+        for(int p : part) sizes[p]++;
+
+        boundary = new boolean[part.length];
+        long cutEdges = 0;
+        double cutWeight = 0;
+        for(int i=0; i<part.length; i++) {
+            for(long e=graph.edgeStart(i), end=graph.edgeEnd(i); e<end; e++) {
+                int j = graph.target(e);
+                if(part[i] == part[j]) continue;
+                boundary[i] = boundary[j] = true;
+                cutEdges++;
+                cutWeight += edgeWeight.applyAsDouble(graph.edgeValue(e));
+            }
+        }
+        // Undirected edges have been counted in both directions
+        this.cutEdges = graph.isDirected() ? cutEdges : cutEdges / 2;
+        this.cutWeight = graph.isDirected() ? cutWeight : cutWeight / 2;
+    }
+
+    /**
+     * Returns the number of parts.
+     *
+     * @return The number of parts
+     */
+    public int parts() {
+        return parts;
+    }
+
+    /**
+     * Returns the part the given node is assigned to.
+     *
+     * @param node The node to get the part of
+     * @return The part of the node, between 0 (inclusive) and {@link #parts()} (exclusive)
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    public int partOf(@NotNull N node) {
+        return part[indexOf(node)];
+    }
+
+    /**
+     * Returns the number of nodes in the given part.
+     *
+     * @param part The part to get the size of
+     * @return The number of nodes assigned to the part
+     */
+    public int size(int part) {
+        return sizes[Objects.checkIndex(part, parts)];
+    }
+
+    /**
+     * Returns the nodes assigned to the given part.
+     *
+     * @param part The part to get the nodes of
+     * @return A new set containing the nodes of the part
+     */
+    @NotNull
+    public Set<N> nodes(int part) {
+        Set<N> nodes = new HashSet<>(size(part) * 4 / 3 + 1);
+        for(int i=0; i<this.part.length; i++)
+            if(this.part[i] == part) nodes.add(graph.node(i));
+        return nodes;
+    }
+
+    /**
+     * Returns whether the given node has an edge from or to a node of another part.
+     *
+     * @param node The node to test
+     * @return Whether the node is a boundary node
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    public boolean isBoundary(@NotNull N node) {
+        return boundary[indexOf(node)];
+    }
+
+    /**
+     * Returns the number of edges between nodes of different parts. Undirected
+     * edges are counted once.
+     *
+     * @return The number of cut edges
+     */
+    public long cutEdges() {
+        return cutEdges;
+    }
+
+    /**
+     * Returns the total weight of all edges between nodes of different parts, as
+     * determined by the edge weight function used for partitioning.
+     *
+     * @return The total weight of the cut edges
+     */
+    public double cutWeight() {
+        return cutWeight;
+    }
+
+    /**
+     * Returns how much larger the largest part is than a perfectly balanced part,
+     * relative to the size of a perfectly balanced part. For example, 0.05 means that
+     * the largest part contains 5% more nodes than the average part.
+     *
+     * @return The imbalance of the partition
+     */
+    public double imbalance() {
+        if(part.length == 0) return 0;
+        int max = 0;
+        for(int size : sizes) max = Math.max(max, size);
+        return (double) max * parts / part.length - 1;
+    }
+
+    /**
+     * Extracts the given part of the graph as shard.
+     *
+     * @param part The part to extract
+     * @return A new shard containing the part
+     */
+    @NotNull
+    public Shard<N,E> shard(int part) {
+        Objects.checkIndex(part, parts);
+        HashGraph<N,E> shard = new HashGraph<>(graph.isDirected());
+        Map<N,Integer> ghosts = new HashMap<>();
+        Set<N> boundary = new HashSet<>();
+        for(int i=0; i<this.part.length; i++) {
+            if(this.part[i] == part) {
+                N a = graph.node(i);
+                shard.add(a);
+                if(this.boundary[i]) boundary.add(a);
+                for(long e=graph.edgeStart(i), end=graph.edgeEnd(i); e<end; e++) {
+                    int j = graph.target(e);
+                    N b = graph.node(j);
+                    if(this.part[j] != part) ghosts.put(b, this.part[j]);
+                    shard.connect(a, b, graph.edgeValue(e));
+                }
+            }
+            // Incoming edges from other parts, only present in directed graphs
+            else if(graph.isDirected() && this.boundary[i]) {
+                N b = null;
+                for(long e=graph.edgeStart(i), end=graph.edgeEnd(i); e<end; e++) {
+                    int j = graph.target(e);
+                    if(this.part[j] != part) continue;
+                    if(b == null) {
+                        b = graph.node(i);
+                        ghosts.put(b, this.part[i]);
+                    }
+                    shard.connect(b, graph.node(j), graph.edgeValue(e));
+                }
+            }
+        }
+        return new Shard<>(part, shard, Collections.unmodifiableMap(ghosts), Collections.unmodifiableSet(boundary));
+    }
+
+    /**
+     * Returns a list view of the shards of all parts. The shards are extracted when
+     * requested and not cached.
+     *
+     * @return The shards of all parts, indexed by part
+     */
+    @NotNull
+    public List<Shard<N,E>> shards() {
+        return new AbstractList<>() {
+            @Override
+            public Shard<N,E> get(int index) {
+                return shard(index);
+            }
+
+            @Override
+            public int size() {
+                return parts;
+            }
+        };
+    }
+
+    private int indexOf(N node) {
+        int i = graph.indexOf(Arguments.checkNull(node, "node"));
+        if(i < 0) throw new IllegalArgumentException("Node is not in the graph: " + node);
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return "Partition into " + parts + " parts with " + cutEdges + " cut edges of " + graph;
+    }
+
+
+
+    /**
+     * A single part of a partitioned graph. The shard's graph contains all nodes of
+     * the part and all edges from and to them. Nodes of other parts that are
+     * connected to the part are included as ghost nodes; edges between ghost nodes
+     * are not included.
+     *
+     * @param <N> The node type
+     * @param <E> The edge type
+     */
+    public static final class Shard<N,E> {
+
+        private final int part;
+        private final HashGraph<N,E> graph;
+        private final Map<N,Integer> ghosts;
+        private final Set<N> boundary;
+
+        Shard(int part, HashGraph<N,E> graph, Map<N,Integer> ghosts, Set<N> boundary) {
+            this.part = part;
+            this.graph = graph;
+            this.ghosts = ghosts;
+            this.boundary = boundary;
+        }
+
+        /**
+         * Returns the part this shard contains.
+         *
+         * @return The part of this shard
+         */
+        public int part() {
+            return part;
+        }
+
+        /**
+         * Returns the graph of this shard, including the ghost nodes. The graph is
+         * independent of the partitioned graph.
+         *
+         * @return The shard's graph
+         */
+        @NotNull
+        public HashGraph<N,E> graph() {
+            return graph;
+        }
+
+        /**
+         * Returns the ghost nodes of this shard, which are nodes of other parts
+         * connected to this part.
+         *
+         * @return The ghost nodes
+         */
+        @NotNull
+        public Set<N> ghosts() {
+            return ghosts.keySet();
+        }
+
+        /**
+         * Returns whether the given node is a ghost node of this shard.
+         *
+         * @param node The node to test
+         * @return Whether the node is a ghost node
+         */
+        public boolean isGhost(Object node) {
+            return ghosts.containsKey(node);
+        }
+
+        /**
+         * Returns the part that owns the given ghost node.
+         *
+         * @param ghost The ghost node
+         * @return The part the node is assigned to
+         * @throws IllegalArgumentException If the node is not a ghost node of this shard
+         */
+        public int owner(@NotNull N ghost) {
+            Integer owner = ghosts.get(Arguments.checkNull(ghost, "ghost"));
+            if(owner == null) throw new IllegalArgumentException("Not a ghost node: " + ghost);
+            return owner;
+        }
+
+        /**
+         * Returns the nodes of this part that are connected to ghost nodes.
+         *
+         * @return The boundary nodes of this part
+         */
+        @NotNull
+        public Set<N> boundary() {
+            return boundary;
+        }
+
+        @Override
+        public String toString() {
+            return "Shard " + part + " with " + (graph.size() - ghosts.size()) + " nodes and " + ghosts.size() + " ghost nodes";
+        }
+    }
+}
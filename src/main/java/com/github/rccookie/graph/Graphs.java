@@ -1,6 +1,7 @@
 package com.github.rccookie.graph;
 
 import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
@@ -10,7 +11,12 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
@@ -39,31 +45,34 @@ public final class Graphs {
     }
 
 
+    /**
+     * Returns the nodes of the given tree, each one before its children. For
+     * repeated traversals, create a {@link TreeTraversal} once and use its
+     * index-based visitors instead.
+     *
+     * @param tree The tree to traverse
+     * @return The nodes in prefix order
+     */
     @NotNull
-    public static <N> ListStream<N> traversePrefix(Tree<N,?> tree) {
+    public static <N> ListStream<N> traversePrefix(@NotNull Tree<N,?> tree) {
+        Arguments.checkNull(tree, "tree");
         if(tree.isEmpty()) return ListStream.empty();
-        return traverseDepthFirst(tree, tree.root());
+        return ListStream.of((Iterator<N>) new TreeTraversal<>(tree).prefixOrder().iterator());
     }
 
+    /**
+     * Returns the nodes of the given tree, each one after its children. For
+     * repeated traversals, create a {@link TreeTraversal} once and use its
+     * index-based visitors instead.
+     *
+     * @param tree The tree to traverse
+     * @return The nodes in postfix order
+     */
     @NotNull
-    public static <N> ListStream<N> traversePostfix(Tree<N,?> tree) {
+    public static <N> ListStream<N> traversePostfix(@NotNull Tree<N,?> tree) {
+        Arguments.checkNull(tree, "tree");
         if(tree.isEmpty()) return ListStream.empty();
-
-        Deque<T2<N,Iterator<N>>> queued = new ArrayDeque<>();
-        queued.add(t(tree.root(), tree.adj(tree.root()).iterator()));
-
-        return ListStream.of((Iterator<N>) new RecursiveStepIterator<N>() {
-            @Override
-            protected N getNext() {
-                if(queued.isEmpty()) return null;
-                Iterator<N> it;
-                while((it = queued.getFirst().b).hasNext()) {
-                    N n = it.next();
-                    queued.add(t(n, tree.adj(n).iterator()));
-                }
-                return queued.pop().a;
-            }
-        });
+        return ListStream.of((Iterator<N>) new TreeTraversal<>(tree).postfixOrder().iterator());
     }
 
     @NotNull
@@ -270,22 +279,22 @@ public final class Graphs {
 
     public static <N extends intN<N,?>, E extends Number> DistancePath<N,E> shortPath(@NotNull ReadableGraph<N,E> graph,
                                           @NotNull N source, @NotNull N target) {
-        return shortestPath(graph, source, target, Number::doubleValue, intN::sqrDist);
+        return shortestPath(graph, source, target, WeightedGraph.DOUBLE_VALUE, intN::sqrDist);
     }
 
     public static <N extends floatN<N,?>, E extends Number> DistancePath<N,E> shortPath(@NotNull ReadableGraph<N,E> graph,
                                                                                         @NotNull N source, @NotNull N target) {
-        return shortestPath(graph, source, target, Number::doubleValue, (a,b) -> a.sqrDist(b));
+        return shortestPath(graph, source, target, WeightedGraph.DOUBLE_VALUE, (a,b) -> a.sqrDist(b));
     }
 
     public static <N extends intN<N,?>, E extends Number> DistancePath<N,E> shortestPath(@NotNull ReadableGraph<N,E> graph,
                                                                                          @NotNull N source, @NotNull N target) {
-        return shortestPath(graph, source, target, Number::doubleValue, intN::dist);
+        return shortestPath(graph, source, target, WeightedGraph.DOUBLE_VALUE, intN::dist);
     }
 
     public static <N extends floatN<N,?>, E extends Number> DistancePath<N,E> shortestPath(@NotNull ReadableGraph<N,E> graph,
                                                                                            @NotNull N source, @NotNull N target) {
-        return shortestPath(graph, source, target, Number::doubleValue, (a,b) -> a.dist(b));
+        return shortestPath(graph, source, target, WeightedGraph.DOUBLE_VALUE, (a,b) -> a.dist(b));
     }
 
     public static <N,E> DistancePath<N,E> shortestPath(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
@@ -301,8 +310,14 @@ public final class Graphs {
     public static <N,E> DistancePath<N,E> shortestPath(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
                                                        @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic,
                                                        @NotNull Algorithm.ShortestPath algorithm) {
+        return shortestPath(graph, source, target, edgeLength, heuristic, algorithm, Instrumentation.NONE);
+    }
+
+    public static <N,E> DistancePath<N,E> shortestPath(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
+                                                       @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic,
+                                                       @NotNull Algorithm.ShortestPath algorithm, @NotNull Instrumentation instrumentation) {
         return Arguments.checkNull(algorithm, "algorithm")
-                .compute(graph, source, target, edgeLength, heuristic);
+                .compute(graph, source, target, edgeLength, heuristic, instrumentation);
     }
 
     // ------------------------------------
@@ -311,7 +326,7 @@ public final class Graphs {
 
     @NotNull
     public static <N,E extends Number> MapGraph<N,Double,E> shortestPaths(@NotNull ReadableGraph<N,E> graph, @NotNull N source) {
-        return shortestPaths(graph, source, Number::doubleValue);
+        return shortestPaths(graph, source, WeightedGraph.DOUBLE_VALUE);
     }
 
     @NotNull
@@ -328,13 +343,100 @@ public final class Graphs {
                 .compute(graph, source, edgeLength);
     }
 
+    /**
+     * Searches for a cycle with negative overall length that is reachable from the
+     * given source, using {@link Algorithm.SingleSourceShortestPath#BELLMAN_FORD}.
+     *
+     * @param graph The graph to search in
+     * @param source The node to start from
+     * @param edgeLength Function to determine the length of an edge
+     * @return A negative cycle, closed by the edge from its last to its first node,
+     *         or <code>null</code> if none is reachable from the source
+     * @see NegativeCycleException#cycle()
+     */
+    @Nullable
+    public static <N,E> DistancePath<N,E> negativeCycle(@NotNull ReadableGraph<N,E> graph, @NotNull N source,
+                                                        @NotNull ToDoubleFunction<? super E> edgeLength) {
+        try {
+            Algorithm.SingleSourceShortestPath.BELLMAN_FORD.compute(graph, source, edgeLength);
+            return null;
+        } catch(NegativeCycleException e) {
+            return e.cycle();
+        }
+    }
+
+    @NotNull
+    public static <N,E extends Number> ShortestPathTree<N,E> shortestPathTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source) {
+        return shortestPathTree(graph, source, WeightedGraph.DOUBLE_VALUE);
+    }
+
+    @NotNull
+    public static <N,E> ShortestPathTree<N,E> shortestPathTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source,
+                                                              @NotNull ToDoubleFunction<? super E> edgeLength) {
+        return shortestPathTree(graph, source, edgeLength, Algorithm.SingleSourceShortestPath.DIJKSTRA);
+    }
+
+    @NotNull
+    public static <N,E> ShortestPathTree<N,E> shortestPathTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source,
+                                                              @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                              @NotNull Algorithm.SingleSourceShortestPath algorithm) {
+        return shortestPathTree(graph, source, edgeLength, algorithm, Instrumentation.NONE);
+    }
+
+    @NotNull
+    public static <N,E> ShortestPathTree<N,E> shortestPathTree(@NotNull ReadableGraph<N,E> graph, @NotNull N source,
+                                                              @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                              @NotNull Algorithm.SingleSourceShortestPath algorithm,
+                                                              @NotNull Instrumentation instrumentation) {
+        return Arguments.checkNull(algorithm, "algorithm")
+                .computeTree(graph, source, edgeLength, instrumentation);
+    }
+
+    // ------------------------------------
+    // Multi-Source All-Destinations
+    // ------------------------------------
+
+    @NotNull
+    public static <N,E extends Number> MultiSourceShortestPaths<N,E> nearestSources(@NotNull ReadableGraph<N,E> graph,
+                                                                                  @NotNull Collection<? extends N> sources) {
+        return nearestSources(graph, sources, WeightedGraph.DOUBLE_VALUE);
+    }
+
+    @NotNull
+    public static <N,E> MultiSourceShortestPaths<N,E> nearestSources(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                                   @NotNull ToDoubleFunction<? super E> edgeLength) {
+        return nearestSources(graph, sources, edgeLength, Algorithm.MultiSourceShortestPath.DIJKSTRA);
+    }
+
+    @NotNull
+    public static <N,E> MultiSourceShortestPaths<N,E> nearestSources(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                                   @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                                   @NotNull Algorithm.MultiSourceShortestPath algorithm) {
+        return nearestSources(graph, sources, edgeLength, algorithm, Instrumentation.NONE);
+    }
+
+    @NotNull
+    public static <N,E> MultiSourceShortestPaths<N,E> nearestSources(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                                   @NotNull ToDoubleFunction<? super E> edgeLength,
+                                                                   @NotNull Algorithm.MultiSourceShortestPath algorithm,
+                                                                   @NotNull Instrumentation instrumentation) {
+        return Arguments.checkNull(algorithm, "algorithm")
+                .compute(graph, sources, edgeLength, instrumentation);
+    }
+
+    @NotNull
+    public static <N,E> Map<N,Set<N>> voronoiCells(@NotNull ReadableGraph<N,E> graph, @NotNull Collection<? extends N> sources,
+                                                   @NotNull ToDoubleFunction<? super E> edgeLength) {
+        return nearestSources(graph, sources, edgeLength).cells();
+    }
+
     // ------------------------------------
     // Any-Source All-Destinations
     // ------------------------------------
 
     @NotNull
     public static <N,E extends Number> ShortestPaths<N,E> allShortestPaths(@NotNull ReadableGraph<N,E> graph) {
-        return allShortestPaths(graph, Number::doubleValue);
+        return allShortestPaths(graph, WeightedGraph.DOUBLE_VALUE);
     }
 
     @NotNull
@@ -382,7 +484,7 @@ public final class Graphs {
     @NotNull
     public static <N,E extends Number> Flow<N> maxFlow(@NotNull ReadableGraph<N,E> graph,
                                                        @NotNull N source, @NotNull N drain) {
-        return maxFlow(graph, source, drain, Number::doubleValue);
+        return maxFlow(graph, source, drain, WeightedGraph.DOUBLE_VALUE);
     }
 
     @NotNull
@@ -395,8 +497,166 @@ public final class Graphs {
     public static <N,E> Flow<N> maxFlow(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N drain,
                                         @NotNull ToDoubleFunction<? super E> edgeCapacity,
                                         @NotNull Algorithm.MaxFlowAlg algorithm) {
+        return maxFlow(graph, source, drain, edgeCapacity, algorithm, Instrumentation.NONE);
+    }
+
+    @NotNull
+    public static <N,E> Flow<N> maxFlow(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N drain,
+                                        @NotNull ToDoubleFunction<? super E> edgeCapacity,
+                                        @NotNull Algorithm.MaxFlowAlg algorithm, @NotNull Instrumentation instrumentation) {
+        return Arguments.checkNull(algorithm, "algorithm")
+                .compute(graph, source, drain, edgeCapacity, instrumentation);
+    }
+
+
+
+    // ------------------------------------
+    // Node ordering
+    // ------------------------------------
+
+
+
+    /**
+     * Creates a compact copy of the given graph with the nodes in reverse
+     * Cuthill-McKee order, which places nodes close to their neighbors and thus
+     * improves the memory locality of traversals.
+     *
+     * @param graph The graph to reorder
+     * @return A new compact graph with the nodes in a new order
+     */
+    @NotNull
+    public static <N,E> CompactGraph<N,E> reorder(@NotNull ReadableGraph<N,E> graph) {
+        return reorder(graph, Algorithm.NodeOrdering.REVERSE_CUTHILL_MCKEE);
+    }
+
+    @NotNull
+    public static <N,E> CompactGraph<N,E> reorder(@NotNull ReadableGraph<N,E> graph, @NotNull Algorithm.NodeOrdering ordering) {
+        return Arguments.checkNull(ordering, "ordering").reorder(Arguments.checkNull(graph, "graph"));
+    }
+
+
+
+    // ------------------------------------
+    // Partitioning
+    // ------------------------------------
+
+
+
+    /**
+     * Partitions the given graph into the given number of parts of roughly equal
+     * size with few edges between different parts, allowing an imbalance of 3%.
+     *
+     * @param graph The graph to partition
+     * @param parts The number of parts
+     * @return The partition of the graph
+     */
+    @NotNull
+    public static <N,E> GraphPartition<N,E> partition(@NotNull ReadableGraph<N,E> graph, int parts) {
+        return partition(graph, parts, 0.03, e -> 1);
+    }
+
+    /**
+     * Partitions the given graph into the given number of parts of roughly equal
+     * size, minimizing the total weight of edges between different parts.
+     *
+     * @param graph The graph to partition
+     * @param parts The number of parts
+     * @param imbalance The allowed imbalance: no part may contain more than
+     *                  <code>(1 + imbalance)</code> times the average number of
+     *                  nodes per part
+     * @param edgeWeight Function to determine the weight of an edge
+     * @return The partition of the graph
+     */
+    @NotNull
+    public static <N,E> GraphPartition<N,E> partition(@NotNull ReadableGraph<N,E> graph, int parts, double imbalance,
+                                                      @NotNull ToDoubleFunction<? super E> edgeWeight) {
+        return partition(graph, parts, imbalance, edgeWeight, Algorithm.Partitioner.LABEL_PROPAGATION);
+    }
+
+    @NotNull
+    public static <N,E> GraphPartition<N,E> partition(@NotNull ReadableGraph<N,E> graph, int parts, double imbalance,
+                                                      @NotNull ToDoubleFunction<? super E> edgeWeight,
+                                                      @NotNull Algorithm.Partitioner algorithm) {
         return Arguments.checkNull(algorithm, "algorithm")
-                .compute(graph, source, drain, edgeCapacity);
+                .compute(graph, parts, imbalance, edgeWeight);
+    }
+
+
+
+    // ------------------------------------
+    // Scheduling
+    // ------------------------------------
+
+
+
+    /**
+     * Runs the given task for each node of the given directed acyclic graph on the
+     * common fork-join pool, starting each node as soon as all of its predecessors
+     * have finished.
+     *
+     * @param graph The dependency graph, edges point from a node to the nodes that
+     *              depend on it
+     * @param task The task to run for each node
+     * @return Timing information about the execution
+     * @throws IllegalArgumentException If the graph is undirected or contains a cycle
+     * @see #executeTopologically(ReadableGraph, Consumer, Executor)
+     */
+    @NotNull
+    public static <N,E> DagExecution<N,E> executeTopologically(@NotNull ReadableGraph<N,E> graph, @NotNull Consumer<? super N> task) {
+        return executeTopologically(graph, task, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the given task for each node of the given directed acyclic graph on the
+     * given executor, starting each node as soon as all of its predecessors have
+     * finished. This method blocks until all tasks are done. If a task throws an
+     * exception, no more tasks will be started and the exception is rethrown once
+     * the running tasks have finished.
+     *
+     * @param graph The dependency graph, edges point from a node to the nodes that
+     *              depend on it
+     * @param task The task to run for each node
+     * @param executor The executor to run the tasks on, for example one that starts
+     *                 a virtual thread per task
+     * @return Timing information about the execution
+     * @throws IllegalArgumentException If the graph is undirected or contains a cycle
+     */
+    @NotNull
+    public static <N,E> DagExecution<N,E> executeTopologically(@NotNull ReadableGraph<N,E> graph, @NotNull Consumer<? super N> task,
+                                                               @NotNull Executor executor) {
+        try {
+            return scheduleTopologically(graph, task, executor).join();
+        } catch(CompletionException e) {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if(e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the given task for each node of the given directed acyclic graph on the
+     * given executor, starting each node as soon as all of its predecessors have
+     * finished. This method does not block. If a task throws an exception, no more
+     * tasks will be started and the returned future completes exceptionally once
+     * the running tasks have finished.
+     *
+     * @param graph The dependency graph, edges point from a node to the nodes that
+     *              depend on it. It must not be modified until the execution is done
+     * @param task The task to run for each node
+     * @param executor The executor to run the tasks on
+     * @return A future completing with timing information about the execution, or
+     *         with an {@link IllegalArgumentException} if the graph contains a cycle
+     * @throws IllegalArgumentException If the graph is undirected
+     */
+    @NotNull
+    public static <N,E> CompletableFuture<DagExecution<N,E>> scheduleTopologically(@NotNull ReadableGraph<N,E> graph, @NotNull Consumer<? super N> task,
+                                                                                  @NotNull Executor executor) {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkNull(task, "task");
+        Arguments.checkNull(executor, "executor");
+        return new DagScheduler<>(graph, task, executor).start();
     }
 
 
@@ -422,25 +682,32 @@ public final class Graphs {
         Arguments.checkRange(w, 0, null);
         Arguments.checkRange(h, 0, null);
 
-        Graph<N,E> graph = new HashGraph<>(directed);
+        long edgeCount = ((long) Math.max(0, w-1) * h + (long) w * Math.max(0, h-1)) * (directed ? 2 : 1);
+        GraphBuilder<N,E> builder = new GraphBuilder<>(directed, (int) Math.min(edgeCount, Integer.MAX_VALUE - 8));
         Object[][] nodes = new Object[w][h];
 
         for(int i=0; i<w; i++) for(int j=0; j<h; j++) {
             N n = nodeGenerator.apply(i,j);
             nodes[i][j] = n;
-            if(!graph.add(n)) throw new IllegalArgumentException("Duplicate node received from generator: " + n);
+            builder.add(n);
             if(i != 0) {
-                graph.connect((N) nodes[i-1][j], n, weight);
+                builder.connect((N) nodes[i-1][j], n, weight);
                 if(directed)
-                    graph.connect(n, (N) nodes[i-1][j], weight);
+                    builder.connect(n, (N) nodes[i-1][j], weight);
             }
             if(j != 0) {
-                graph.connect((N) nodes[i][j-1], n, weight);
+                builder.connect((N) nodes[i][j-1], n, weight);
                 if(directed)
-                    graph.connect(n, (N) nodes[i][j-1], weight);
+                    builder.connect(n, (N) nodes[i][j-1], weight);
             }
         }
 
+        Graph<N,E> graph = builder.build();
+        if(graph.size() != w * h) {
+            Set<Object> seen = new HashSet<>();
+            for(Object[] column : nodes) for(Object n : column)
+                if(!seen.add(n)) throw new IllegalArgumentException("Duplicate node received from generator: " + n);
+        }
         return graph;
     }
 
@@ -1,6 +1,9 @@
 package com.github.rccookie.graph;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -13,9 +16,22 @@ import com.github.rccookie.util.Utils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Hash based implementation of {@link Forest}. The edges from each node to its
+ * children are stored in a directed {@link HashGraph}, and the parent of each
+ * non-root node is stored in a separate map, so that adding, moving and looking
+ * up nodes takes constant time.
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
 public class HashForest<N,E> implements Forest<N,E> {
 
-    final Graph<N,E> graph = new HashGraph<>();
+    final HashGraph<N,E> graph = new HashGraph<>();
+    /**
+     * The parent of each node that is not a root.
+     */
+    private final Map<N,N> parents = new HashMap<>();
     private final Set<N> roots = new HashSet<>();
     private Set<N> rootsView = null;
 
@@ -66,7 +82,7 @@ public class HashForest<N,E> implements Forest<N,E> {
 
     @Override
     public int edgeCount() {
-        return graph.size();
+        return parents.size();
     }
 
     @Override
@@ -82,28 +98,39 @@ public class HashForest<N,E> implements Forest<N,E> {
     @Override
     public void clear() {
         graph.clear();
+        parents.clear();
         roots.clear();
     }
 
+    @Override
+    public N parent(@NotNull Object node) {
+        //noinspection SuspiciousMethodCalls
+        return parents.get(node);
+    }
+
     @Override
     public void add(@NotNull N node, @Nullable N parent, E edge) {
-        if(node == parent || parent == null) {
-            graph.add(node);
-            roots.add(node);
+        Arguments.checkNull(node, "node");
+        if(parent == null || node.equals(parent)) {
+            addRoot(node);
             return;
         }
-        // Disconnect from potential parents
-        for(N n : this)
-            if(graph.disconnect(n, node) != null) break; // Edge could also have value null, but probably not
-        roots.remove(node);
+        if(!graph.contains(parent))
+            addRoot(parent);
+
+        N previous = parents.put(node, parent);
+        if(previous != null)
+            graph.disconnect(previous, node);
+        else roots.remove(node);
         graph.connect(parent, node, edge);
     }
 
     @Override
     public void addRoot(@NotNull N node) {
-        // Disconnect from potential parents
-        for(N n : this)
-            if(graph.disconnect(n, node) != null) break;
+        Arguments.checkNull(node, "node");
+        N previous = parents.remove(node);
+        if(previous != null)
+            graph.disconnect(previous, node);
         graph.add(node);
         roots.add(node);
     }
@@ -127,42 +154,60 @@ public class HashForest<N,E> implements Forest<N,E> {
     public void set(@NotNull Object old, @NotNull N now) {
         if(Arguments.checkNull(old, "old")
                 .equals(Arguments.checkNull(now, "now"))) return;
+        if(!graph.contains(old))
+            throw new IllegalArgumentException("Node is not in the forest: " + old);
+        // An ancestor would have to be attached below itself
+        for(N p = parents.get(old); p != null; p = parents.get(p))
+            if(p.equals(now))
+                throw new IllegalArgumentException("Cannot replace " + old + " with its ancestor " + now);
 
         // Disconnect new node from previous parent
-        if(!roots.remove(now)) {
-            for (N n : graph) {
-                if(graph.connected(n, now)) {
-                    graph.disconnect(n, now);
-                    break;
-                }
-            }
-        }
+        N previous = parents.remove(now);
+        if(previous != null)
+            graph.disconnect(previous, now);
+        else roots.remove(now);
 
         // Set parent of new node to parent of old node
-        if(!roots.remove(old)) {
-            for (N n : graph) {
-                if(graph.connected(n, old)) {
-                    graph.connect(n, now, graph.edge(n, old));
-                    break;
-                }
-            }
+        N parent = parents.remove(old);
+        if(parent != null) {
+            graph.connect(parent, now, graph.disconnect(parent, old));
+            parents.put(now, parent);
+        }
+        else {
+            roots.remove(old);
+            roots.add(now);
         }
-        else roots.add(now);
 
         // Connect children
-        graph.adj(old).forEach((n,e) -> graph.connect(n, now, e));
-        // Remove old node
-        graph.remove(old);
+        for(Map.Entry<N,E> child : graph.adj(old).entrySet()) {
+            graph.connect(now, child.getKey(), child.getValue());
+            parents.put(child.getKey(), now);
+        }
+        // Remove old node, which has no incoming edges anymore
+        graph.removeUnreferenced(old);
     }
 
+    @SuppressWarnings("SuspiciousMethodCalls")
     @Override
     public boolean disconnect(@NotNull Object node) {
-        IterableMap<N,?> adj = graph.adj(node);
-        if(adj == null) return false;
-        for(N child : adj)
-            disconnect(child);
-        //noinspection SuspiciousMethodCalls
-        graph.remove(node);
+        if(!graph.contains(node)) return false;
+
+        N parent = parents.remove(node);
+        if(parent != null)
+            graph.disconnect(parent, node);
+        else roots.remove(node);
+
+        // Remove the whole subtree, top-down so that no removed node has a parent
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(node);
+        while(!stack.isEmpty()) {
+            Object n = stack.pop();
+            for(N child : graph.adj(n)) {
+                parents.remove(child);
+                stack.push(child);
+            }
+            graph.removeUnreferenced(n);
+        }
         return true;
     }
 
@@ -174,12 +219,20 @@ public class HashForest<N,E> implements Forest<N,E> {
     @Override
     public @NotNull HashForest<N, E> clone() {
         HashForest<N,E> clone = new HashForest<>();
-        clone.graph.addAll(graph);
-        for(Edge<N,E> e : graph.edges())
-            clone.graph.connect(e.a, e.b, e.value);
+        copyTo(clone);
         return clone;
     }
 
+    /**
+     * Adds all nodes and edges of this forest to the given, empty forest.
+     */
+    void copyTo(HashForest<N,E> forest) {
+        forest.graph.addAll(graph);
+        graph.forEach(forest.graph::connect);
+        forest.parents.putAll(parents);
+        forest.roots.addAll(roots);
+    }
+
     @Override
     public @NotNull HashForest<N, E> newInstance() {
         return new HashForest<>();
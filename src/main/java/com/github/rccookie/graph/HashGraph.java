@@ -1,6 +1,7 @@
 package com.github.rccookie.graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -8,7 +9,12 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import com.github.rccookie.util.Arguments;
 import com.github.rccookie.util.BoolWrapper;
@@ -22,12 +28,20 @@ import org.jetbrains.annotations.Nullable;
 /**
  * HashMap based implementation of {@link Graph}. This is the core implementation of
  * {@link Graph} and {@link ReadableGraph}. A hash graph can be directed or undirected.
+ * <p>Changes of a hash graph can be observed using {@link #addListener(GraphListener)}.
+ * Modifications through views like {@link #nodes()} or {@link #iterator()} are not
+ * reported.</p>
  */
 public class HashGraph<N,E> implements Graph<N,E> {
 
     final boolean directed;
     final Map<N, Map<N,E>> nodes = new HashMap<>();
     private Map<N, Map<N,E>> adjacencyView = null;
+    /**
+     * The listeners of this graph, or <code>null</code> if there are none, so that
+     * mutations only check a single field if nobody listens.
+     */
+    private GraphEvents<N,E> events = null;
 
     /**
      * Creates a new, empty, directed hash graph.
@@ -67,8 +81,9 @@ public class HashGraph<N,E> implements Graph<N,E> {
         this(directed);
         Arguments.checkNull(graph, "graph");
         for(N n : graph) add(n);
-        for(Edge<N,E> e : edges())
-            connect(e.a, e.b, e.value);
+        GraphBuilder<N,E> builder = new GraphBuilder<>(directed, graph.edgeCount());
+        graph.forEach(builder::connect);
+        builder.addTo(this);
     }
 
     @Override
@@ -78,11 +93,14 @@ public class HashGraph<N,E> implements Graph<N,E> {
             diff.value = true;
             return new HashMap<>();
         });
+        if(diff.value && events != null)
+            events.fire(GraphEvent.nodeAdded(node));
         return diff.value;
     }
 
     @Override
     public boolean remove(@NotNull Object node) {
+        if(events != null) return removeAndFire(node);
         if(nodes.remove(node) == null) return false;
         nodes.remove(node);
         for(Map<N,E> adj : nodes.values())
@@ -90,24 +108,65 @@ public class HashGraph<N,E> implements Graph<N,E> {
         return true;
     }
 
+    @SuppressWarnings("unchecked")
+    private boolean removeAndFire(Object node) {
+        Map<N,E> adj = nodes.remove(node);
+        if(adj == null) return false;
+        N n = (N) node;
+        events.begin();
+        try {
+            adj.forEach((m,e) -> events.fire(GraphEvent.edgeRemoved(n, m, e)));
+            for(Map.Entry<N, Map<N,E>> entry : nodes.entrySet()) {
+                Map<N,E> other = entry.getValue();
+                if(!other.containsKey(node)) continue;
+                E e = other.remove(node);
+                // Undirected edges were reported with the outgoing ones
+                if(directed) events.fire(GraphEvent.edgeRemoved(entry.getKey(), n, e));
+            }
+            events.fire(GraphEvent.nodeRemoved(n));
+        } finally {
+            events.end();
+        }
+        return true;
+    }
+
+    /**
+     * Removes the given node and its outgoing edges, assuming that no node has an
+     * edge to it. Unlike {@link #remove(Object)}, this does not search all other
+     * nodes for edges to the removed node.
+     *
+     * @param node The node to remove
+     * @return Whether the node was contained in the graph
+     */
+    boolean removeUnreferenced(@NotNull Object node) {
+        if(events != null) return removeAndFire(node);
+        return nodes.remove(node) != null;
+    }
+
     @Override
     public boolean set(@NotNull Object old, @NotNull N now) {
         Arguments.checkNull(old, "old");
         Arguments.checkNull(now, "now");
         if(!contains(old) || old.equals(now)) return false;
-        BoolWrapper diff = new BoolWrapper(add(now));
-        for(N n : this) {
-            if(connected(n, old)) {
-                connect(n, now, edge(n, old));
-                diff.value = true;
+        GraphEvents<N,E> events = this.events;
+        if(events != null) events.begin();
+        try {
+            BoolWrapper diff = new BoolWrapper(add(now));
+            for(N n : this) {
+                if(connected(n, old)) {
+                    connect(n, now, edge(n, old));
+                    diff.value = true;
+                }
             }
+            //noinspection SuspiciousMethodCalls
+            nodes.get(old).forEach((n,e) -> {
+                diff.value |= !connected(now, n);
+                diff.value |= connect(now, n, e) != e;
+            });
+            return diff.value;
+        } finally {
+            if(events != null) events.end();
         }
-        //noinspection SuspiciousMethodCalls
-        nodes.get(old).forEach((n,e) -> {
-            diff.value |= !connected(now, n);
-            diff.value |= connect(now, n, e) != e;
-        });
-        return diff.value;
     }
 
     @SuppressWarnings("SuspiciousMethodCalls")
@@ -122,28 +181,34 @@ public class HashGraph<N,E> implements Graph<N,E> {
         if(b.equals(into) || !contains(b))
             return set(a, into);
 
-        BoolWrapper diff = new BoolWrapper(add(into));
-        for(N n : this) {
-            if(connected(n, b)) {
-                connect(n, into, edge(n, b));
-                diff.value = true;
-            }
-            else if(connected(n,a)) {
-                connect(n, into, edge(n, a));
-                diff.value = true;
+        GraphEvents<N,E> events = this.events;
+        if(events != null) events.begin();
+        try {
+            BoolWrapper diff = new BoolWrapper(add(into));
+            for(N n : this) {
+                if(connected(n, b)) {
+                    connect(n, into, edge(n, b));
+                    diff.value = true;
+                }
+                else if(connected(n,a)) {
+                    connect(n, into, edge(n, a));
+                    diff.value = true;
+                }
             }
+            nodes.get(a).forEach((n,e) -> {
+                diff.value |= !connected(into, n);
+                diff.value |= connect(into, n, e) != e;
+            });
+            nodes.get(b).forEach((n,e) -> {
+                diff.value |= !connected(into, n);
+                diff.value |= connect(into, n, e) != e;
+            });
+            remove(a);
+            remove(b);
+            return diff.value;
+        } finally {
+            if(events != null) events.end();
         }
-        nodes.get(a).forEach((n,e) -> {
-            diff.value |= !connected(into, n);
-            diff.value |= connect(into, n, e) != e;
-        });
-        nodes.get(b).forEach((n,e) -> {
-            diff.value |= !connected(into, n);
-            diff.value |= connect(into, n, e) != e;
-        });
-        remove(a);
-        remove(b);
-        return diff.value;
     }
 
     @Override
@@ -153,6 +218,17 @@ public class HashGraph<N,E> implements Graph<N,E> {
 
     @Override
     public boolean addAll(@NotNull Collection<? extends N> c) {
+        GraphEvents<N,E> events = this.events;
+        if(events != null) {
+            events.begin();
+            try {
+                boolean diff = false;
+                for(N node : c) diff |= add(node);
+                return diff;
+            } finally {
+                events.end();
+            }
+        }
         BoolWrapper diff = new BoolWrapper(false);
         for(N node : c) nodes.computeIfAbsent(node, n -> {
             diff.value = true;
@@ -172,15 +248,22 @@ public class HashGraph<N,E> implements Graph<N,E> {
 
     @Override
     public boolean removeAll(@NotNull Collection<?> c) {
-        boolean diff = false;
-        for(Object o : c) diff |= remove(o);
-        return diff;
+        GraphEvents<N,E> events = this.events;
+        if(events != null) events.begin();
+        try {
+            boolean diff = false;
+            for(Object o : c) diff |= remove(o);
+            return diff;
+        } finally {
+            if(events != null) events.end();
+        }
     }
 
     @Override
     public E connect(@NotNull N a, @NotNull N b, E edge) {
         Arguments.checkNull(a, "a");
         Arguments.checkNull(b, "b");
+        if(events != null) return connectAndFire(a, b, edge);
         if(directed)
             nodes.computeIfAbsent(b, n -> new HashMap<>());
         else
@@ -188,11 +271,138 @@ public class HashGraph<N,E> implements Graph<N,E> {
         return nodes.computeIfAbsent(a, n -> new HashMap<>()).put(b, edge);
     }
 
+    private E connectAndFire(N a, N b, E edge) {
+        events.begin();
+        try {
+            add(a);
+            add(b);
+            Map<N,E> adj = nodes.get(a);
+            boolean existed = adj.containsKey(b);
+            if(!directed) nodes.get(b).put(a, edge);
+            E old = adj.put(b, edge);
+            if(!existed) events.fire(GraphEvent.edgeAdded(a, b, edge));
+            else if(old != edge) events.fire(GraphEvent.edgeChanged(a, b, old, edge));
+            return old;
+        } finally {
+            events.end();
+        }
+    }
+
+    /**
+     * Connects the start and end node of each of the given edges. Rather than
+     * connecting the edges one by one, the edges are grouped by their start node
+     * and each affected adjacency map is created once with sufficient capacity.
+     *
+     * @param edges The edges to add to the graph
+     * @see GraphBuilder
+     */
+    @Override
+    public void connectAll(@NotNull Iterable<? extends Edge<? extends N, ? extends E>> edges) {
+        new GraphBuilder<N,E>(directed).connectAll(edges).addTo(this);
+    }
+
+    /**
+     * Connects <code>from[i]</code> to <code>to[i]</code> with <code>values[i]</code>
+     * for each <code>i</code> below <code>count</code>, as if by calling
+     * {@link #connect(Object, Object, Object)} in that order.
+     */
+    @SuppressWarnings("unchecked")
+    void connectAll(Object[] from, Object[] to, Object[] values, int count, boolean parallel) {
+        if(count == 0) return;
+        if(events != null) {
+            // Report each edge like single connections
+            events.begin();
+            try {
+                for(int i=0; i<count; i++)
+                    connect((N) from[i], (N) to[i], (E) values[i]);
+            } finally {
+                events.end();
+            }
+            return;
+        }
+
+        // Assign an index to each node
+        Map<Object,Integer> index;
+        int[] a = new int[count], b = new int[count];
+        if(parallel) {
+            Map<Object,Integer> concurrentIndex = new ConcurrentHashMap<>(capacity(count));
+            AtomicInteger next = new AtomicInteger();
+            IntStream.range(0, count).parallel().forEach(i -> {
+                a[i] = concurrentIndex.computeIfAbsent(from[i], $ -> next.getAndIncrement());
+                b[i] = concurrentIndex.computeIfAbsent(to[i], $ -> next.getAndIncrement());
+            });
+            index = concurrentIndex;
+        }
+        else {
+            index = new HashMap<>(capacity(count));
+            for(int i=0; i<count; i++) {
+                Integer j = index.putIfAbsent(from[i], index.size());
+                a[i] = j != null ? j : index.size() - 1;
+                j = index.putIfAbsent(to[i], index.size());
+                b[i] = j != null ? j : index.size() - 1;
+            }
+        }
+        int size = index.size();
+        Object[] byIndex = new Object[size];
+        index.forEach((n,i) -> byIndex[i] = n);
+
+        // Group edges by start node, preserving their order. Negative entries
+        // denote the reverse direction of an undirected edge.
+        int[] offsets = new int[size + 1];
+        for(int i=0; i<count; i++) {
+            offsets[a[i] + 1]++;
+            if(!directed && a[i] != b[i]) offsets[b[i] + 1]++;
+        }
+        for(int i=0; i<size; i++)
+            offsets[i+1] += offsets[i];
+        int[] order = new int[offsets[size]];
+        int[] fill = Arrays.copyOf(offsets, size);
+        for(int i=0; i<count; i++) {
+            order[fill[a[i]]++] = i;
+            if(!directed && a[i] != b[i]) order[fill[b[i]]++] = ~i;
+        }
+
+        // Build the adjacency maps; nodes are independent of each other
+        Map<N,E>[] adj = new Map[size];
+        IntConsumer build = i -> {
+            Map<N,E> old = nodes.get(byIndex[i]);
+            int degree = offsets[i+1] - offsets[i];
+            if(degree == 0) {
+                adj[i] = old != null ? old : new HashMap<>();
+                return;
+            }
+            Map<N,E> map = new HashMap<>(capacity(degree + (old != null ? old.size() : 0)));
+            if(old != null) map.putAll(old);
+            for(int j=offsets[i]; j<offsets[i+1]; j++) {
+                int e = order[j];
+                if(e >= 0) map.put((N) to[e], (E) values[e]);
+                else map.put((N) from[~e], (E) values[~e]);
+            }
+            adj[i] = map;
+        };
+        if(parallel) IntStream.range(0, size).parallel().forEach(build);
+        else for(int i=0; i<size; i++) build.accept(i);
+
+        for(int i=0; i<size; i++)
+            nodes.put((N) byIndex[i], adj[i]);
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
     @SuppressWarnings("SuspiciousMethodCalls")
     @Override
     public E disconnect(@NotNull Object a, @NotNull Object b) {
         Map<N,E> adj = nodes.get(a);
         if(adj == null) return null;
+        if(events != null && adj.containsKey(b)) {
+            E edge = adj.remove(b);
+            if(!directed) nodes.get(b).remove(a);
+            //noinspection unchecked
+            events.fire(GraphEvent.edgeRemoved((N) a, (N) b, edge));
+            return edge;
+        }
         if(directed)
             return adj.remove(b);
         adj.remove(b);
@@ -201,7 +411,7 @@ public class HashGraph<N,E> implements Graph<N,E> {
         return adj.remove(a);
     }
 
-    @SuppressWarnings("SuspiciousMethodCalls")
+    @SuppressWarnings({"SuspiciousMethodCalls", "unchecked"})
     @Override
     public boolean disconnectAll(@NotNull Object node) {
         Map<N,E> adj = nodes.get(node);
@@ -210,6 +420,16 @@ public class HashGraph<N,E> implements Graph<N,E> {
             for(N n : adj.keySet())
                 if(!Objects.equals(n, node))
                     nodes.get(n).remove(node);
+        if(events != null) {
+            events.begin();
+            try {
+                adj.forEach((n,e) -> events.fire(GraphEvent.edgeRemoved((N) node, n, e)));
+                adj.clear();
+            } finally {
+                events.end();
+            }
+            return true;
+        }
         adj.clear();
         return true;
     }
@@ -301,7 +521,77 @@ public class HashGraph<N,E> implements Graph<N,E> {
 
     @Override
     public void clear() {
-        nodes.clear();
+        if(events != null && !nodes.isEmpty()) {
+            nodes.clear();
+            events.fire(GraphEvent.cleared());
+        }
+        else nodes.clear();
+    }
+
+    /**
+     * Registers the given listener to be notified synchronously after each change
+     * of this graph. Exceptions thrown by the listener are propagated to the caller
+     * of the mutating method, after the change was made.
+     *
+     * @param listener The listener to add
+     */
+    public void addListener(@NotNull GraphListener<N,E> listener) {
+        addListener0(listener, null);
+    }
+
+    /**
+     * Registers the given listener to be notified asynchronously after changes of
+     * this graph. The batches are passed to the listener in the order of the
+     * changes, one at a time, even if the executor runs tasks concurrently. Note
+     * that the graph may have changed further when the listener is called; the
+     * listener should only use the information of the events.
+     *
+     * @param listener The listener to add
+     * @param executor The executor to notify the listener on
+     */
+    public void addListener(@NotNull GraphListener<N,E> listener, @NotNull Executor executor) {
+        addListener0(listener, Arguments.checkNull(executor, "executor"));
+    }
+
+    private void addListener0(GraphListener<N,E> listener, Executor executor) {
+        Arguments.checkNull(listener, "listener");
+        if(events == null) events = new GraphEvents<>();
+        events.add(listener, executor);
+    }
+
+    /**
+     * Unregisters the given listener.
+     *
+     * @param listener The listener to remove
+     * @return Whether the listener was registered
+     */
+    public boolean removeListener(@NotNull GraphListener<N,E> listener) {
+        Arguments.checkNull(listener, "listener");
+        if(events == null || !events.remove(listener)) return false;
+        if(events.isEmpty()) events = null;
+        return true;
+    }
+
+    /**
+     * Runs the given mutations of this graph and notifies the listeners of all
+     * resulting changes in a single batch, rather than once per mutation. Batches
+     * can be nested; the events are delivered when the outermost batch completes.
+     *
+     * @param mutations The mutations to run
+     */
+    public void batch(@NotNull Runnable mutations) {
+        Arguments.checkNull(mutations, "mutations");
+        GraphEvents<N,E> events = this.events;
+        if(events == null) {
+            mutations.run();
+            return;
+        }
+        events.begin();
+        try {
+            mutations.run();
+        } finally {
+            events.end();
+        }
     }
 
     @Override
@@ -42,6 +42,21 @@ public class HashMapGraph<N,V,E> extends HashGraph<N,E> implements MapGraph<N,V,
         super(graph, directed);
     }
 
+    /**
+     * Creates the single source shortest path result graph from the given distances
+     * and predecessors: every node is mapped to its distance and, if it has a
+     * predecessor, connected to it with the edge that connects the predecessor to it.
+     */
+    static <N,E> HashMapGraph<N,Double,E> ofPredecessors(IndexedGraph<N,E> graph, double[] d, int[] p, long[] pe) {
+        HashMapGraph<N,Double,E> result = new HashMapGraph<>();
+        for(int i=0; i<d.length; i++)
+            result.add(graph.node(i), d[i]);
+        for(int i=0; i<d.length; i++)
+            if(p[i] >= 0)
+                result.connect(graph.node(i), graph.node(p[i]), graph.edgeValue(pe[i]));
+        return result;
+    }
+
     @Override
     public boolean add(@NotNull N node) {
         return add(node, null);
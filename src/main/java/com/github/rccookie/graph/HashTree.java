@@ -15,7 +15,7 @@ public class HashTree<N,E> extends HashForest<N,E> implements Tree<N,E> {
 
     public HashTree(@Nullable N root) {
         if(root != null)
-            graph.add(this.root = root);
+            addRoot(root);
     }
 
 
@@ -29,7 +29,8 @@ public class HashTree<N,E> extends HashForest<N,E> implements Tree<N,E> {
     @Override
     public void addRoot(@NotNull N node) {
         if(root != null) throw new IllegalStateException("Tree already has a root");
-        graph.add(root = node);
+        super.addRoot(node);
+        root = node;
     }
 
     @Override
@@ -43,14 +44,14 @@ public class HashTree<N,E> extends HashForest<N,E> implements Tree<N,E> {
     public void set(@NotNull Object old, @NotNull N now) {
         Arguments.checkNull(old, "old");
         Arguments.checkNull(now, "now");
-        if(root == old) root = now;
         super.set(old, now);
+        if(old.equals(root)) root = now;
     }
 
     @Override
     public boolean disconnect(@NotNull Object node) {
         if(!contains(node)) return false;
-        if(node == root)
+        if(node.equals(root))
             clear();
         else super.disconnect(node);
         return true;
@@ -70,11 +71,8 @@ public class HashTree<N,E> extends HashForest<N,E> implements Tree<N,E> {
     @Override
     public @NotNull HashTree<N,E> clone() {
         HashTree<N,E> clone = new HashTree<>();
-        if(root != null) {
-            clone.addRoot(root);
-            for(Edge<N,E> e : edges())
-                add(e.b, e.a, e.value);
-        }
+        copyTo(clone);
+        clone.root = root;
         return clone;
     }
 
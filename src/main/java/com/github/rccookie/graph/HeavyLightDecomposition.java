@@ -0,0 +1,241 @@
+package com.github.rccookie.graph;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.ToDoubleFunction;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Heavy-light decomposition of a {@link Forest} for aggregate queries over the
+ * edge weights on the path between two nodes. Each node continues the chain of
+ * its parent if it has the largest subtree among its siblings, thus every path
+ * crosses at most <code>O(log n)</code> chains. The nodes are numbered so that
+ * each chain is a contiguous range, and the weight of the edge from each node to
+ * its parent is stored at the node's position in segment trees for the maximum,
+ * minimum and sum. Path queries and weight updates take <code>O(log^2 n)</code>
+ * respectively <code>O(log n)</code> time.
+ * <p>The decomposition is a snapshot of the forest's structure; the edge weights
+ * can be changed using {@link #setWeight(Object, Object, double)}. Weight updates
+ * must not run concurrently with queries.</p>
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ */
+public final class HeavyLightDecomposition<N,E> {
+
+    private final PreorderForest<N> forest;
+    /**
+     * The position of each node in the segment trees.
+     */
+    private final int[] position;
+    /**
+     * The first node of the chain of each node.
+     */
+    private final int[] head;
+    private final int size;
+    private final double[] max;
+    private final double[] min;
+    private final double[] sum;
+
+    /**
+     * Creates the heavy-light decomposition of the given forest.
+     *
+     * @param forest The forest to decompose, for example a minimal spanning tree
+     * @param edgeWeight Function to determine the weight of an edge
+     */
+    public HeavyLightDecomposition(@NotNull Forest<N,E> forest, @NotNull ToDoubleFunction<? super E> edgeWeight) {
+        this.forest = new PreorderForest<>(forest, edgeWeight);
+        int[] parent = this.forest.parent, end = this.forest.end;
+        size = this.forest.size();
+
+        // Heavy child of each node, by subtree size
+        int[] heavy = new int[size];
+        Arrays.fill(heavy, -1);
+        for(int i=0; i<size; i++) {
+            int p = parent[i];
+            if(p >= 0 && (heavy[p] < 0 || end[i] - i > end[heavy[p]] - heavy[p]))
+                heavy[p] = i;
+        }
+
+        // Number the chains by walking down from each chain head. Any node that is
+        // not the heavy child of its parent starts a new chain, and the preorder
+        // guarantees that its parent was numbered before.
+        position = new int[size];
+        head = new int[size];
+        int next = 0;
+        for(int i=0; i<size; i++) {
+            int p = parent[i];
+            if(p >= 0 && heavy[p] == i) continue;
+            for(int n=i; n>=0; n=heavy[n]) {
+                head[n] = i;
+                position[n] = next++;
+            }
+        }
+
+        max = new double[2 * size];
+        min = new double[2 * size];
+        sum = new double[2 * size];
+        for(int i=0; i<size; i++) {
+            int leaf = size + position[i];
+            if(parent[i] < 0) {
+                max[leaf] = Double.NEGATIVE_INFINITY;
+                min[leaf] = Double.POSITIVE_INFINITY;
+            }
+            else max[leaf] = min[leaf] = sum[leaf] = this.forest.weight[i];
+        }
+        for(int i=size-1; i>0; i--)
+            pull(i);
+    }
+
+    /**
+     * Returns the number of nodes in the decomposition.
+     *
+     * @return The number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the current weight of the edge between the given nodes.
+     *
+     * @param a One end of the edge
+     * @param b The other end of the edge
+     * @return The weight of the edge
+     * @throws IllegalArgumentException If the nodes are not adjacent
+     */
+    public double weight(@NotNull Object a, @NotNull Object b) {
+        return sum[size + position[forest.edgeIndex(a,b)]];
+    }
+
+    /**
+     * Sets the weight of the edge between the given nodes.
+     *
+     * @param a One end of the edge
+     * @param b The other end of the edge
+     * @param weight The new weight of the edge
+     * @throws IllegalArgumentException If the nodes are not adjacent
+     */
+    public void setWeight(@NotNull Object a, @NotNull Object b, double weight) {
+        int i = size + position[forest.edgeIndex(a,b)];
+        max[i] = min[i] = sum[i] = weight;
+        for(i>>=1; i>0; i>>=1)
+            pull(i);
+    }
+
+    /**
+     * Returns the maximum edge weight on the path between the given nodes. On a
+     * minimal spanning tree, this is the smallest possible maximum edge weight of
+     * any path between the nodes in the original graph.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The maximum edge weight on the path, {@link Double#NEGATIVE_INFINITY}
+     *         if the nodes are equal, or {@link Double#NaN} if they are in different
+     *         trees
+     * @throws IllegalArgumentException If one of the nodes is not in the forest
+     */
+    public double pathMax(@NotNull Object a, @NotNull Object b) {
+        return query(a, b, max, Double.NEGATIVE_INFINITY, Math::max);
+    }
+
+    /**
+     * Returns the minimum edge weight on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The minimum edge weight on the path, {@link Double#POSITIVE_INFINITY}
+     *         if the nodes are equal, or {@link Double#NaN} if they are in different
+     *         trees
+     * @throws IllegalArgumentException If one of the nodes is not in the forest
+     */
+    public double pathMin(@NotNull Object a, @NotNull Object b) {
+        return query(a, b, min, Double.POSITIVE_INFINITY, Math::min);
+    }
+
+    /**
+     * Returns the sum of the edge weights on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The total weight of the path, or {@link Double#NaN} if the nodes are
+     *         in different trees
+     * @throws IllegalArgumentException If one of the nodes is not in the forest
+     */
+    public double pathSum(@NotNull Object a, @NotNull Object b) {
+        return query(a, b, sum, 0, Double::sum);
+    }
+
+    /**
+     * Returns the lowest common ancestor of the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The lowest common ancestor, or <code>null</code> if the nodes are in
+     *         different trees
+     * @throws IllegalArgumentException If one of the nodes is not in the forest
+     */
+    @Nullable
+    public N lca(@NotNull Object a, @NotNull Object b) {
+        int i = forest.indexOf(a), j = forest.indexOf(b);
+        int[] parent = forest.parent, depth = forest.depth;
+        while(head[i] != head[j]) {
+            if(depth[head[i]] < depth[head[j]]) {
+                int t = i;
+                i = j;
+                j = t;
+            }
+            if((i = parent[head[i]]) < 0) return null;
+        }
+        return forest.node(depth[i] < depth[j] ? i : j);
+    }
+
+    @Override
+    public String toString() {
+        return "Heavy-light decomposition with " + size + " nodes";
+    }
+
+    private double query(Object a, Object b, double[] tree, double identity, DoubleBinaryOperator op) {
+        int i = forest.indexOf(a), j = forest.indexOf(b);
+        int[] parent = forest.parent, depth = forest.depth;
+        double result = identity;
+        while(head[i] != head[j]) {
+            if(depth[head[i]] < depth[head[j]]) {
+                int t = i;
+                i = j;
+                j = t;
+            }
+            // Includes the edge from the chain head to its parent
+            result = op.applyAsDouble(result, query(tree, identity, op, position[head[i]], position[i] + 1));
+            if((i = parent[head[i]]) < 0) return Double.NaN;
+        }
+        if(i != j) {
+            int lo = Math.min(position[i], position[j]), hi = Math.max(position[i], position[j]);
+            // The upper node's edge leads to its parent, outside of the path
+            result = op.applyAsDouble(result, query(tree, identity, op, lo + 1, hi + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates the positions <code>from</code> (inclusive) to <code>to</code>
+     * (exclusive) of the given segment tree.
+     */
+    private double query(double[] tree, double identity, DoubleBinaryOperator op, int from, int to) {
+        double result = identity;
+        for(from += size, to += size; from < to; from >>= 1, to >>= 1) {
+            if((from & 1) != 0) result = op.applyAsDouble(result, tree[from++]);
+            if((to & 1) != 0) result = op.applyAsDouble(result, tree[--to]);
+        }
+        return result;
+    }
+
+    private void pull(int i) {
+        int l = 2 * i, r = l + 1;
+        max[i] = Math.max(max[l], max[r]);
+        min[i] = Math.min(min[l], min[r]);
+        sum[i] = sum[l] + sum[r];
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.rccookie.graph;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A graph whose nodes are numbered from <code>0</code> to <code>size()-1</code>
+ * and whose edges are stored grouped by their start node, so that the outgoing
+ * edges of node <code>i</code> have the indices <code>edgeStart(i)</code>
+ * (inclusive) to <code>edgeEnd(i)</code> (exclusive). The edge ranges of
+ * consecutive nodes are adjacent, starting at <code>0</code> for the first node.
+ * This allows algorithms to work on primitive arrays instead of hash maps.
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public interface IndexedGraph<N,E> extends ReadableGraph<N,E> {
+
+    /**
+     * Returns the index of the given node.
+     *
+     * @param node The node to get the index of
+     * @return The index of the node, or <code>-1</code> if it is not in this graph
+     */
+    int indexOf(Object node);
+
+    /**
+     * Returns the node with the given index.
+     *
+     * @param index The index of the node
+     * @return The node with that index
+     * @throws IndexOutOfBoundsException If the index is not in the range <code>[0, size())</code>
+     */
+    N node(int index);
+
+    /**
+     * Returns the index of the first outgoing edge of the given node.
+     *
+     * @param node The index of the node
+     * @return The index of its first edge
+     */
+    long edgeStart(int node);
+
+    /**
+     * Returns the index after the last outgoing edge of the given node.
+     *
+     * @param node The index of the node
+     * @return The index after its last edge
+     */
+    long edgeEnd(int node);
+
+    /**
+     * Returns the index of the end node of the given edge.
+     *
+     * @param edge The index of the edge
+     * @return The index of the node the edge points to
+     */
+    int target(long edge);
+
+    /**
+     * Returns the value of the given edge.
+     *
+     * @param edge The index of the edge
+     * @return The value of the edge
+     */
+    E edgeValue(long edge);
+
+    /**
+     * Returns the number of outgoing edges of the given node.
+     *
+     * @param node The index of the node
+     * @return The out-degree of the node
+     */
+    default int degree(int node) {
+        return (int) (edgeEnd(node) - edgeStart(node));
+    }
+
+
+    /**
+     * Returns the given graph as indexed graph. If the graph is already indexed,
+     * it will be returned itself, otherwise a {@link CompactGraph} snapshot of it
+     * will be created.
+     *
+     * @param graph The graph to get as indexed graph
+     * @return An indexed graph with the same nodes and edges
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    static <N,E> IndexedGraph<N,E> of(@NotNull ReadableGraph<N,E> graph) {
+        if(graph instanceof IndexedGraph)
+            return (IndexedGraph<N,E>) graph;
+        return new CompactGraph<>(graph);
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.rccookie.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of the integers <code>0</code> to <code>capacity-1</code> with
+ * double keys. Unlike {@link BinaryHeap}, elements are located using an array
+ * instead of a hash map, and keys are stored in the heap itself rather than being
+ * looked up through a comparator.
+ */
+final class IndexedHeap {
+
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] keys;
+    private int size = 0;
+
+    IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean contains(int item) {
+        return positions[item] >= 0;
+    }
+
+    double key(int item) {
+        return keys[item];
+    }
+
+    /**
+     * Inserts the given item with the given key, or updates its key if it is already
+     * in the heap.
+     */
+    void put(int item, double key) {
+        int i = positions[item];
+        if(i < 0) {
+            keys[item] = key;
+            positions[item] = size;
+            heap[size] = item;
+            rise(size++);
+        }
+        else {
+            double old = keys[item];
+            keys[item] = key;
+            if(key < old) rise(i);
+            else sink(i);
+        }
+    }
+
+    int peek() {
+        if(size == 0) throw new NoSuchElementException("Heap is empty");
+        return heap[0];
+    }
+
+    int poll() {
+        if(size == 0) throw new NoSuchElementException("Heap is empty");
+        int item = heap[0];
+        positions[item] = -1;
+        if(--size != 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            sink(0);
+        }
+        return item;
+    }
+
+    void remove(int item) {
+        int i = positions[item];
+        if(i < 0) return;
+        positions[item] = -1;
+        if(i == --size) return;
+        int moved = heap[size];
+        positions[heap[i] = moved] = i;
+        rise(i);
+        if(positions[moved] == i)
+            sink(i);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for(int i=0; i<size; i++)
+            positions[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void rise(int i) {
+        int item = heap[i];
+        double key = keys[item];
+        while(i != 0) {
+            int j = (i-1) / 2;
+            if(keys[heap[j]] <= key) break;
+            positions[heap[i] = heap[j]] = i;
+            i = j;
+        }
+        positions[heap[i] = item] = i;
+    }
+
+    private void sink(int i) {
+        int item = heap[i];
+        double key = keys[item];
+        while(true) {
+            int j = 2*i + 1;
+            if(j >= size) break;
+            if(j+1 < size && keys[heap[j+1]] < keys[heap[j]]) j++;
+            if(keys[heap[j]] >= key) break;
+            positions[heap[i] = heap[j]] = i;
+            i = j;
+        }
+        positions[heap[i] = item] = i;
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.rccookie.graph;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives metrics about algorithm runs. Algorithms count the work they do in
+ * local variables and report it once when they finish as an {@link AlgorithmRun},
+ * so instrumentation adds no synchronization or calls to the inner loops. If an
+ * instrumentation is not {@link #isEnabled() enabled}, algorithms additionally
+ * skip measuring time and allocations. Measuring allocations enables thread
+ * allocation accounting of the JVM on first use; instrumentations that don't need
+ * it can opt out using {@link #measuresAllocations()}.
+ * <p>Since this is a functional interface, metrics can be bridged to any metrics
+ * library using a lambda, for example
+ * <code>run -> registry.counter("graph.edges", "algorithm", run.algorithm()).increment(run.edgesRelaxed())</code>.
+ * {@link #JFR} emits the runs as Java Flight Recorder events.</p>
+ *
+ * @see AlgorithmRun
+ */
+@FunctionalInterface
+public interface Instrumentation {
+
+    /**
+     * Instrumentation that discards all metrics. Algorithms don't measure anything
+     * when using this instrumentation.
+     */
+    Instrumentation NONE = new Instrumentation() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean measuresAllocations() {
+            return false;
+        }
+
+        @Override
+        public void record(@NotNull AlgorithmRun run) { }
+
+        @Override
+        public String toString() {
+            return "No instrumentation";
+        }
+    };
+
+    /**
+     * Instrumentation that commits each run as <code>com.github.rccookie.graph.AlgorithmRun</code>
+     * event to the Java Flight Recorder, if a recording with that event enabled is
+     * running.
+     */
+    Instrumentation JFR = new Instrumentation() {
+        @Override
+        public boolean isEnabled() {
+            return new AlgorithmRunEvent().isEnabled();
+        }
+
+        @Override
+        public void record(@NotNull AlgorithmRun run) {
+            AlgorithmRunEvent.commit(run);
+        }
+
+        @Override
+        public String toString() {
+            return "Flight recorder instrumentation";
+        }
+    };
+
+    /**
+     * Returns whether this instrumentation currently records metrics.
+     *
+     * @return Whether runs should be measured and recorded
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Returns whether the bytes allocated by algorithm runs should be measured. If
+     * so, thread allocation accounting of the JVM is enabled when the first run is
+     * measured, if it is not already enabled.
+     *
+     * @return Whether to measure {@link AlgorithmRun#allocatedBytes()}
+     */
+    default boolean measuresAllocations() {
+        return true;
+    }
+
+    /**
+     * Called once for each finished run of an algorithm.
+     *
+     * @param run The metrics of the run
+     */
+    void record(@NotNull AlgorithmRun run);
+
+    /**
+     * Returns an instrumentation that passes each run to this and the given
+     * instrumentation.
+     *
+     * @param other The instrumentation to also record to
+     * @return An instrumentation recording to both
+     */
+    @NotNull
+    default Instrumentation and(@NotNull Instrumentation other) {
+        Arguments.checkNull(other, "other");
+        Instrumentation self = this;
+        return new Instrumentation() {
+            @Override
+            public boolean isEnabled() {
+                return self.isEnabled() || other.isEnabled();
+            }
+
+            @Override
+            public boolean measuresAllocations() {
+                return (self.isEnabled() && self.measuresAllocations()) || (other.isEnabled() && other.measuresAllocations());
+            }
+
+            @Override
+            public void record(@NotNull AlgorithmRun run) {
+                if(self.isEnabled()) self.record(run);
+                if(other.isEnabled()) other.record(run);
+            }
+        };
+    }
+}
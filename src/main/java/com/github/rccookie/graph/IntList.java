@@ -0,0 +1,70 @@
+package com.github.rccookie.graph;
+
+import java.util.Arrays;
+
+/**
+ * Minimal growable list of primitive ints, to avoid boxing in algorithms
+ * working on node indices.
+ */
+final class IntList {
+
+    private int[] data;
+    private int size = 0;
+
+    IntList() {
+        this(16);
+    }
+
+    IntList(int capacity) {
+        data = new int[Math.max(capacity, 4)];
+    }
+
+    void add(int value) {
+        if(size == data.length)
+            data = Arrays.copyOf(data, size * 2);
+        data[size++] = value;
+    }
+
+    void addAll(IntList values) {
+        if(size + values.size > data.length)
+            data = Arrays.copyOf(data, Math.max(size + values.size, size * 2));
+        System.arraycopy(values.data, 0, data, size, values.size);
+        size += values.size;
+    }
+
+    int get(int index) {
+        if(index >= size) throw new IndexOutOfBoundsException(index);
+        return data[index];
+    }
+
+    void set(int index, int value) {
+        if(index >= size) throw new IndexOutOfBoundsException(index);
+        data[index] = value;
+    }
+
+    int removeLast() {
+        if(size == 0) throw new IllegalStateException("List is empty");
+        return data[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.rccookie.graph;
+
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Graph partitioning using size-constrained label propagation. The nodes are
+ * first split into parts of equal size along a breadth-first traversal, which
+ * already keeps most neighbors together. Then, in each round, every node moves to
+ * the part it is connected to with the highest total edge weight, as long as that
+ * part has room left. Edge directions are ignored.
+ * <p>To allow the moves to be computed in parallel deterministically, each round
+ * is split into two halves, each of which considers a pseudo-random half of the
+ * nodes. All moves of a half are computed based on the same assignment and then
+ * applied in node order, rejecting moves into parts that are full.</p>
+ *
+ * @see Algorithm.Partitioner#LABEL_PROPAGATION
+ * @see Algorithm.Partitioner#PARALLEL_LABEL_PROPAGATION
+ */
+final class LabelPropagation implements Algorithm.Partitioner {
+
+    /**
+     * Graphs with fewer nodes than this will be processed on the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final int rounds;
+    private final boolean parallel;
+
+    LabelPropagation(int rounds, boolean parallel) {
+        this.rounds = Arguments.checkRange(rounds, 0, null);
+        this.parallel = parallel;
+    }
+
+    @Override
+    @NotNull
+    public <N,E> GraphPartition<N,E> compute(@NotNull ReadableGraph<N,E> graph, int parts, double imbalance,
+                                             @NotNull ToDoubleFunction<? super E> edgeWeight) {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkRange(parts, 1, null);
+        Arguments.checkRange(imbalance, 0d, null);
+        Arguments.checkNull(edgeWeight, "edgeWeight");
+
+        IndexedGraph<N,E> g = IndexedGraph.of(graph);
+        int size = g.size();
+
+        SymmetricAdjacency adj = SymmetricAdjacency.of(g, edgeWeight);
+        int[] offsets = adj.offsets, targets = adj.targets;
+        double[] weights = adj.weights;
+
+        // Initial split into equal blocks in breadth-first order
+        int[] order = adj.bfsOrder();
+        int[] part = new int[size];
+        for(int k=0; k<size; k++)
+            part[order[k]] = (int) ((long) k * parts / size);
+        int[] sizes = new int[parts];
+        for(int p : part) sizes[p]++;
+        int maxSize = (int) Math.min(size, Math.max(Math.ceil((1 + imbalance) * size / parts), (size + parts - 1) / parts));
+
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(parts));
+        int[] moves = new int[size];
+        for(int round=0; round<rounds; round++) {
+            int moved = 0;
+            for(int half=0; half<2; half++) {
+                int r = round, h = half;
+                IntStream nodes = IntStream.range(0, size);
+                if(parallel && size >= PARALLEL_THRESHOLD) nodes = nodes.parallel();
+                nodes.forEach(i -> moves[i] = color(i, r) == h ? bestPart(i, offsets, targets, weights, part, scratch.get()) : -1);
+
+                for(int i=0; i<size; i++) {
+                    int p = moves[i];
+                    if(p < 0 || sizes[p] >= maxSize) continue;
+                    sizes[part[i]]--;
+                    sizes[p]++;
+                    part[i] = p;
+                    moved++;
+                }
+            }
+            if(moved == 0) break;
+        }
+
+        return new GraphPartition<>(g, edgeWeight, parts, part);
+    }
+
+    /**
+     * Returns the part the given node is most strongly connected to, or
+     * <code>-1</code> if that is its current part. Ties are resolved in favor of
+     * the current part.
+     */
+    private static int bestPart(int node, int[] offsets, int[] targets, double[] weights, int[] part, Scratch scratch) {
+        double[] connection = scratch.connection;
+        int count = 0;
+        for(int e=offsets[node]; e<offsets[node+1]; e++) {
+            int p = part[targets[e]];
+            if(!scratch.seen[p]) {
+                scratch.seen[p] = true;
+                scratch.touched[count++] = p;
+            }
+            connection[p] += weights[e];
+        }
+        int best = part[node];
+        for(int k=0; k<count; k++)
+            if(connection[scratch.touched[k]] > connection[best]) best = scratch.touched[k];
+        for(int k=0; k<count; k++) {
+            connection[scratch.touched[k]] = 0;
+            scratch.seen[scratch.touched[k]] = false;
+        }
+        return best == part[node] ? -1 : best;
+    }
+
+    /**
+     * Assigns each node to one of the two halves of a round.
+     */
+    private static int color(int node, int round) {
+        int h = (node ^ (round * 0x9E3779B9)) * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & 1;
+    }
+
+    @Override
+    public String toString() {
+        return (parallel ? "Parallel label propagation" : "Label propagation") + " (" + rounds + " rounds)";
+    }
+
+    /**
+     * Per-thread buffers for summing up the connection weight to each part.
+     */
+    private static final class Scratch {
+
+        final double[] connection;
+        final boolean[] seen;
+        final int[] touched;
+
+        Scratch(int parts) {
+            connection = new double[parts];
+            seen = new boolean[parts];
+            touched = new int[parts];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.rccookie.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Byte buffer addressed with long indices, consisting of multiple
+ * {@link ByteBuffer}s of up to 1GB each. All values are stored in little endian
+ * byte order. Reads and writes of multi-byte values must be aligned to their size,
+ * so that they never cross the boundary between two chunks.
+ */
+final class LargeBuffer {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final ByteBuffer[] chunks;
+    private final long size;
+
+    private LargeBuffer(ByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Maps the given region of a file into memory.
+     */
+    static LargeBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long size) throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(size)];
+        for(int i=0; i<chunks.length; i++) {
+            long offset = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(mode, position + offset, Math.min(1L << CHUNK_SHIFT, size - offset))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new LargeBuffer(chunks, size);
+    }
+
+    /**
+     * Allocates a new buffer of the given size outside of the Java heap. The
+     * buffer is initially filled with zeros.
+     */
+    static LargeBuffer allocateDirect(long size) {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(size)];
+        for(int i=0; i<chunks.length; i++) {
+            long offset = (long) i << CHUNK_SHIFT;
+            chunks[i] = ByteBuffer.allocateDirect((int) Math.min(1L << CHUNK_SHIFT, size - offset))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new LargeBuffer(chunks, size);
+    }
+
+    private static int chunkCount(long size) {
+        if(size < 0) throw new IllegalArgumentException("Negative buffer size");
+        return Math.toIntExact((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+    }
+
+    int getInt(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getInt((int) (index & CHUNK_MASK));
+    }
+
+    long getLong(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getLong((int) (index & CHUNK_MASK));
+    }
+
+    double getDouble(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getDouble((int) (index & CHUNK_MASK));
+    }
+
+    /**
+     * Copies <code>dst.length</code> bytes starting at the given index into the array.
+     */
+    void get(long index, byte[] dst) {
+        for(int i=0; i<dst.length;) {
+            ByteBuffer chunk = chunks[(int) ((index + i) >>> CHUNK_SHIFT)];
+            int offset = (int) ((index + i) & CHUNK_MASK);
+            int length = Math.min(dst.length - i, chunk.capacity() - offset);
+            chunk.duplicate().position(offset).get(dst, i, length);
+            i += length;
+        }
+    }
+
+    void put(long index, byte value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) (index & CHUNK_MASK), value);
+    }
+
+    void putInt(long index, int value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].putInt((int) (index & CHUNK_MASK), value);
+    }
+
+    void putLong(long index, long value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].putLong((int) (index & CHUNK_MASK), value);
+    }
+
+    void putDouble(long index, double value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].putDouble((int) (index & CHUNK_MASK), value);
+    }
+
+    /**
+     * Copies the given bytes into this buffer, starting at the given index.
+     */
+    void put(long index, byte[] src) {
+        for(int i=0; i<src.length;) {
+            ByteBuffer chunk = chunks[(int) ((index + i) >>> CHUNK_SHIFT)];
+            int offset = (int) ((index + i) & CHUNK_MASK);
+            int length = Math.min(src.length - i, chunk.capacity() - offset);
+            chunk.duplicate().position(offset).put(src, i, length);
+            i += length;
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package com.github.rccookie.graph;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implementation of {@link Forest} for forests that change constantly, based on
+ * link-cut trees (Sleator and Tarjan). Besides the structure itself, which is
+ * stored like in a {@link HashForest}, each tree is split into paths that are
+ * kept in splay trees ordered by depth. This allows to find the root of a node,
+ * test whether two nodes are in the same tree, find lowest common ancestors and
+ * aggregate the edge weights on the path between two nodes in <code>O(log n)</code>
+ * amortized time, while linking and cutting subtrees takes <code>O(log n)</code>
+ * amortized time as well, without rebuilding anything.
+ * <p>Unlike {@link #disconnect(Object)}, which removes the whole subtree of a
+ * node, {@link #cut(Object)} keeps the subtree as a new tree. Since queries
+ * restructure the splay trees, this class is not thread safe, not even for
+ * concurrent reads.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public class LinkCutForest<N,E> implements Forest<N,E> {
+
+    private final ToDoubleFunction<? super E> edgeWeight;
+    private final HashForest<N,E> structure = new HashForest<>();
+
+    private final Map<N,Integer> index = new HashMap<>();
+    private final IntList free = new IntList();
+    private int capacity = 0;
+    private Object[] nodes = new Object[0];
+    private int[] left = new int[0];
+    private int[] right = new int[0];
+    /**
+     * The parent in the splay tree, or, for the root of a splay tree, the parent
+     * of the topmost node of the path in the represented tree. <code>-1</code> if
+     * there is neither.
+     */
+    private int[] up = new int[0];
+    /**
+     * The number of nodes in each splay subtree.
+     */
+    private int[] count = new int[0];
+    /**
+     * The weight of the edge from each node to its parent, or {@link Double#NaN}
+     * for roots.
+     */
+    private double[] weight = new double[0];
+    private double[] sum = new double[0];
+    private double[] max = new double[0];
+    private double[] min = new double[0];
+
+    /**
+     * Creates a new, empty link-cut forest, with all edges having a weight of 1
+     * for path queries.
+     */
+    public LinkCutForest() {
+        this(e -> 1);
+    }
+
+    /**
+     * Creates a new, empty link-cut forest.
+     *
+     * @param edgeWeight Function to determine the weight of an edge for path
+     *                   queries
+     */
+    public LinkCutForest(@NotNull ToDoubleFunction<? super E> edgeWeight) {
+        this.edgeWeight = Arguments.checkNull(edgeWeight, "edgeWeight");
+    }
+
+    /**
+     * Creates a new link-cut forest with the same nodes and edges as the given
+     * forest.
+     *
+     * @param forest The forest to copy
+     * @param edgeWeight Function to determine the weight of an edge for path
+     *                   queries
+     */
+    public LinkCutForest(@NotNull Forest<? extends N, ? extends E> forest, @NotNull ToDoubleFunction<? super E> edgeWeight) {
+        this(edgeWeight);
+        Arguments.checkNull(forest, "forest");
+        for(N root : forest.roots())
+            addRoot(root);
+        forest.forEach((a,b,e) -> add(b,a,e));
+    }
+
+    // ------------------------------------
+    // Forest
+    // ------------------------------------
+
+    @Override
+    public void add(@NotNull N node, @Nullable N parent, E edge) {
+        Arguments.checkNull(node, "node");
+        if(parent == null || node.equals(parent)) {
+            addRoot(node);
+            return;
+        }
+        link(node, parent, edge);
+    }
+
+    @Override
+    public void addRoot(@NotNull N node) {
+        Arguments.checkNull(node, "node");
+        if(index.containsKey(node))
+            cut(node);
+        else {
+            structure.addRoot(node);
+            newNode(node);
+        }
+    }
+
+    @Override
+    public void addTree(@NotNull Tree<? extends N, ? extends E> tree) {
+        addTree(tree, null, null);
+    }
+
+    @Override
+    public void addTree(@NotNull Tree<? extends N, ? extends E> tree, @Nullable N parent, E edge) {
+        if(tree.isEmpty()) return;
+        if(parent == null)
+            addRoot(tree.root());
+        else add(tree.root(), parent, edge);
+        tree.forEach((n,m,e) -> add(m,n,e));
+    }
+
+    @Override
+    public void set(@NotNull Object old, @NotNull N now) {
+        if(Arguments.checkNull(old, "old")
+                .equals(Arguments.checkNull(now, "now"))) return;
+        //noinspection SuspiciousMethodCalls
+        Integer o = index.get(old);
+        if(o == null)
+            throw new IllegalArgumentException("Node is not in the forest: " + old);
+
+        if(!index.containsKey(now)) {
+            // Only the identity changes
+            structure.set(old, now);
+            //noinspection SuspiciousMethodCalls
+            index.remove(old);
+            index.put(now, o);
+            nodes[o] = now;
+            return;
+        }
+
+        // Merge into the existing node: move the children, then take the position.
+        // An ancestor would have to be attached below itself
+        int n = index.get(now);
+        if(lca(n, (int) o) == n)
+            throw new IllegalArgumentException("Cannot replace " + old + " with its ancestor " + now);
+        N parent = structure.parent(old);
+        E parentEdge = parent != null ? structure.edge(parent, old) : null;
+        addRoot(now);
+        for(Map.Entry<N,E> child : new HashMap<>(structure.adj(old)).entrySet())
+            link(child.getKey(), now, child.getValue());
+        remove(old);
+        if(parent != null)
+            link(now, parent, parentEdge);
+    }
+
+    @Override
+    public boolean disconnect(@NotNull Object node) {
+        if(!contains(node)) return false;
+        remove(node);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        structure.clear();
+        index.clear();
+        free.clear();
+        Arrays.fill(nodes, 0, capacity, null);
+        capacity = 0;
+    }
+
+    @Override
+    public N parent(@NotNull Object node) {
+        return structure.parent(node);
+    }
+
+    /**
+     * Returns the number of edges between the given node and the root of its tree.
+     * Runs in <code>O(log n)</code> amortized time.
+     *
+     * @param node The node to get the depth of
+     * @return The depth of the node, or <code>-1</code> if it is not in this forest
+     */
+    @Override
+    public int depth(@NotNull Object node) {
+        //noinspection SuspiciousMethodCalls
+        Integer i = index.get(node);
+        if(i == null) return -1;
+        access(i);
+        return count[i] - 1;
+    }
+
+    @Override
+    public Set<N> roots() {
+        return structure.roots();
+    }
+
+    @Override
+    public @NotNull LinkCutForest<N,E> clone() {
+        return new LinkCutForest<>(this, edgeWeight);
+    }
+
+    @Override
+    public @NotNull LinkCutForest<N,E> newInstance() {
+        return new LinkCutForest<>(edgeWeight);
+    }
+
+    // ------------------------------------
+    // Dynamic tree operations
+    // ------------------------------------
+
+    /**
+     * Attaches the given node, together with its subtree, to the given parent. If
+     * the node already has a parent, it is cut from it first. Nodes that are not
+     * yet in the forest are added.
+     *
+     * @param node The node to attach
+     * @param parent The new parent of the node
+     * @param edge The value of the edge from the parent to the node
+     * @throws IllegalArgumentException If the parent is in the subtree of the node,
+     *                                  which would create a cycle
+     */
+    public void link(@NotNull N node, @NotNull N parent, E edge) {
+        Arguments.checkNull(node, "node");
+        Arguments.checkNull(parent, "parent");
+        if(!index.containsKey(parent))
+            addRoot(parent);
+        if(!index.containsKey(node))
+            addRoot(node);
+
+        int c = index.get(node), p = index.get(parent);
+        if(lca(c,p) == c)
+            throw new IllegalArgumentException("Cannot attach " + node + " to its descendant " + parent);
+        if(structure.parent(node) != null) cutFromParent(c);
+
+        structure.add(node, parent, edge);
+        // c is the root of its tree, thus the only node on its path after access
+        access(c);
+        weight[c] = edgeWeight.applyAsDouble(edge);
+        pull(c);
+        up[c] = p;
+    }
+
+    /**
+     * Detaches the given node from its parent. The node and its subtree remain in
+     * the forest as a separate tree.
+     *
+     * @param node The node to detach
+     * @return Whether the node had a parent
+     * @throws IllegalArgumentException If the node is not in this forest
+     */
+    public boolean cut(@NotNull Object node) {
+        int c = indexOf(node);
+        if(structure.parent(node) == null) return false;
+        cutFromParent(c);
+        //noinspection unchecked
+        structure.addRoot((N) node);
+        return true;
+    }
+
+    /**
+     * Returns the root of the tree containing the given node.
+     *
+     * @param node The node to get the root of
+     * @return The root of the node's tree
+     * @throws IllegalArgumentException If the node is not in this forest
+     */
+    @NotNull
+    public N findRoot(@NotNull Object node) {
+        return node(findRoot(indexOf(node)));
+    }
+
+    /**
+     * Returns whether the given nodes are in the same tree, that is, whether there
+     * is a path between them when ignoring edge directions.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return Whether both nodes have the same root
+     * @throws IllegalArgumentException If one of the nodes is not in this forest
+     */
+    public boolean sameTree(@NotNull Object a, @NotNull Object b) {
+        return findRoot(indexOf(a)) == findRoot(indexOf(b));
+    }
+
+    /**
+     * Returns the lowest common ancestor of the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The lowest common ancestor, or <code>null</code> if the nodes are in
+     *         different trees
+     * @throws IllegalArgumentException If one of the nodes is not in this forest
+     */
+    @Nullable
+    public N lca(@NotNull Object a, @NotNull Object b) {
+        int l = lca(indexOf(a), indexOf(b));
+        return l < 0 ? null : node(l);
+    }
+
+    /**
+     * Returns the maximum edge weight on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The maximum edge weight on the path, {@link Double#NEGATIVE_INFINITY}
+     *         if the nodes are equal, or {@link Double#NaN} if they are in different
+     *         trees
+     * @throws IllegalArgumentException If one of the nodes is not in this forest
+     */
+    public double pathMax(@NotNull Object a, @NotNull Object b) {
+        return pathAggregate(a, b, max, Double.NEGATIVE_INFINITY, Math::max);
+    }
+
+    /**
+     * Returns the minimum edge weight on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The minimum edge weight on the path, {@link Double#POSITIVE_INFINITY}
+     *         if the nodes are equal, or {@link Double#NaN} if they are in different
+     *         trees
+     * @throws IllegalArgumentException If one of the nodes is not in this forest
+     */
+    public double pathMin(@NotNull Object a, @NotNull Object b) {
+        return pathAggregate(a, b, min, Double.POSITIVE_INFINITY, Math::min);
+    }
+
+    /**
+     * Returns the sum of the edge weights on the path between the given nodes.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The total weight of the path, or {@link Double#NaN} if the nodes are
+     *         in different trees
+     * @throws IllegalArgumentException If one of the nodes is not in this forest
+     */
+    public double pathSum(@NotNull Object a, @NotNull Object b) {
+        return pathAggregate(a, b, sum, 0, Double::sum);
+    }
+
+    // ------------------------------------
+    // ReadableGraph
+    // ------------------------------------
+
+    @Override
+    public IterableMap<N,E> adj(Object node) {
+        return structure.adj(node);
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,E>> adjacencyList() {
+        return structure.adjacencyList();
+    }
+
+    @Override
+    public E edge(@NotNull Object a, @NotNull Object b) {
+        return structure.edge(a, b);
+    }
+
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        return structure.connected(a, b);
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return structure.nodes();
+    }
+
+    @Override
+    public @NotNull Set<? extends Edge<N,E>> edges() {
+        return structure.edges();
+    }
+
+    @Override
+    public @NotNull Collection<E> weights() {
+        return structure.weights();
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return index.containsKey(node);
+    }
+
+    @Override
+    public int size() {
+        return structure.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return structure.edgeCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return structure.isEmpty();
+    }
+
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super E> action) {
+        structure.forEach(action);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        return nodes().iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "Link-cut forest with " + size() + " nodes and " + roots().size() + " trees";
+    }
+
+    // ------------------------------------
+    // Splay trees
+    // ------------------------------------
+
+    private int indexOf(Object node) {
+        //noinspection SuspiciousMethodCalls
+        Integer i = index.get(Arguments.checkNull(node, "node"));
+        if(i == null) throw new IllegalArgumentException("Node is not in the forest: " + node);
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    private N node(int index) {
+        return (N) nodes[index];
+    }
+
+    private void newNode(N node) {
+        int i;
+        if(!free.isEmpty()) i = free.removeLast();
+        else {
+            if(capacity == left.length) {
+                int length = Math.max(16, capacity * 2);
+                nodes = Arrays.copyOf(nodes, length);
+                left = Arrays.copyOf(left, length);
+                right = Arrays.copyOf(right, length);
+                up = Arrays.copyOf(up, length);
+                count = Arrays.copyOf(count, length);
+                weight = Arrays.copyOf(weight, length);
+                sum = Arrays.copyOf(sum, length);
+                max = Arrays.copyOf(max, length);
+                min = Arrays.copyOf(min, length);
+            }
+            i = capacity++;
+        }
+        nodes[i] = node;
+        left[i] = right[i] = up[i] = -1;
+        weight[i] = Double.NaN;
+        pull(i);
+        index.put(node, i);
+    }
+
+    /**
+     * Removes the given node and its subtree.
+     */
+    private void remove(Object node) {
+        int i = indexOf(node);
+        if(structure.parent(node) != null) cutFromParent(i);
+        // The subtree is now a separate tree, so its splay trees only reference
+        // each other and can simply be dropped
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(node);
+        while(!stack.isEmpty()) {
+            Object n = stack.pop();
+            for(N child : structure.adj(n))
+                stack.push(child);
+            //noinspection SuspiciousMethodCalls
+            int j = index.remove(n);
+            nodes[j] = null;
+            free.add(j);
+        }
+        structure.disconnect(node);
+    }
+
+    private boolean isSplayRoot(int x) {
+        int p = up[x];
+        return p < 0 || (left[p] != x && right[p] != x);
+    }
+
+    private void pull(int x) {
+        int l = left[x], r = right[x];
+        double w = weight[x];
+        boolean own = w == w; // Not NaN
+        count[x] = 1 + (l >= 0 ? count[l] : 0) + (r >= 0 ? count[r] : 0);
+        sum[x] = (own ? w : 0) + (l >= 0 ? sum[l] : 0) + (r >= 0 ? sum[r] : 0);
+        max[x] = Math.max(own ? w : Double.NEGATIVE_INFINITY, Math.max(l >= 0 ? max[l] : Double.NEGATIVE_INFINITY, r >= 0 ? max[r] : Double.NEGATIVE_INFINITY));
+        min[x] = Math.min(own ? w : Double.POSITIVE_INFINITY, Math.min(l >= 0 ? min[l] : Double.POSITIVE_INFINITY, r >= 0 ? min[r] : Double.POSITIVE_INFINITY));
+    }
+
+    private void rotate(int x) {
+        int p = up[x], g = up[p];
+        boolean pRoot = isSplayRoot(p);
+        if(left[p] == x) {
+            left[p] = right[x];
+            if(right[x] >= 0) up[right[x]] = p;
+            right[x] = p;
+        }
+        else {
+            right[p] = left[x];
+            if(left[x] >= 0) up[left[x]] = p;
+            left[x] = p;
+        }
+        up[p] = x;
+        up[x] = g;
+        if(!pRoot) {
+            if(left[g] == p) left[g] = x;
+            else right[g] = x;
+        }
+        pull(p);
+        pull(x);
+    }
+
+    private void splay(int x) {
+        while(!isSplayRoot(x)) {
+            int p = up[x];
+            if(!isSplayRoot(p))
+                rotate((left[up[p]] == p) == (left[p] == x) ? p : x);
+            rotate(x);
+        }
+    }
+
+    /**
+     * Makes the path from the root to the given node preferred and splays the node,
+     * so that its splay tree contains exactly the nodes on that path.
+     *
+     * @return The last node where the path joined the previously preferred paths,
+     *         which is the lowest common ancestor with the previously accessed node
+     */
+    private int access(int x) {
+        int last = -1;
+        for(int y=x; y>=0; y=up[y]) {
+            splay(y);
+            right[y] = last;
+            pull(y);
+            last = y;
+        }
+        splay(x);
+        return last;
+    }
+
+    private int findRoot(int x) {
+        access(x);
+        while(left[x] >= 0) x = left[x];
+        splay(x);
+        return x;
+    }
+
+    private void cutFromParent(int x) {
+        access(x);
+        int l = left[x];
+        if(l >= 0) {
+            up[l] = -1;
+            left[x] = -1;
+        }
+        weight[x] = Double.NaN;
+        pull(x);
+    }
+
+    private int lca(int a, int b) {
+        if(findRoot(a) != findRoot(b)) return -1;
+        access(a);
+        return access(b);
+    }
+
+    private double pathAggregate(Object a, Object b, double[] values, double identity, DoubleBinaryOperator aggregate) {
+        int i = indexOf(a), j = indexOf(b);
+        int l = lca(i,j);
+        if(l < 0) return Double.NaN;
+        // After accessing a and then b, the part of b's path below the lca is
+        // the right subtree of the lca, and the part of a's path below the lca
+        // is a separate splay tree containing a
+        double result = identity;
+        splay(l);
+        if(right[l] >= 0)
+            result = aggregate.applyAsDouble(result, values[right[l]]);
+        if(i != l) {
+            splay(i);
+            result = aggregate.applyAsDouble(result, values[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,392 @@
+package com.github.rccookie.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read-only graph that is stored in a binary file and memory-mapped into the
+ * address space of the JVM. Opening a mapped graph only reads the file header;
+ * all queries are served directly from the mapped file, which is loaded lazily
+ * by the operating system and shared via the page cache between all processes
+ * that open the same file. Graphs are written to files using
+ * {@link #write(ReadableGraph, Path, ToDoubleFunction, Function)}.
+ * <p>The file contains the edges in compressed sparse row format, sorted by end
+ * node within each row, the edge lengths as doubles and a dictionary of node
+ * names together with a hash table to look up the index of a node by its name.
+ * Nodes are stored as strings and converted back to node objects using a parser
+ * function given when opening the file, thus the string representation of each
+ * node must be unique. By default, {@link Object#toString()} is used.</p>
+ * <p>Each node is decoded and parsed only once, when it is first requested, and
+ * kept in an array with one reference per node afterwards.</p>
+ * <p>Files larger than 2GB are supported; the node count is limited to
+ * {@link Integer#MAX_VALUE}. Mapped graphs are immutable and can be accessed
+ * from multiple threads concurrently.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ */
+public class MappedGraph<N> extends BufferGraph<N> {
+
+    private static final int MAGIC = 0x47524352; // "RCRG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 80;
+    private static final int FLAG_DIRECTED = 1;
+
+    private final Function<String, ? extends N> parser;
+    private final Function<? super N, String> formatter;
+    /**
+     * Whether the nodes are the stored names themselves, so that equal names imply
+     * equal nodes.
+     */
+    private final boolean namesAreNodes;
+    /**
+     * The nodes decoded so far, by index, or <code>null</code> if no node was
+     * requested yet.
+     */
+    private volatile AtomicReferenceArray<N> nodes = null;
+
+    private final int tableSize;
+    private final long nameOffsetsPos;
+    private final long namesPos;
+    private final long tablePos;
+
+    private MappedGraph(LargeBuffer buffer, Function<String, ? extends N> parser, Function<? super N, String> formatter) throws IOException {
+        super(checkHeader(buffer), (buffer.getInt(8) & FLAG_DIRECTED) != 0, buffer.getInt(12), buffer.getLong(16),
+                buffer.getLong(32), buffer.getLong(40), buffer.getLong(48));
+        this.parser = parser;
+        this.formatter = formatter;
+        namesAreNodes = (Object) parser == Function.identity() && (Object) formatter == Function.identity();
+
+        tableSize = buffer.getInt(24);
+        nameOffsetsPos = buffer.getLong(56);
+        namesPos = buffer.getLong(64);
+        tablePos = buffer.getLong(72);
+        if(tablePos + 8L * tableSize > buffer.size())
+            throw new IOException("Graph file is truncated");
+    }
+
+    private static LargeBuffer checkHeader(LargeBuffer buffer) throws IOException {
+        if(buffer.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a graph file");
+        if(buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported graph file version: " + buffer.getInt(4));
+        return buffer;
+    }
+
+    /**
+     * Opens the given graph file. The nodes are returned as their stored string
+     * representations.
+     *
+     * @param file The file to open
+     * @return The mapped graph
+     * @throws IOException If an I/O error occurs or the file is not a valid graph file
+     */
+    @NotNull
+    public static MappedGraph<String> open(@NotNull Path file) throws IOException {
+        return open(file, Function.identity(), Function.identity());
+    }
+
+    /**
+     * Opens the given graph file.
+     *
+     * @param file The file to open
+     * @param parser Function to convert the stored node names into nodes. It must be
+     *               the inverse of {@link Object#toString()} on the nodes
+     * @return The mapped graph
+     * @throws IOException If an I/O error occurs or the file is not a valid graph file
+     */
+    @NotNull
+    public static <N> MappedGraph<N> open(@NotNull Path file, @NotNull Function<String, ? extends N> parser) throws IOException {
+        return open(file, parser, Objects::toString);
+    }
+
+    /**
+     * Opens the given graph file.
+     *
+     * @param file The file to open
+     * @param parser Function to convert the stored node names into nodes
+     * @param formatter Function to convert nodes into their stored names, the inverse
+     *                  of the parser. Used to look up nodes
+     * @return The mapped graph
+     * @throws IOException If an I/O error occurs or the file is not a valid graph file
+     */
+    @NotNull
+    public static <N> MappedGraph<N> open(@NotNull Path file, @NotNull Function<String, ? extends N> parser,
+                                          @NotNull Function<? super N, String> formatter) throws IOException {
+        Arguments.checkNull(file, "file");
+        Arguments.checkNull(parser, "parser");
+        Arguments.checkNull(formatter, "formatter");
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MappedGraph<>(LargeBuffer.map(channel, FileChannel.MapMode.READ_ONLY, 0, channel.size()), parser, formatter);
+        }
+    }
+
+    /**
+     * Writes the given graph into a file that can be opened as mapped graph. Nodes
+     * are stored as their {@link Object#toString()} representation.
+     *
+     * @param graph The graph to write
+     * @param file The file to write to. Existing files will be overridden
+     * @param edgeLength Function to determine the length of each edge
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If two nodes have the same string representation
+     */
+    public static <N,E> void write(@NotNull ReadableGraph<N,E> graph, @NotNull Path file,
+                                   @NotNull ToDoubleFunction<? super E> edgeLength) throws IOException {
+        write(graph, file, edgeLength, Objects::toString);
+    }
+
+    /**
+     * Writes the given graph into a file that can be opened as mapped graph.
+     *
+     * @param graph The graph to write
+     * @param file The file to write to. Existing files will be overridden
+     * @param edgeLength Function to determine the length of each edge
+     * @param formatter Function to convert nodes into strings, which will be stored
+     *                  as node names. Each node must have a unique name
+     * @throws IOException If an I/O error occurs
+     * @throws IllegalArgumentException If two nodes have the same name
+     */
+    public static <N,E> void write(@NotNull ReadableGraph<N,E> graph, @NotNull Path file,
+                                   @NotNull ToDoubleFunction<? super E> edgeLength,
+                                   @NotNull Function<? super N, String> formatter) throws IOException {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkNull(file, "file");
+        Arguments.checkNull(edgeLength, "edgeLength");
+        Arguments.checkNull(formatter, "formatter");
+
+        IndexedGraph<N,E> g = IndexedGraph.of(graph);
+        int size = g.size();
+        long edges = size == 0 ? 0 : g.edgeEnd(size - 1);
+
+        String[] names = new String[size];
+        Set<String> unique = new HashSet<>(size * 4 / 3 + 1);
+        for(int i=0; i<size; i++)
+            if(!unique.add(names[i] = Objects.requireNonNull(formatter.apply(g.node(i)), "Node name")))
+                throw new IllegalArgumentException("Duplicate node name: " + names[i]);
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.skip(HEADER_SIZE);
+
+            long offsetsPos = out.position();
+            for(int i=0; i<size; i++)
+                out.putLong(g.edgeStart(i));
+            out.putLong(edges);
+
+            long targetsPos = out.position();
+            for(int i=0; i<size; i++)
+                for(long key : sortedRow(g, i))
+                    out.putInt((int) (key >>> 32));
+            out.align();
+
+            long weightsPos = out.position();
+            for(int i=0; i<size; i++) {
+                long start = g.edgeStart(i);
+                for(long key : sortedRow(g, i))
+                    out.putDouble(edgeLength.applyAsDouble(g.edgeValue(start + (int) key)));
+            }
+
+            long namesPos = out.position();
+            long[] nameOffsets = new long[size + 1];
+            for(int i=0; i<size; i++) {
+                out.put(names[i].getBytes(StandardCharsets.UTF_8));
+                nameOffsets[i+1] = out.position() - namesPos;
+            }
+            out.align();
+
+            long nameOffsetsPos = out.position();
+            for(long offset : nameOffsets)
+                out.putLong(offset);
+
+            // Open addressing hash table with linear probing, entries are the hash of
+            // the node name and the node index + 1, 0 for empty slots
+            int tableSize = Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1;
+            int[] table = new int[2 * tableSize];
+            for(int i=0; i<size; i++) {
+                int hash = hash(names[i]);
+                int slot = hash & (tableSize - 1);
+                while(table[2*slot+1] != 0)
+                    slot = (slot + 1) & (tableSize - 1);
+                table[2*slot] = hash;
+                table[2*slot+1] = i + 1;
+            }
+            long tablePos = out.position();
+            for(int entry : table)
+                out.putInt(entry);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(g.isDirected() ? FLAG_DIRECTED : 0).putInt(size)
+                    .putLong(edges).putInt(tableSize).putInt(0)
+                    .putLong(offsetsPos).putLong(targetsPos).putLong(weightsPos)
+                    .putLong(nameOffsetsPos).putLong(namesPos).putLong(tablePos)
+                    .flip();
+            while(header.hasRemaining())
+                channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Returns the edges of the given node sorted by target. Each entry contains
+     * the target in the upper and the offset of the edge within the row in the lower
+     * 32 bits.
+     */
+    private static long[] sortedRow(IndexedGraph<?,?> g, int node) {
+        long start = g.edgeStart(node);
+        long[] row = new long[g.degree(node)];
+        for(int j=0; j<row.length; j++)
+            row[j] = ((long) g.target(start + j) << 32) | j;
+        Arrays.sort(row);
+        return row;
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int indexOf(Object node) {
+        if(node == null) return -1;
+        String name;
+        try {
+            name = formatter.apply((N) node);
+        } catch(ClassCastException e) {
+            return -1;
+        }
+        if(name == null) return -1;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(name);
+        for(int slot = hash & (tableSize - 1);; slot = (slot + 1) & (tableSize - 1)) {
+            int index = buffer.getInt(tablePos + 8L * slot + 4) - 1;
+            if(index < 0) return -1;
+            if(buffer.getInt(tablePos + 8L * slot) == hash && nameEquals(index, bytes))
+                return namesAreNodes || node.equals(node(index)) ? index : -1;
+        }
+    }
+
+    private boolean nameEquals(int index, byte[] bytes) {
+        long start = namesPos + buffer.getLong(nameOffsetsPos + 8L * index);
+        long end = namesPos + buffer.getLong(nameOffsetsPos + 8L * (index + 1));
+        if(end - start != bytes.length) return false;
+        for(int i=0; i<bytes.length; i++)
+            if(buffer.get(start + i) != bytes[i]) return false;
+        return true;
+    }
+
+    @Override
+    public N node(int index) {
+        Objects.checkIndex(index, size);
+        AtomicReferenceArray<N> nodes = this.nodes;
+        if(nodes == null) {
+            synchronized(this) {
+                if((nodes = this.nodes) == null)
+                    this.nodes = nodes = new AtomicReferenceArray<>(size);
+            }
+        }
+        N node = nodes.get(index);
+        if(node != null) return node;
+
+        long start = buffer.getLong(nameOffsetsPos + 8L * index);
+        byte[] bytes = new byte[(int) (buffer.getLong(nameOffsetsPos + 8L * (index + 1)) - start)];
+        buffer.get(namesPos + start, bytes);
+        node = Objects.requireNonNull(parser.apply(new String(bytes, StandardCharsets.UTF_8)), "Parsed node");
+        // Concurrent calls may parse the node twice, keep the first result
+        return nodes.compareAndSet(index, null, node) ? node : nodes.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return (directed ? "Directed mapped graph" : "Mapped graph") + " with " + size + " nodes and " + edgeCountString() + " edges";
+    }
+
+    /**
+     * Buffered little endian output to a file channel.
+     */
+    private static final class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position = 0;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return position;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if(buffer.remaining() < bytes) flush();
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+            position += 8;
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for(int i=0; i<bytes.length;) {
+                if(!buffer.hasRemaining()) flush();
+                int length = Math.min(bytes.length - i, buffer.remaining());
+                buffer.put(bytes, i, length);
+                i += length;
+            }
+            position += bytes.length;
+        }
+
+        void skip(int bytes) throws IOException {
+            for(int i=0; i<bytes; i++) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+            position += bytes;
+        }
+
+        /**
+         * Pads the output to the next multiple of 8 bytes.
+         */
+        void align() throws IOException {
+            skip((int) (-position & 7));
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
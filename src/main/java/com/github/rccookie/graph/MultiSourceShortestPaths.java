@@ -0,0 +1,171 @@
+package com.github.rccookie.graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The result of a multi-source shortest path computation. For each node, it
+ * contains the source closest to it, the distance to that source and the
+ * predecessor on the shortest path from there. Grouping the nodes by their
+ * closest source gives the Voronoi cells of the graph.
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ * @see Graphs#nearestSources(ReadableGraph, java.util.Collection, ToDoubleFunction)
+ */
+public class MultiSourceShortestPaths<N,E> {
+
+    private final IndexedGraph<N,E> graph;
+    private final ToDoubleFunction<? super E> edgeLength;
+    private final double[] distances;
+    private final int[] previous;
+    private final long[] previousEdges;
+    private final int[] sources;
+
+    private Map<N,Set<N>> cells = null;
+
+    MultiSourceShortestPaths(IndexedGraph<N,E> graph, ToDoubleFunction<? super E> edgeLength,
+                             double[] distances, int[] previous, long[] previousEdges, int[] sources) {
+        this.graph = graph;
+        this.edgeLength = edgeLength;
+        this.distances = distances;
+        this.previous = previous;
+        this.previousEdges = previousEdges;
+        this.sources = sources;
+    }
+
+    /**
+     * Returns the source closest to the given node.
+     *
+     * @param node The node to get the closest source for
+     * @return The closest source, or <code>null</code> if the node cannot be
+     *         reached from any source
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    @Nullable
+    public N source(@NotNull N node) {
+        int s = sources[indexOf(node)];
+        return s < 0 ? null : graph.node(s);
+    }
+
+    /**
+     * Returns the distance from the closest source to the given node.
+     *
+     * @param node The node to get the distance to
+     * @return The distance, or {@link Double#POSITIVE_INFINITY} if the node cannot
+     *         be reached from any source
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    public double distance(@NotNull N node) {
+        return distances[indexOf(node)];
+    }
+
+    /**
+     * Returns the predecessor of the given node on the shortest path from its
+     * closest source.
+     *
+     * @param node The node to get the predecessor of
+     * @return The predecessor, or <code>null</code> if the node is a source or
+     *         cannot be reached
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    @Nullable
+    public N previous(@NotNull N node) {
+        int p = previous[indexOf(node)];
+        return p < 0 ? null : graph.node(p);
+    }
+
+    /**
+     * Returns the shortest path from the closest source to the given node.
+     *
+     * @param node The target node
+     * @return The shortest path from the closest source, or <code>null</code> if
+     *         the node cannot be reached from any source
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    @Nullable
+    public DistancePath<N,E> path(@NotNull N node) {
+        int i = indexOf(node);
+        if(sources[i] < 0) return null;
+        DistancePath<N,E> path = new DistancePath<>(node, edgeLength);
+        for(int p; (p = previous[i]) >= 0; i = p)
+            path.addFirst(graph.node(p), graph.edgeValue(previousEdges[i]));
+        return path;
+    }
+
+    /**
+     * Returns the sources of the computation.
+     *
+     * @return All sources
+     */
+    @NotNull
+    public Set<N> sources() {
+        return cells().keySet();
+    }
+
+    /**
+     * Returns the Voronoi cell of the given source, that is, all nodes that have the
+     * given source as closest source. The source itself is part of its cell.
+     *
+     * @param source The source to get the cell of
+     * @return The nodes closest to that source, or an empty set if it is no source
+     */
+    @NotNull
+    public Set<N> cell(@NotNull N source) {
+        Set<N> cell = cells().get(Arguments.checkNull(source, "source"));
+        return cell != null ? cell : Set.of();
+    }
+
+    /**
+     * Returns the Voronoi cells of the graph, mapping each source to the nodes that
+     * have it as closest source. Nodes not reachable from any source are not part
+     * of any cell.
+     *
+     * @return The cell of each source
+     */
+    @NotNull
+    public Map<N,Set<N>> cells() {
+        if(cells != null) return cells;
+        Map<N,Set<N>> cells = new HashMap<>();
+        for(int i=0; i<sources.length; i++)
+            if(sources[i] == i)
+                cells.put(graph.node(i), new HashSet<>());
+        for(int i=0; i<sources.length; i++)
+            if(sources[i] >= 0)
+                cells.get(graph.node(sources[i])).add(graph.node(i));
+        cells.replaceAll((s,c) -> Collections.unmodifiableSet(c));
+        return this.cells = Collections.unmodifiableMap(cells);
+    }
+
+    /**
+     * Returns the result as map graph in the same format as
+     * {@link Graphs#shortestPaths(ReadableGraph, Object, ToDoubleFunction)}: each node
+     * is mapped to its distance and connected to its predecessor.
+     *
+     * @return The shortest paths as map graph
+     */
+    @NotNull
+    public MapGraph<N,Double,E> toMapGraph() {
+        return HashMapGraph.ofPredecessors(graph, distances, previous, previousEdges);
+    }
+
+    private int indexOf(N node) {
+        int i = graph.indexOf(Arguments.checkNull(node, "node"));
+        if(i < 0) throw new IllegalArgumentException("Node is not in the graph: " + node);
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return "Shortest paths from " + sources().size() + " sources in " + graph;
+    }
+}
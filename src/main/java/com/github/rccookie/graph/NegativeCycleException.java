@@ -0,0 +1,43 @@
+package com.github.rccookie.graph;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thrown by shortest path algorithms that support negative edge lengths if a cycle
+ * with negative overall length is reachable from the source, so that there are no
+ * shortest paths.
+ */
+public class NegativeCycleException extends IllegalArgumentException {
+
+    private final DistancePath<?,?> cycle;
+    private final double length;
+
+    NegativeCycleException(@NotNull DistancePath<?,?> cycle, double length) {
+        super("Graph contains a negative cycle: " + cycle + " (closed, length: " + length + ")");
+        this.cycle = cycle;
+        this.length = length;
+    }
+
+    /**
+     * Returns the negative cycle. The cycle is closed by the edge from the
+     * path's last node to its first node, which is not part of the path
+     * itself because paths cannot contain a node twice. Thus, the path's
+     * {@link DistancePath#distance() distance} does not include that edge.
+     *
+     * @return The negative cycle
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public <N,E> DistancePath<N,E> cycle() {
+        return (DistancePath<N,E>) cycle;
+    }
+
+    /**
+     * Returns the overall length of the cycle, including the closing edge.
+     *
+     * @return The length of the cycle, which is negative
+     */
+    public double length() {
+        return length;
+    }
+}
@@ -0,0 +1,327 @@
+package com.github.rccookie.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read-only graph whose edges are stored outside of the Java heap. Only the nodes
+ * themselves and a hash map from node to index are kept on the heap, the edges
+ * are stored in direct memory in compressed sparse row format, using 12 bytes per
+ * edge: an int for the end node and a double for the edge length. Thus, graphs
+ * with billions of edges can be held without a huge heap, and the garbage
+ * collector never has to scan the edges. The memory is released when the graph
+ * is garbage collected.
+ * <p>Off-heap graphs are created either as a copy of another graph using
+ * {@link #of(ReadableGraph, ToDoubleFunction)}, or for graphs that are too large
+ * to ever be on the heap using a {@link Builder}, which also buffers the edges
+ * off-heap until the graph is built. With integer nodes, the builder can be
+ * used directly as {@link GraphIO.EdgeSink}:</p>
+ * <pre>
+ * OffHeapGraph.Builder&lt;Integer&gt; builder = new OffHeapGraph.Builder&lt;&gt;(true);
+ * GraphIO.readDimacs(file, builder::connect);
+ * OffHeapGraph&lt;Integer&gt; graph = builder.build();
+ * </pre>
+ * <p>The node count is limited to {@link Integer#MAX_VALUE}, the edge count only
+ * by the available memory. Off-heap graphs are immutable and can be accessed
+ * from multiple threads concurrently.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ */
+public class OffHeapGraph<N> extends BufferGraph<N> {
+
+    private final Object[] nodes;
+    private final Map<N,Integer> index;
+
+    private OffHeapGraph(LargeBuffer buffer, boolean directed, Object[] nodes, Map<N,Integer> index, long entries, long edges) {
+        super(buffer, directed, nodes.length, edges, 0, targetsPos(nodes.length), weightsPos(nodes.length, entries));
+        this.nodes = nodes;
+        this.index = index;
+    }
+
+    private static long targetsPos(int size) {
+        return 8L * (size + 1);
+    }
+
+    private static long weightsPos(int size, long entries) {
+        return (targetsPos(size) + 4 * entries + 7) & ~7L;
+    }
+
+    private static LargeBuffer allocate(int size, long entries) {
+        return LargeBuffer.allocateDirect(weightsPos(size, entries) + 8 * entries);
+    }
+
+    /**
+     * Creates an off-heap copy of the given graph.
+     *
+     * @param graph The graph to copy
+     * @param edgeLength Function to determine the length of each edge
+     * @return A new off-heap graph with the same nodes and edges as the given graph
+     */
+    @NotNull
+    public static <N,E> OffHeapGraph<N> of(@NotNull ReadableGraph<N,E> graph, @NotNull ToDoubleFunction<? super E> edgeLength) {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkNull(edgeLength, "edgeLength");
+
+        Object[] nodes = new Object[graph.size()];
+        Map<N,Integer> index = new HashMap<>(nodes.length * 4 / 3 + 1);
+        long entries = 0;
+        int size = 0;
+        for(N n : graph) {
+            index.put(n, size);
+            nodes[size++] = n;
+            entries += graph.adj(n).size();
+        }
+
+        LargeBuffer buffer = allocate(size, entries);
+        long targetsPos = targetsPos(size), weightsPos = weightsPos(size, entries);
+        long[] keys = new long[16];
+        double[] lengths = new double[16];
+        long edge = 0;
+        for(int i=0; i<size; i++) {
+            buffer.putLong(8L * i, edge);
+            @SuppressWarnings("unchecked")
+            Map<N,E> adj = graph.adj((N) nodes[i]);
+            if(adj.size() > keys.length) {
+                keys = new long[adj.size()];
+                lengths = new double[adj.size()];
+            }
+            int degree = 0;
+            for(Map.Entry<N,E> e : adj.entrySet()) {
+                keys[degree] = ((long) index.get(e.getKey()) << 32) | degree;
+                lengths[degree++] = edgeLength.applyAsDouble(e.getValue());
+            }
+            edge = putRow(buffer, targetsPos, weightsPos, edge, keys, lengths, degree);
+        }
+        buffer.putLong(8L * size, edge);
+        return new OffHeapGraph<>(buffer, graph.isDirected(), nodes, index, entries, edge);
+    }
+
+    /**
+     * Sorts the given row entries by target and writes them into the buffer,
+     * starting at the given edge index. Each key contains the target in the upper
+     * and the index into <code>lengths</code> in the lower 32 bits. Of multiple
+     * entries with the same target, the one with the highest index is used.
+     *
+     * @return The index after the last edge written
+     */
+    private static long putRow(LargeBuffer buffer, long targetsPos, long weightsPos, long edge, long[] keys, double[] lengths, int degree) {
+        Arrays.sort(keys, 0, degree);
+        for(int j=0; j<degree; j++) {
+            int target = (int) (keys[j] >>> 32);
+            if(j+1 < degree && (int) (keys[j+1] >>> 32) == target) continue;
+            buffer.putInt(targetsPos + 4 * edge, target);
+            buffer.putDouble(weightsPos + 8 * edge++, lengths[(int) keys[j]]);
+        }
+        return edge;
+    }
+
+    @Override
+    public int indexOf(Object node) {
+        Integer i = index.get(node);
+        return i != null ? i : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public N node(int index) {
+        Objects.checkIndex(index, size);
+        return (N) nodes[index];
+    }
+
+    @Override
+    public String toString() {
+        return (directed ? "Directed off-heap graph" : "Off-heap graph") + " with " + size + " nodes and " + edgeCountString() + " edges";
+    }
+
+
+
+    /**
+     * Builder for off-heap graphs. The edges added are buffered outside of the
+     * heap, so that graphs can be built without ever holding all edges on the heap.
+     * As with {@link GraphBuilder}, the resulting graph is the same as if all nodes
+     * and edges were added to an empty graph in the order they were added to the
+     * builder, so later edges override earlier edges between the same nodes.
+     *
+     * @param <N> Type of the nodes. Null is not permitted as node
+     */
+    public static class Builder<N> {
+
+        private static final int BLOCK_SHIFT = 16;
+        private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+        private static final int EDGE_BYTES = 16;
+
+        private final boolean directed;
+
+        private Object[] nodes = new Object[16];
+        private Map<N,Integer> index = new HashMap<>();
+        private final List<ByteBuffer> blocks = new ArrayList<>();
+        private long edgeCount = 0;
+        private long entries = 0;
+
+        /**
+         * Creates a new builder for a directed graph.
+         */
+        public Builder() {
+            this(true);
+        }
+
+        /**
+         * Creates a new off-heap graph builder.
+         *
+         * @param directed Whether the resulting graph should be directed
+         */
+        public Builder(boolean directed) {
+            this.directed = directed;
+        }
+
+        /**
+         * Adds the given node to the graph. Nodes that are part of an edge don't have
+         * to be added separately.
+         *
+         * @param node The node to add
+         * @return This builder
+         */
+        @Contract("_->this")
+        @NotNull
+        public Builder<N> add(@NotNull N node) {
+            indexOf(Arguments.checkNull(node, "node"));
+            return this;
+        }
+
+        private int indexOf(N node) {
+            Integer i = index.get(node);
+            if(i != null) return i;
+            int size = index.size();
+            if(size == Integer.MAX_VALUE) throw new IllegalStateException("Too many nodes");
+            if(size == nodes.length)
+                nodes = Arrays.copyOf(nodes, (int) Math.min(Integer.MAX_VALUE, 2L * size));
+            nodes[size] = node;
+            index.put(node, size);
+            return size;
+        }
+
+        /**
+         * Connects the two given nodes. If the graph is undirected, this also adds
+         * the reverse connection.
+         *
+         * @param a The first node
+         * @param b The second node
+         * @param length The length of the edge
+         * @return This builder
+         */
+        @Contract("_,_,_->this")
+        @NotNull
+        public Builder<N> connect(@NotNull N a, @NotNull N b, double length) {
+            int i = indexOf(Arguments.checkNull(a, "a")), j = indexOf(Arguments.checkNull(b, "b"));
+            if((edgeCount & BLOCK_MASK) == 0)
+                blocks.add(ByteBuffer.allocateDirect(EDGE_BYTES << BLOCK_SHIFT).order(ByteOrder.LITTLE_ENDIAN));
+            int offset = (int) (edgeCount++ & BLOCK_MASK) * EDGE_BYTES;
+            blocks.get(blocks.size() - 1).putInt(offset, i).putInt(offset + 4, j).putDouble(offset + 8, length);
+            entries += directed || i == j ? 1 : 2;
+            return this;
+        }
+
+        /**
+         * Returns the number of edges added to this builder so far.
+         *
+         * @return The number of edges added
+         */
+        public long edgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * Creates the off-heap graph with the nodes and edges added to this builder.
+         * The memory used by the builder is handed over to the graph or released, so
+         * the builder is empty afterwards.
+         *
+         * @return A new off-heap graph
+         */
+        @NotNull
+        public OffHeapGraph<N> build() {
+            int size = index.size();
+            LargeBuffer buffer = allocate(size, entries);
+            long targetsPos = targetsPos(size), weightsPos = weightsPos(size, entries);
+
+            // Count the degree of each node into the offsets, shifted by one
+            for(long e=0; e<edgeCount; e++) {
+                ByteBuffer block = blocks.get((int) (e >>> BLOCK_SHIFT));
+                int offset = (int) (e & BLOCK_MASK) * EDGE_BYTES;
+                int a = block.getInt(offset), b = block.getInt(offset + 4);
+                increment(buffer, a + 1);
+                if(!directed && a != b) increment(buffer, b + 1);
+            }
+            for(int i=0; i<size; i++)
+                buffer.putLong(8L * (i+1), buffer.getLong(8L * (i+1)) + buffer.getLong(8L * i));
+
+            // Distribute the edges into the rows in insertion order, using the row
+            // starts as write positions, which turns each start into the next start
+            for(long e=0; e<edgeCount; e++) {
+                ByteBuffer block = blocks.get((int) (e >>> BLOCK_SHIFT));
+                int offset = (int) (e & BLOCK_MASK) * EDGE_BYTES;
+                int a = block.getInt(offset), b = block.getInt(offset + 4);
+                double length = block.getDouble(offset + 8);
+                append(buffer, targetsPos, weightsPos, a, b, length);
+                if(!directed && a != b) append(buffer, targetsPos, weightsPos, b, a, length);
+            }
+            blocks.clear();
+            for(int i=size; i>0; i--)
+                buffer.putLong(8L * i, buffer.getLong(8L * (i-1)));
+            buffer.putLong(0, 0);
+
+            // Sort each row and remove duplicate edges in place
+            long[] keys = new long[16];
+            double[] lengths = new double[16];
+            long start = 0, edge = 0;
+            for(int i=0; i<size; i++) {
+                long end = buffer.getLong(8L * (i+1));
+                int degree = Math.toIntExact(end - start);
+                if(degree > keys.length) {
+                    keys = new long[degree];
+                    lengths = new double[degree];
+                }
+                for(int j=0; j<degree; j++) {
+                    keys[j] = ((long) buffer.getInt(targetsPos + 4 * (start + j)) << 32) | j;
+                    lengths[j] = buffer.getDouble(weightsPos + 8 * (start + j));
+                }
+                edge = putRow(buffer, targetsPos, weightsPos, edge, keys, lengths, degree);
+                buffer.putLong(8L * (i+1), edge);
+                start = end;
+            }
+
+            OffHeapGraph<N> graph = new OffHeapGraph<>(buffer, directed, Arrays.copyOf(nodes, size), index, entries, edge);
+            nodes = new Object[16];
+            index = new HashMap<>();
+            edgeCount = entries = 0;
+            return graph;
+        }
+
+        private static void increment(LargeBuffer buffer, int node) {
+            buffer.putLong(8L * node, buffer.getLong(8L * node) + 1);
+        }
+
+        private static void append(LargeBuffer buffer, long targetsPos, long weightsPos, int a, int b, double length) {
+            long edge = buffer.getLong(8L * a);
+            buffer.putInt(targetsPos + 4 * edge, b);
+            buffer.putDouble(weightsPos + 8 * edge, length);
+            buffer.putLong(8L * a, edge + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "Off-heap graph builder with " + edgeCount + " edges";
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.github.rccookie.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable graph with cheap functional updates. Methods like
+ * {@link #connect(Object, Object, Object)} or {@link #remove(Object)} do not
+ * modify the graph, but return a new version of it. The adjacency is stored in
+ * persistent hash maps (hash array mapped tries), so a new version shares all
+ * but O(log n) of its structure with the old one per changed edge, and creating
+ * it takes time proportional to the size of the change rather than the size of
+ * the graph. Old versions stay valid and unchanged.
+ * <p>Because persistent graphs are immutable, they can be shared between threads
+ * freely. {@link SnapshotGraph} is a mutable graph that uses persistent graphs
+ * internally and returns them as snapshots.</p>
+ * <p>For directed graphs, the incoming edges of each node are stored as well, so
+ * that nodes can be removed without searching the whole graph.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public final class PersistentGraph<N,E> implements ReadableGraph<N,E> {
+
+    private static final PersistentGraph<?,?> EMPTY_DIRECTED = new PersistentGraph<>(true, PersistentHashMap.empty(), PersistentHashMap.empty(), 0);
+    private static final PersistentGraph<?,?> EMPTY_UNDIRECTED = new PersistentGraph<>(false, PersistentHashMap.empty(), null, 0);
+
+    final boolean directed;
+    final PersistentHashMap<N, PersistentHashMap<N,E>> out;
+    final PersistentHashMap<N, PersistentHashMap<N,E>> in;
+    final int edgeCount;
+
+    private PersistentGraph(boolean directed, PersistentHashMap<N, PersistentHashMap<N,E>> out,
+                            PersistentHashMap<N, PersistentHashMap<N,E>> in, int edgeCount) {
+        this.directed = directed;
+        this.out = out;
+        this.in = directed ? in : out;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Returns the empty persistent graph.
+     *
+     * @param directed Whether the graph should be directed
+     * @return An empty persistent graph
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public static <N,E> PersistentGraph<N,E> empty(boolean directed) {
+        return (PersistentGraph<N,E>) (directed ? EMPTY_DIRECTED : EMPTY_UNDIRECTED);
+    }
+
+    /**
+     * Returns a persistent graph with the same nodes and edges as the given graph.
+     * It is directed if and only if the given graph is directed.
+     *
+     * @param graph The graph to copy
+     * @return A persistent copy of the graph, or the graph itself if it already is
+     *         a persistent graph
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public static <N,E> PersistentGraph<N,E> of(@NotNull ReadableGraph<? extends N, ? extends E> graph) {
+        if(Arguments.checkNull(graph, "graph") instanceof PersistentGraph)
+            return (PersistentGraph<N,E>) graph;
+        PersistentGraph<N,E>[] g = new PersistentGraph[] { empty(graph.isDirected()) };
+        for(N n : graph) g[0] = g[0].add(n);
+        ((ReadableGraph<N,E>) graph).forEach((a,b,e) -> g[0] = g[0].connect(a,b,e));
+        return g[0];
+    }
+
+    /**
+     * Returns a graph with the given node added to this graph.
+     *
+     * @param node The node to add
+     * @return The resulting graph, or this graph if the node was already present
+     */
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> add(@NotNull N node) {
+        if(out.containsKey(Arguments.checkNull(node, "node"))) return this;
+        return new PersistentGraph<>(directed, out.plus(node, PersistentHashMap.empty()), directed ? in.plus(node, PersistentHashMap.empty()) : null, edgeCount);
+    }
+
+    /**
+     * Returns a graph with all the given nodes added to this graph.
+     *
+     * @param nodes The nodes to add
+     * @return The resulting graph, or this graph if all nodes were already present
+     */
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> addAll(@NotNull Iterable<? extends N> nodes) {
+        PersistentGraph<N,E> g = this;
+        for(N n : Arguments.checkNull(nodes, "nodes")) g = g.add(n);
+        return g;
+    }
+
+    /**
+     * Returns a graph with the given node and all edges from and to it removed from
+     * this graph.
+     *
+     * @param node The node to remove
+     * @return The resulting graph, or this graph if the node was not present
+     */
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> remove(Object node) {
+        PersistentHashMap<N,E> outgoing = out.get(node);
+        if(outgoing == null) return this;
+        PersistentHashMap<N,E> incoming = in.get(node);
+
+        PersistentHashMap<N, PersistentHashMap<N,E>> out = this.out, in = this.in;
+        int edgeCount = this.edgeCount - outgoing.size();
+        for(N n : incoming.keySet()) {
+            if(n.equals(node)) continue;
+            out = out.plus(n, out.get(n).minus(node));
+            edgeCount--;
+        }
+        if(directed)
+            for(N n : outgoing.keySet())
+                in = in.plus(n, in.get(n).minus(node));
+        return new PersistentGraph<>(directed, out.minus(node), directed ? in.minus(node) : null, edgeCount);
+    }
+
+    /**
+     * Returns a graph with all the given nodes removed from this graph.
+     *
+     * @param nodes The nodes to remove
+     * @return The resulting graph, or this graph if none of the nodes were present
+     */
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> removeAll(@NotNull Iterable<?> nodes) {
+        PersistentGraph<N,E> g = this;
+        for(Object n : Arguments.checkNull(nodes, "nodes")) g = g.remove(n);
+        return g;
+    }
+
+    /**
+     * Returns a graph where the given old node is replaced with the new one, as
+     * described in {@link Graph#set(Object, Object)}.
+     *
+     * @param old The node to replace
+     * @param now The replacement
+     * @return The resulting graph, or this graph if the old node was not present or
+     *         is equal to the new one
+     */
+    @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> set(@NotNull Object old, @NotNull N now) {
+        Arguments.checkNull(old, "old");
+        Arguments.checkNull(now, "now");
+        if(!contains(old) || old.equals(now)) return this;
+
+        PersistentGraph<N,E>[] g = new PersistentGraph[] { add(now) };
+        in.get(old).forEach((n,e) -> {
+            if(!n.equals(old)) g[0] = g[0].connect(n, now, e);
+        });
+        out.get(old).forEach((n,e) -> g[0] = g[0].connect(now, n.equals(old) ? now : n, e));
+        return g[0].remove(old);
+    }
+
+    /**
+     * Returns a graph where the nodes a and b are joined into the given node, as
+     * described in {@link Graph#join(Object, Object, Object)}.
+     *
+     * @param a The first node to join
+     * @param b The second node to join
+     * @param into The node to join a and b into
+     * @return The resulting graph, or this graph if nothing changed
+     */
+    @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> join(@NotNull Object a, @NotNull Object b, @NotNull N into) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        Arguments.checkNull(into, "into");
+
+        if(a.equals(b) || a.equals(into) || !contains(a))
+            return set(b, into);
+        if(b.equals(into) || !contains(b))
+            return set(a, into);
+
+        PersistentGraph<N,E>[] g = new PersistentGraph[] { add(into) };
+        for(Object x : new Object[] { a, b }) {
+            in.get(x).forEach((n,e) -> {
+                if(!n.equals(a) && !n.equals(b)) g[0] = g[0].connect(n, into, e);
+            });
+        }
+        for(Object x : new Object[] { a, b })
+            out.get(x).forEach((n,e) -> g[0] = g[0].connect(into, n.equals(a) || n.equals(b) ? into : n, e));
+        return g[0].remove(a).remove(b);
+    }
+
+    /**
+     * Returns a graph where the two given nodes are connected with the given edge.
+     * Nodes not yet in the graph will be added. If this graph is undirected, the
+     * reverse connection is added as well.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @param edge The edge weight
+     * @return The resulting graph, or this graph if the nodes were already connected
+     *         with the identical edge
+     */
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> connect(@NotNull N a, @NotNull N b, E edge) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        PersistentGraph<N,E> g = add(a).add(b);
+        PersistentHashMap<N,E> adjA = g.out.get(a);
+        if(adjA.containsKey(b) && adjA.get(b) == edge) return this;
+
+        int edgeCount = g.edgeCount;
+        if(!adjA.containsKey(b))
+            edgeCount += directed || a.equals(b) ? 1 : 2;
+        PersistentHashMap<N, PersistentHashMap<N,E>> out = g.out.plus(a, adjA.plus(b, edge)), in = g.in;
+        if(directed) in = in.plus(b, in.get(b).plus(a, edge));
+        else out = out.plus(b, out.get(b).plus(a, edge));
+        return new PersistentGraph<>(directed, out, in, edgeCount);
+    }
+
+    /**
+     * Returns a graph where the connection from a to b is removed. If this graph is
+     * undirected, the reverse connection is removed as well.
+     *
+     * @param a The first node
+     * @param b The second node
+     * @return The resulting graph, or this graph if the nodes were not connected
+     */
+    @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> disconnect(@NotNull Object a, @NotNull Object b) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        PersistentHashMap<N,E> adjA = out.get(a);
+        if(adjA == null || !adjA.containsKey(b)) return this;
+        PersistentHashMap<N, PersistentHashMap<N,E>> out = this.out.plus((N) a, adjA.minus(b)), in = this.in;
+        if(directed) in = in.plus((N) b, in.get(b).minus(a));
+        else out = out.plus((N) b, out.get(b).minus(a));
+        return new PersistentGraph<>(directed, out, in, edgeCount - (directed || a.equals(b) ? 1 : 2));
+    }
+
+    /**
+     * Returns a graph where all outgoing connections of the given node are removed.
+     *
+     * @param node The node to disconnect
+     * @return The resulting graph, or this graph if the node has no outgoing
+     *         connections
+     */
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Contract(pure = true)
+    @NotNull
+    public PersistentGraph<N,E> disconnectAll(@NotNull Object node) {
+        PersistentHashMap<N,E> outgoing = out.get(Arguments.checkNull(node, "node"));
+        if(outgoing == null || outgoing.isEmpty()) return this;
+        PersistentGraph<N,E> g = this;
+        for(N n : outgoing.keySet())
+            g = g.disconnect(node, n);
+        return g;
+    }
+
+    /**
+     * Returns the nodes with a connection to the given node, mapped to the edge of
+     * the respective connection. For undirected graphs, this is the same as
+     * {@link #adj(Object)}.
+     *
+     * @param node The node to get the incoming connections for
+     * @return The nodes connected to the given node mapped to their edges, or
+     *         <code>null</code> if the node is not in the graph
+     */
+    @SuppressWarnings("SuspiciousMethodCalls")
+    public IterableMap<N,E> incoming(Object node) {
+        PersistentHashMap<N,E> adj = in.get(node);
+        return adj != null ? IterableMap.of(adj) : null;
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public IterableMap<N,E> adj(Object node) {
+        PersistentHashMap<N,E> adj = out.get(node);
+        return adj != null ? IterableMap.of(adj) : null;
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,E>> adjacencyList() {
+        return out;
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public E edge(@NotNull Object a, @NotNull Object b) {
+        Map<N,E> adj = out.get(a);
+        return adj != null ? adj.get(b) : null;
+    }
+
+    @SuppressWarnings("SuspiciousMethodCalls")
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        Map<N,E> adj = out.get(a);
+        return adj != null && adj.containsKey(b);
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return out.keySet();
+    }
+
+    @Override
+    public Set<? extends Edge<N,E>> edges() {
+        Set<Edge<N,E>> edges = new HashSet<>();
+        forEach((a,b,e) -> edges.add(new Edge<>(a,b,e)));
+        return edges;
+    }
+
+    @Override
+    public @NotNull Collection<E> weights() {
+        Collection<E> weights = new ArrayList<>(edgeCount);
+        forEach((a,b,e) -> weights.add(e));
+        return weights;
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return out.containsKey(node);
+    }
+
+    @Override
+    public int size() {
+        return out.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return out.isEmpty();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super E> action) {
+        out.forEach((a,adj) -> adj.forEach((b,e) -> action.accept(a,b,e)));
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        return out.keySet().iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof ReadableGraph)) return false;
+        ReadableGraph<?,?> graph = (ReadableGraph<?,?>) o;
+        return directed == graph.isDirected() && out.equals(graph.adjacencyList());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(directed, out);
+    }
+
+    @Override
+    public String toString() {
+        return (directed ? "Directed persistent graph" : "Persistent graph") + " with " + size() + " nodes and " + (directed ? edgeCount : (edgeCount/2 + "("+edgeCount+")")) + " edges";
+    }
+}
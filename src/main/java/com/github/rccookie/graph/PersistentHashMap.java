@@ -0,0 +1,375 @@
+package com.github.rccookie.graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable hash map based on a hash array mapped trie (Bagwell). Modifications
+ * using {@link #plus(Object, Object)} and {@link #minus(Object)} return a new map
+ * that shares all but O(log n) nodes with the old one, so old versions stay valid
+ * and can be read from any thread without synchronization. The map's own mutating
+ * methods throw an {@link UnsupportedOperationException}.
+ * <p>Null is not permitted as key, but <b>is</b> permitted as value.</p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class PersistentHashMap<K,V> extends AbstractMap<K,V> {
+
+    private static final PersistentHashMap<?,?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    /**
+     * Returned by lookups if the key was not found, to distinguish missing keys from
+     * <code>null</code> values.
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * Maximum depth of the trie: 7 bitmap levels of 5 bits each cover the 32 bit hash,
+     * plus one level for hash collisions.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> PersistentHashMap<K,V> empty() {
+        return (PersistentHashMap<K,V>) EMPTY;
+    }
+
+    /**
+     * Returns a map with the same mappings as this map, and the given key mapped to
+     * the given value. If the key is already mapped to the identical value, this map
+     * is returned.
+     */
+    PersistentHashMap<K,V> plus(@NotNull K key, V value) {
+        boolean[] added = { false };
+        Node root = (this.root != null ? this.root : BitmapNode.EMPTY).put(0, key.hashCode(), key, value, added);
+        if(root == this.root) return this;
+        return new PersistentHashMap<>(root, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map with the same mappings as this map, except for the given key. If
+     * the key is not in this map, this map is returned.
+     */
+    PersistentHashMap<K,V> minus(Object key) {
+        if(root == null || key == null) return this;
+        Node root = this.root.remove(0, key.hashCode(), key);
+        if(root == this.root) return this;
+        return root == null ? empty() : new PersistentHashMap<>(root, size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        if(root == null || key == null) return null;
+        Object value = root.find(0, key.hashCode(), key);
+        return value != NOT_FOUND ? (V) value : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root != null && key != null && root.find(0, key.hashCode(), key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if(root != null)
+            root.forEach((BiConsumer<Object,Object>) action);
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K,V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K,V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if(!(o instanceof Entry)) return false;
+                Entry<?,?> e = (Entry<?,?>) o;
+                Object value = root != null && e.getKey() != null ? root.find(0, e.getKey().hashCode(), e.getKey()) : NOT_FOUND;
+                return value != NOT_FOUND && Objects.equals(value, e.getValue());
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Node of the trie. The array contains key-value pairs; a <code>null</code> key
+     * indicates that the following value is a child node.
+     */
+    private static abstract class Node {
+
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * Returns this node if the key was not found, or <code>null</code> if the node
+         * is empty after removing the key.
+         */
+        abstract Node remove(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object,Object> action) {
+            for(int i=0; i<array.length; i+=2) {
+                if(array[i] == null) ((Node) array[i+1]).forEach(action);
+                else action.accept(array[i], array[i+1]);
+            }
+        }
+    }
+
+    /**
+     * Node that maps 5 bits of the hash to up to 32 entries, of which only those
+     * present are stored.
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if((bitmap & bit) == 0) return NOT_FOUND;
+            int i = index(bit);
+            Object k = array[i];
+            if(k == null) return ((Node) array[i+1]).find(shift + 5, hash, key);
+            return key.equals(k) ? array[i+1] : NOT_FOUND;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = index(bit);
+            if((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] array = new Object[this.array.length + 2];
+                System.arraycopy(this.array, 0, array, 0, i);
+                array[i] = key;
+                array[i+1] = value;
+                System.arraycopy(this.array, i, array, i+2, this.array.length - i);
+                return new BitmapNode(bitmap | bit, array);
+            }
+
+            Object k = array[i], v = array[i+1];
+            if(k == null) {
+                Node child = ((Node) v).put(shift + 5, hash, key, value, added);
+                return child == v ? this : with(i+1, child);
+            }
+            if(key.equals(k))
+                return v == value ? this : with(i+1, value);
+
+            added[0] = true;
+            Node child;
+            int h = k.hashCode();
+            if(h == hash)
+                child = new CollisionNode(hash, new Object[] { k, v, key, value });
+            else {
+                boolean[] ignored = { false };
+                child = EMPTY.put(shift + 5, h, k, v, ignored).put(shift + 5, hash, key, value, ignored);
+            }
+            Object[] array = this.array.clone();
+            array[i] = null;
+            array[i+1] = child;
+            return new BitmapNode(bitmap, array);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if((bitmap & bit) == 0) return this;
+            int i = index(bit);
+            Object k = array[i];
+            if(k == null) {
+                Node child = ((Node) array[i+1]).remove(shift + 5, hash, key);
+                if(child == array[i+1]) return this;
+                if(child != null) return with(i+1, child);
+            }
+            else if(!key.equals(k)) return this;
+
+            if(bitmap == bit) return null;
+            Object[] array = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, array, 0, i);
+            System.arraycopy(this.array, i+2, array, i, array.length - i);
+            return new BitmapNode(bitmap ^ bit, array);
+        }
+
+        private BitmapNode with(int i, Object value) {
+            Object[] array = this.array.clone();
+            array[i] = value;
+            return new BitmapNode(bitmap, array);
+        }
+    }
+
+    /**
+     * Node containing keys that all have the same hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int index(Object key) {
+            for(int i=0; i<array.length; i+=2)
+                if(key.equals(array[i])) return i;
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            if(hash != this.hash) return NOT_FOUND;
+            int i = index(key);
+            return i < 0 ? NOT_FOUND : array[i+1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if(hash != this.hash) {
+                // Move this node one level down and insert the key next to it
+                return new BitmapNode(1 << ((this.hash >>> shift) & 31), new Object[] { null, this })
+                        .put(shift, hash, key, value, added);
+            }
+            int i = index(key);
+            Object[] array;
+            if(i >= 0) {
+                if(this.array[i+1] == value) return this;
+                array = this.array.clone();
+            }
+            else {
+                added[0] = true;
+                array = Arrays.copyOf(this.array, this.array.length + 2);
+                array[i = this.array.length] = key;
+            }
+            array[i+1] = value;
+            return new CollisionNode(hash, array);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            if(hash != this.hash) return this;
+            int i = index(key);
+            if(i < 0) return this;
+            if(array.length == 2) return null;
+            Object[] array = new Object[this.array.length - 2];
+            System.arraycopy(this.array, 0, array, 0, i);
+            System.arraycopy(this.array, i+2, array, i, array.length - i);
+            return new CollisionNode(hash, array);
+        }
+    }
+
+    /**
+     * Depth-first iterator over the entries of the trie.
+     */
+    private static final class EntryIterator<K,V> implements Iterator<Entry<K,V>> {
+
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private Entry<K,V> next = null;
+
+        EntryIterator(Node root) {
+            if(root != null) {
+                arrays[0] = root.array;
+                depth = 0;
+                advance();
+            }
+            else depth = -1;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while(depth >= 0) {
+                Object[] array = arrays[depth];
+                int i = positions[depth];
+                if(i >= array.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = i + 2;
+                if(array[i] == null) {
+                    arrays[++depth] = ((Node) array[i+1]).array;
+                    positions[depth] = 0;
+                }
+                else {
+                    next = new SimpleImmutableEntry<>((K) array[i], (V) array[i+1]);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K,V> next() {
+            if(next == null) throw new NoSuchElementException();
+            Entry<K,V> next = this.next;
+            advance();
+            return next;
+        }
+    }
+}
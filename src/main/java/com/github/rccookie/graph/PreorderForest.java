@@ -0,0 +1,119 @@
+package com.github.rccookie.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+/**
+ * Snapshot of a forest in int-indexed arrays, with the nodes numbered in
+ * depth-first preorder so that each subtree is a contiguous range of indices.
+ */
+final class PreorderForest<N> {
+
+    final Object[] nodes;
+    final Map<N,Integer> index;
+    /**
+     * The parent of each node, or <code>-1</code> for roots.
+     */
+    final int[] parent;
+    final int[] depth;
+    /**
+     * The index after the last node in the subtree of each node.
+     */
+    final int[] end;
+    /**
+     * The weight of the edge from the parent of each node, or 0 for roots.
+     */
+    final double[] weight;
+
+    /**
+     * Numbers the nodes of the given forest in preorder, starting with the roots in
+     * iteration order.
+     *
+     * @throws IllegalArgumentException If the forest contains a cycle or nodes that
+     *                                  are not reachable from a root
+     */
+    @SuppressWarnings("unchecked")
+    <E> PreorderForest(Forest<N,E> forest, ToDoubleFunction<? super E> edgeWeight) {
+        Arguments.checkNull(forest, "forest");
+        Arguments.checkNull(edgeWeight, "edgeWeight");
+
+        int size = forest.size();
+        nodes = new Object[size];
+        index = new HashMap<>(size * 4 / 3 + 1);
+        parent = new int[size];
+        depth = new int[size];
+        end = new int[size];
+        weight = new double[size];
+
+        // Iterative preorder traversal; each stack entry remembers its parent and
+        // edge weight. The subtree end of a node is known once a node is visited
+        // that is not its descendant, i.e. whose depth is not greater.
+        Object[] stack = new Object[size];
+        int[] stackParent = new int[size];
+        double[] stackWeight = new double[size];
+        int[] open = new int[size];
+        int count = 0, openCount = 0;
+        for(N root : forest.roots()) {
+            int top = 0;
+            stack[top] = root;
+            stackParent[top] = -1;
+            stackWeight[top++] = 0;
+            while(top != 0) {
+                N n = (N) stack[--top];
+                int p = stackParent[top], i = count++;
+                if(index.put(n, i) != null)
+                    throw new IllegalArgumentException("Forest contains a cycle at " + n);
+                nodes[i] = n;
+                parent[i] = p;
+                depth[i] = p < 0 ? 0 : depth[p] + 1;
+                weight[i] = stackWeight[top];
+                while(openCount != 0 && depth[open[openCount-1]] >= depth[i])
+                    end[open[--openCount]] = i;
+                open[openCount++] = i;
+
+                for(Map.Entry<N,E> child : forest.adj(n).entrySet()) {
+                    if(top == size)
+                        throw new IllegalArgumentException("Forest contains a cycle at " + child.getKey());
+                    stack[top] = child.getKey();
+                    stackParent[top] = i;
+                    stackWeight[top++] = edgeWeight.applyAsDouble(child.getValue());
+                }
+            }
+        }
+        while(openCount != 0)
+            end[open[--openCount]] = count;
+        if(count != size)
+            throw new IllegalArgumentException("Forest contains nodes that are not reachable from any root");
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    int indexOf(Object node) {
+        Integer i = index.get(Arguments.checkNull(node, "node"));
+        if(i == null) throw new IllegalArgumentException("Node is not in the tree: " + node);
+        return i;
+    }
+
+    @SuppressWarnings("unchecked")
+    N node(int index) {
+        return (N) nodes[index];
+    }
+
+    /**
+     * Returns the index of the edge between the given nodes, which is the index of
+     * the child node.
+     *
+     * @throws IllegalArgumentException If the nodes are not adjacent
+     */
+    int edgeIndex(Object a, Object b) {
+        int i = indexOf(a), j = indexOf(b);
+        if(parent[j] == i) return j;
+        if(parent[i] == j) return i;
+        throw new IllegalArgumentException("Nodes are not adjacent: " + a + ", " + b);
+    }
+}
@@ -0,0 +1,400 @@
+package com.github.rccookie.graph;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link Algorithm.ShortestPath} that memoizes the results of another shortest
+ * path algorithm. Results are keyed by the graph and the edge length function,
+ * both by identity, and the source and target node; the heuristic is assumed not
+ * to change the result. Unreachable targets are cached as well. The cache holds
+ * a bounded number of paths and evicts the least recently or the least frequently
+ * used path when it is full.
+ * <p>Cached paths of a {@link HashGraph} are invalidated automatically when the
+ * graph changes, by registering a {@link GraphListener} on first use. While it is
+ * registered, the graph uses its slower mutation paths that record and deliver an
+ * event for each change. Other graphs that may change have to be invalidated using
+ * {@link #invalidate(ReadableGraph)}. The cache only keeps references to graphs
+ * that have cached paths or paths being computed, and unregisters from a graph
+ * when its last path is removed.</p>
+ * <p>Each call returns a copy of the cached path, so callers may modify it. The
+ * copy shares its storage with the cached path until it is modified, so a cache
+ * hit takes constant time regardless of the length of the path. The cache is
+ * thread safe if the underlying algorithm is; paths are computed outside of the
+ * lock, so concurrent misses for the same path may compute it more than once.</p>
+ */
+public final class ShortestPathCache implements Algorithm.ShortestPath {
+
+    /**
+     * Strategies to choose the path to remove when the cache is full.
+     */
+    public enum Eviction {
+        /**
+         * Removes the path that was not requested for the longest time.
+         */
+        LRU,
+        /**
+         * Removes the path that was requested the least times since it was cached,
+         * and the least recently used one of those if there are multiple.
+         */
+        LFU
+    }
+
+    private final Algorithm.ShortestPath algorithm;
+    private final int capacity;
+    private final Eviction eviction;
+
+    /**
+     * The cached paths, in access order for {@link Eviction#LRU}.
+     */
+    private final LinkedHashMap<Key,Entry> entries;
+    /**
+     * The keys by their use count, for {@link Eviction#LFU}. Each set is in order
+     * of the last use.
+     */
+    private final Map<Long, LinkedHashSet<Key>> frequencies;
+    private long minFrequency = 0;
+
+    private final Map<ReadableGraph<?,?>, Version> versions = new IdentityHashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates a new least recently used cache around the given algorithm.
+     *
+     * @param algorithm The algorithm to compute paths that are not cached
+     * @param capacity The maximum number of cached paths
+     */
+    public ShortestPathCache(@NotNull Algorithm.ShortestPath algorithm, int capacity) {
+        this(algorithm, capacity, Eviction.LRU);
+    }
+
+    /**
+     * Creates a new cache around the given algorithm.
+     *
+     * @param algorithm The algorithm to compute paths that are not cached
+     * @param capacity The maximum number of cached paths
+     * @param eviction The strategy to remove paths when the cache is full
+     */
+    public ShortestPathCache(@NotNull Algorithm.ShortestPath algorithm, int capacity, @NotNull Eviction eviction) {
+        this.algorithm = Arguments.checkNull(algorithm, "algorithm");
+        this.capacity = Arguments.checkRange(capacity, 1, null);
+        this.eviction = Arguments.checkNull(eviction, "eviction");
+        entries = new LinkedHashMap<>(16, 0.75f, eviction == Eviction.LRU);
+        frequencies = eviction == Eviction.LFU ? new HashMap<>() : null;
+    }
+
+    @Override
+    public <N,E> DistancePath<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
+                                           @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic) {
+        return compute(graph, source, target, edgeLength, heuristic, Instrumentation.NONE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <N,E> DistancePath<N,E> compute(@NotNull ReadableGraph<N,E> graph, @NotNull N source, @NotNull N target,
+                                           @NotNull ToDoubleFunction<? super E> edgeLength, @Nullable ToDoubleBiFunction<? super N, ? super N> heuristic,
+                                           @NotNull Instrumentation instrumentation) {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkNull(source, "source");
+        Arguments.checkNull(target, "target");
+        Arguments.checkNull(edgeLength, "edgeLength");
+        Arguments.checkNull(instrumentation, "instrumentation");
+
+        Key key = new Key(graph, source, target, edgeLength);
+        Version version;
+        long current;
+        Entry hit = null;
+        synchronized(this) {
+            version = version(graph);
+            current = version.value;
+            Entry entry = entries.get(key);
+            if(entry != null && entry.version == current) {
+                hits++;
+                if(frequencies != null) use(key, entry);
+                hit = entry;
+            }
+            else {
+                // Keep the version while computing, even if the graph's last path is removed
+                version.uses++;
+                if(entry != null) remove(key, entry);
+                misses++;
+            }
+        }
+        // Cached paths are never modified, so they can be copied outside of the lock
+        if(hit != null) return copy((DistancePath<N,E>) hit.path);
+
+        DistancePath<N,E> path;
+        try {
+            path = algorithm.compute(graph, source, target, edgeLength, heuristic, instrumentation);
+        } catch(RuntimeException | Error e) {
+            synchronized(this) {
+                release(version);
+            }
+            throw e;
+        }
+
+        synchronized(this) {
+            // Don't cache results of a graph that changed or was invalidated meanwhile
+            if(versions.get(graph) == version && version.value == current && !entries.containsKey(key))
+                put(key, new Entry(copy(path), version, current));
+            release(version);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the maximum number of cached paths.
+     *
+     * @return The capacity of the cache
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of currently cached paths, including paths of graphs that
+     * changed and that were not yet removed.
+     *
+     * @return The number of cached paths
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests that were answered from the cache.
+     *
+     * @return The number of cache hits
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that had to compute the path.
+     *
+     * @return The number of cache misses
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of requests that were answered from the cache.
+     *
+     * @return The hit rate between 0 and 1, or {@link Double#NaN} if there were no
+     *         requests yet
+     */
+    public synchronized double hitRate() {
+        return (double) hits / (hits + misses);
+    }
+
+    /**
+     * Returns the number of paths that were removed because the cache was full.
+     *
+     * @return The number of evictions
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Removes all cached paths of the given graph. This is necessary after changes
+     * of graphs that don't notify about changes, unlike {@link HashGraph}.
+     *
+     * @param graph The graph that changed
+     */
+    public synchronized void invalidate(@NotNull ReadableGraph<?,?> graph) {
+        Version version = versions.remove(Arguments.checkNull(graph, "graph"));
+        if(version == null) return;
+        version.unregister();
+        Iterator<Map.Entry<Key,Entry>> it = entries.entrySet().iterator();
+        while(it.hasNext()) {
+            Map.Entry<Key,Entry> entry = it.next();
+            if(entry.getValue().owner == version) {
+                if(frequencies != null) forget(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached paths and unregisters from all graphs. The statistics are
+     * not reset.
+     */
+    public synchronized void clear() {
+        versions.values().forEach(Version::unregister);
+        versions.clear();
+        entries.clear();
+        if(frequencies != null) frequencies.clear();
+        minFrequency = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Shortest path cache (" + eviction + ", " + entries.size() + "/" + capacity + " paths, " + hits + " hits, " + misses + " misses)";
+    }
+
+    private <N,E> Version version(ReadableGraph<N,E> graph) {
+        Version version = versions.get(graph);
+        if(version != null) return version;
+        version = new Version(graph);
+        if(graph instanceof HashGraph) {
+            HashGraph<N,E> hashGraph = (HashGraph<N,E>) graph;
+            Version v = version;
+            GraphListener<N,E> listener = events -> v.value++;
+            hashGraph.addListener(listener);
+            version.unregister = () -> hashGraph.removeListener(listener);
+        }
+        versions.put(graph, version);
+        return version;
+    }
+
+    private void put(Key key, Entry entry) {
+        if(entries.size() == capacity) {
+            Key eldest;
+            if(frequencies == null) eldest = entries.keySet().iterator().next();
+            else {
+                if(minFrequency == 0)
+                    minFrequency = frequencies.keySet().stream().mapToLong(f -> f).min().getAsLong();
+                eldest = frequencies.get(minFrequency).iterator().next();
+            }
+            remove(eldest, entries.get(eldest));
+            evictions++;
+        }
+        entries.put(key, entry);
+        entry.owner.uses++;
+        if(frequencies != null) {
+            frequencies.computeIfAbsent(1L, $ -> new LinkedHashSet<>()).add(key);
+            minFrequency = 1;
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        if(frequencies != null) forget(key, entry);
+        release(entry.owner);
+    }
+
+    /**
+     * Releases one use of the given version, and removes it and unregisters from
+     * its graph if it is no longer used, so that the graph can be garbage collected.
+     */
+    private void release(Version version) {
+        if(--version.uses != 0 || versions.get(version.graph) != version) return;
+        versions.remove(version.graph);
+        version.unregister();
+    }
+
+    private static <N,E> DistancePath<N,E> copy(DistancePath<N,E> path) {
+        return path != null ? path.clone() : null;
+    }
+
+    /**
+     * Moves the key to the next higher use count.
+     */
+    private void use(Key key, Entry entry) {
+        long frequency = entry.frequency++;
+        LinkedHashSet<Key> keys = frequencies.get(frequency);
+        keys.remove(key);
+        if(keys.isEmpty()) {
+            frequencies.remove(frequency);
+            if(minFrequency == frequency) minFrequency++;
+        }
+        frequencies.computeIfAbsent(entry.frequency, $ -> new LinkedHashSet<>()).add(key);
+    }
+
+    /**
+     * Removes the key from its use count set. If that was the last key with the
+     * minimum use count, the minimum is determined lazily on the next eviction.
+     */
+    private void forget(Key key, Entry entry) {
+        LinkedHashSet<Key> keys = frequencies.get(entry.frequency);
+        keys.remove(key);
+        if(keys.isEmpty()) {
+            frequencies.remove(entry.frequency);
+            if(minFrequency == entry.frequency) minFrequency = 0;
+        }
+    }
+
+    private static final class Key {
+
+        final ReadableGraph<?,?> graph;
+        final Object source;
+        final Object target;
+        final Object edgeLength;
+        final int hash;
+
+        Key(ReadableGraph<?,?> graph, Object source, Object target, Object edgeLength) {
+            this.graph = graph;
+            this.source = source;
+            this.target = target;
+            this.edgeLength = edgeLength;
+            hash = 31 * (31 * (31 * System.identityHashCode(graph) + source.hashCode()) + target.hashCode()) + System.identityHashCode(edgeLength);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && graph == key.graph && edgeLength == key.edgeLength &&
+                   source.equals(key.source) && target.equals(key.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+
+        final DistancePath<?,?> path;
+        final Version owner;
+        final long version;
+        long frequency = 1;
+
+        Entry(DistancePath<?,?> path, Version owner, long version) {
+            this.path = path;
+            this.owner = owner;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Change counter of a graph.
+     */
+    private static final class Version {
+
+        final ReadableGraph<?,?> graph;
+        volatile long value = 0;
+        Runnable unregister = () -> { };
+        /**
+         * Number of cached paths and running computations of the graph.
+         */
+        int uses = 0;
+
+        Version(ReadableGraph<?,?> graph) {
+            this.graph = graph;
+        }
+
+        void unregister() {
+            unregister.run();
+        }
+    }
+}
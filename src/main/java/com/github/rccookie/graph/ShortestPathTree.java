@@ -0,0 +1,241 @@
+package com.github.rccookie.graph;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The result of a single source shortest path computation, stored as arrays of
+ * distances and predecessors over the node indices of an {@link IndexedGraph}.
+ * Unlike the {@link MapGraph} returned by
+ * {@link Graphs#shortestPaths(ReadableGraph, Object, ToDoubleFunction)}, no
+ * graph has to be maintained while the algorithm runs; conversions to other
+ * representations are only done on request.
+ *
+ * @param <N> The node type
+ * @param <E> The edge type
+ */
+public class ShortestPathTree<N,E> {
+
+    private final IndexedGraph<N,E> graph;
+    private final ToDoubleFunction<? super E> edgeLength;
+    private final int source;
+    private final double[] distances;
+    private final int[] previous;
+    private final long[] previousEdges;
+
+    ShortestPathTree(IndexedGraph<N,E> graph, ToDoubleFunction<? super E> edgeLength, int source,
+                     double[] distances, int[] previous, long[] previousEdges) {
+        this.graph = graph;
+        this.edgeLength = edgeLength;
+        this.source = source;
+        this.distances = distances;
+        this.previous = previous;
+        this.previousEdges = previousEdges;
+    }
+
+    /**
+     * Creates a shortest path tree from the result of
+     * {@link Algorithm.SingleSourceShortestPath#compute(ReadableGraph, Object, ToDoubleFunction)},
+     * which maps each node to its distance and connects it to its predecessor.
+     * Nodes missing from the map graph are considered unreachable.
+     */
+    static <N,E> ShortestPathTree<N,E> ofPredecessors(ReadableGraph<N,E> graph, N source, ToDoubleFunction<? super E> edgeLength,
+                                                      MapGraph<N,Double,E> paths) {
+        IndexedGraph<N,E> g = IndexedGraph.of(graph);
+        int s = g.indexOf(Arguments.checkNull(source, "source"));
+        if(s < 0) throw new IllegalArgumentException("Source is not in the graph: " + source);
+
+        int size = g.size();
+        double[] d = new double[size];
+        int[] p = new int[size];
+        long[] pe = new long[size];
+        for(int i=0; i<size; i++) {
+            N n = g.node(i);
+            Double dist = paths.contains(n) ? paths.get(n) : null;
+            d[i] = dist != null ? dist : Double.POSITIVE_INFINITY;
+            p[i] = -1;
+            if(i == s || dist == null) continue;
+            for(Map.Entry<N,E> predecessor : paths.adj(n).entrySet()) {
+                int j = g.indexOf(predecessor.getKey());
+                if(j < 0) continue;
+                // Use the edge with the same value if there are several candidates
+                for(long e=g.edgeStart(j); e<g.edgeEnd(j); e++) {
+                    if(g.target(e) != i) continue;
+                    if(p[i] < 0 || Objects.equals(g.edgeValue(e), predecessor.getValue())) {
+                        p[i] = j;
+                        pe[i] = e;
+                    }
+                }
+                if(p[i] >= 0) break;
+            }
+        }
+        return new ShortestPathTree<>(g, edgeLength, s, d, p, pe);
+    }
+
+    /**
+     * Returns the source of the shortest paths.
+     *
+     * @return The source node
+     */
+    @NotNull
+    public N source() {
+        return graph.node(source);
+    }
+
+    /**
+     * Returns the indexed graph the shortest paths were computed on. Its node
+     * indices can be used with {@link #distance(int)} and {@link #previous(int)}.
+     *
+     * @return The indexed graph
+     */
+    @NotNull
+    public IndexedGraph<N,E> graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the length of the shortest path from the source to the given node.
+     *
+     * @param node The node to get the distance to
+     * @return The distance, or {@link Double#POSITIVE_INFINITY} if the node cannot
+     *         be reached
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    public double distance(@NotNull N node) {
+        return distances[indexOf(node)];
+    }
+
+    /**
+     * Returns the length of the shortest path from the source to the node with the
+     * given index in {@link #graph()}.
+     *
+     * @param node The index of the node to get the distance to
+     * @return The distance, or {@link Double#POSITIVE_INFINITY} if the node cannot
+     *         be reached
+     */
+    public double distance(int node) {
+        return distances[node];
+    }
+
+    /**
+     * Returns whether the given node can be reached from the source.
+     *
+     * @param node The node to test
+     * @return Whether there is a path to the node
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    public boolean reachable(@NotNull N node) {
+        int i = indexOf(node);
+        return i == source || previous[i] >= 0;
+    }
+
+    /**
+     * Returns the predecessor of the given node on its shortest path.
+     *
+     * @param node The node to get the predecessor of
+     * @return The predecessor, or <code>null</code> if the node is the source or
+     *         cannot be reached
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    @Nullable
+    public N previous(@NotNull N node) {
+        int p = previous[indexOf(node)];
+        return p < 0 ? null : graph.node(p);
+    }
+
+    /**
+     * Returns the index of the predecessor of the node with the given index in
+     * {@link #graph()}.
+     *
+     * @param node The index of the node to get the predecessor of
+     * @return The index of the predecessor, or <code>-1</code> if the node is the
+     *         source or cannot be reached
+     */
+    public int previous(int node) {
+        return previous[node];
+    }
+
+    /**
+     * Returns the shortest path from the source to the given node.
+     *
+     * @param node The target node
+     * @return The shortest path, or <code>null</code> if the node cannot be reached
+     * @throws IllegalArgumentException If the node is not in the graph
+     */
+    @Nullable
+    public DistancePath<N,E> path(@NotNull N node) {
+        int i = indexOf(node);
+        if(i != source && previous[i] < 0) return null;
+        DistancePath<N,E> path = new DistancePath<>(node, edgeLength);
+        for(int p; (p = previous[i]) >= 0; i = p)
+            path.addFirst(graph.node(p), graph.edgeValue(previousEdges[i]));
+        return path;
+    }
+
+    /**
+     * Returns the shortest path tree, rooted at the source, that contains all nodes
+     * reachable from the source. Each node is connected to its predecessor with the
+     * edge from the predecessor to it. Each call creates a new tree, which may be
+     * modified freely.
+     *
+     * @return The shortest path tree
+     */
+    @NotNull
+    public Tree<N,E> asTree() {
+        // Children in CSR format, so the nodes can be added parents first
+        int size = distances.length;
+        int[] offsets = new int[size + 1];
+        for(int i=0; i<size; i++)
+            if(previous[i] >= 0) offsets[previous[i] + 1]++;
+        for(int i=0; i<size; i++)
+            offsets[i+1] += offsets[i];
+        int[] children = new int[offsets[size]];
+        int[] fill = offsets.clone();
+        for(int i=0; i<size; i++)
+            if(previous[i] >= 0) children[fill[previous[i]]++] = i;
+
+        Tree<N,E> tree = new HashTree<>(graph.node(source));
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        while(head != tail) {
+            int n = queue[head++];
+            for(int j=offsets[n]; j<offsets[n+1]; j++) {
+                int m = children[j];
+                tree.add(graph.node(m), graph.node(n), graph.edgeValue(previousEdges[m]));
+                queue[tail++] = m;
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the shortest paths as map graph: each node is mapped to its distance
+     * and connected to its predecessor using the edge from the predecessor to it.
+     * This is the format returned by
+     * {@link Algorithm.SingleSourceShortestPath#compute(ReadableGraph, Object, ToDoubleFunction)}.
+     *
+     * @return A new map graph with the shortest paths
+     */
+    @NotNull
+    public MapGraph<N,Double,E> toMapGraph() {
+        return HashMapGraph.ofPredecessors(graph, distances, previous, previousEdges);
+    }
+
+    private int indexOf(N node) {
+        int i = graph.indexOf(Arguments.checkNull(node, "node"));
+        if(i < 0) throw new IllegalArgumentException("Node is not in the graph: " + node);
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return "Shortest paths from " + source() + " in " + graph;
+    }
+}
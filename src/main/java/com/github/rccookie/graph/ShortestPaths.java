@@ -46,7 +46,7 @@ public class ShortestPaths<N,E> {
         if(from.equals(to)) return path;
         N next, current = to;
         while((current = previous(from, next = current)) != null)
-            path.insertBefore(0, current, graph.edge(current, next));
+            path.addFirst(current, graph.edge(current, next));
         return path;
     }
 }
@@ -0,0 +1,336 @@
+package com.github.rccookie.graph;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implementation of {@link Graph} using multi-version concurrency control. The
+ * state of the graph is a {@link PersistentGraph}, which is never modified; every
+ * modification creates a new version of the graph that shares almost all of its
+ * structure with the previous one.
+ * <p>{@link #snapshot()} returns the current version in O(1). The snapshot is
+ * immutable and will not see any later changes, so long-running algorithms can
+ * work on a consistent state of the graph while writers keep modifying it,
+ * without copying the graph. Reading from the graph itself never blocks either,
+ * every read operation sees the latest version. Modifications are synchronized
+ * with each other.</p>
+ * <p>Iterators of the graph iterate over the version current at the time the
+ * iterator was created and never throw a
+ * {@link java.util.ConcurrentModificationException}.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public class SnapshotGraph<N,E> implements Graph<N,E> {
+
+    final boolean directed;
+    private volatile PersistentGraph<N,E> version;
+
+    /**
+     * Creates a new, empty, directed snapshot graph.
+     */
+    public SnapshotGraph() {
+        this(true);
+    }
+
+    /**
+     * Creates a new, empty snapshot graph.
+     *
+     * @param directed Whether the graph should be directed
+     */
+    public SnapshotGraph(boolean directed) {
+        this.directed = directed;
+        version = PersistentGraph.empty(directed);
+    }
+
+    /**
+     * Creates a new snapshot graph with the same nodes and edges as the given
+     * graph. It is directed if and only if the given graph is directed.
+     *
+     * @param graph The graph to copy
+     */
+    public SnapshotGraph(@NotNull ReadableGraph<? extends N, ? extends E> graph) {
+        this(PersistentGraph.of(graph));
+    }
+
+    /**
+     * Creates a new snapshot graph whose initial state is the given persistent
+     * graph. This takes constant time.
+     *
+     * @param graph The initial state of the graph
+     */
+    public SnapshotGraph(@NotNull PersistentGraph<N,E> graph) {
+        this.directed = Arguments.checkNull(graph, "graph").directed;
+        this.version = graph;
+    }
+
+    /**
+     * Returns an immutable view of the current state of this graph in constant time.
+     * The snapshot shares its structure with this graph and does not change when
+     * this graph gets modified.
+     *
+     * @return A snapshot of this graph
+     */
+    @NotNull
+    public PersistentGraph<N,E> snapshot() {
+        return version;
+    }
+
+    @Override
+    public synchronized boolean add(@NotNull N node) {
+        PersistentGraph<N,E> v = version.add(node);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(@NotNull Object node) {
+        PersistentGraph<N,E> v = version.remove(node);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean set(@NotNull Object old, @NotNull N now) {
+        PersistentGraph<N,E> v = version.set(old, now);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean join(@NotNull Object a, @NotNull Object b, @NotNull N into) {
+        PersistentGraph<N,E> v = version.join(a, b, into);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public synchronized E connect(@NotNull N a, @NotNull N b, E edge) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        E old = version.edge(a, b);
+        version = version.connect(a, b, edge);
+        return old;
+    }
+
+    /**
+     * Connects the start and end node of each of the given edges. The changes are
+     * published as a single new version, so concurrent readers see either none or
+     * all of the new edges.
+     *
+     * @param edges The edges to add to the graph
+     */
+    @Override
+    public synchronized void connectAll(@NotNull Iterable<? extends Edge<? extends N, ? extends E>> edges) {
+        PersistentGraph<N,E> v = version;
+        for(Edge<? extends N, ? extends E> e : Arguments.checkNull(edges, "edges"))
+            v = v.connect(e.a, e.b, e.value);
+        version = v;
+    }
+
+    @Override
+    public synchronized E disconnect(@NotNull Object a, @NotNull Object b) {
+        Arguments.checkNull(a, "a");
+        Arguments.checkNull(b, "b");
+        E old = version.edge(a, b);
+        version = version.disconnect(a, b);
+        return old;
+    }
+
+    @Override
+    public synchronized boolean disconnectAll(@NotNull Object node) {
+        PersistentGraph<N,E> v = version.disconnectAll(node);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        return version.nodes().containsAll(c);
+    }
+
+    @Override
+    public synchronized boolean addAll(@NotNull Collection<? extends N> c) {
+        PersistentGraph<N,E> v = version;
+        for(N n : c) v = v.add(n);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean retainAll(@NotNull Collection<?> c) {
+        PersistentGraph<N,E> v = version;
+        for(N n : version)
+            if(!c.contains(n)) v = v.remove(n);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeAll(@NotNull Collection<?> c) {
+        PersistentGraph<N,E> v = version;
+        for(Object n : c) v = v.remove(n);
+        if(v == version) return false;
+        version = v;
+        return true;
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return version.nodes();
+    }
+
+    @Override
+    public IterableMap<N,E> adj(Object node) {
+        return version.adj(node);
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,E>> adjacencyList() {
+        return version.adjacencyList();
+    }
+
+    @Override
+    public E edge(@NotNull Object a, @NotNull Object b) {
+        return version.edge(a, b);
+    }
+
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        return version.connected(a, b);
+    }
+
+    @Override
+    public @NotNull Set<? extends Edge<N,E>> edges() {
+        return version.edges();
+    }
+
+    @Override
+    public @NotNull Collection<E> weights() {
+        return version.weights();
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return version.contains(node);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        Iterator<N> it = version.iterator();
+        return new Iterator<>() {
+            N last = null;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public N next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                if(last == null) throw new IllegalStateException();
+                SnapshotGraph.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Object @NotNull [] toArray() {
+        return version.nodes().toArray();
+    }
+
+    @NotNull
+    @Override
+    public <T> T @NotNull [] toArray(@NotNull T @NotNull [] a) {
+        return version.nodes().toArray(a);
+    }
+
+    @Override
+    public int size() {
+        return version.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return version.edgeCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return version.isEmpty();
+    }
+
+    @Override
+    public synchronized void clear() {
+        version = PersistentGraph.empty(directed);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super E> action) {
+        version.forEach(action);
+    }
+
+    /**
+     * Returns a copy of this graph in constant time. The copy shares its structure
+     * with this graph, but modifications of either graph are not visible in the
+     * other one.
+     *
+     * @return A copy of this graph
+     */
+    @Override
+    public @NotNull SnapshotGraph<N,E> clone() {
+        return new SnapshotGraph<>(version);
+    }
+
+    @Override
+    public @NotNull SnapshotGraph<N,E> newInstance() {
+        return new SnapshotGraph<>(directed);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) return true;
+        if(!(o instanceof Graph)) return false;
+        Graph<?,?> graph = (Graph<?,?>) o;
+        return directed == graph.isDirected() && version.out.equals(graph.adjacencyList());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(directed, version.out);
+    }
+
+    @Override
+    public String toString() {
+        int edges = edgeCount();
+        return (directed ? "Directed snapshot graph" : "Snapshot graph") + " with " + size() + " nodes and " + (directed ? edges : (edges/2 + "("+edges+")")) + " edges";
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.rccookie.graph;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Undirected adjacency of an indexed graph in compressed sparse row format,
+ * without self-loops. For directed graphs, each edge is contained in the rows of
+ * both of its nodes, thus pairs of opposite edges appear twice in each row.
+ */
+final class SymmetricAdjacency {
+
+    final int size;
+    final int[] offsets;
+    final int[] targets;
+    /**
+     * The weight of each entry, or <code>null</code> if no weights were requested.
+     */
+    final double[] weights;
+
+    private SymmetricAdjacency(int size, int[] offsets, int[] targets, double[] weights) {
+        this.size = size;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Creates the symmetric adjacency of the given graph without edge weights.
+     */
+    static SymmetricAdjacency of(IndexedGraph<?,?> graph) {
+        return of(graph, null);
+    }
+
+    /**
+     * Creates the symmetric adjacency of the given graph, with edge weights if
+     * a weight function is given.
+     */
+    static <E> SymmetricAdjacency of(IndexedGraph<?,E> graph, ToDoubleFunction<? super E> edgeWeight) {
+        int size = graph.size();
+        boolean directed = graph.isDirected();
+
+        int[] offsets = new int[size + 1];
+        for(int i=0; i<size; i++) {
+            for(long e=graph.edgeStart(i), end=graph.edgeEnd(i); e<end; e++) {
+                int j = graph.target(e);
+                if(i == j) continue;
+                offsets[i+1]++;
+                if(directed) offsets[j+1]++;
+            }
+        }
+        for(int i=0; i<size; i++) {
+            if(offsets[i+1] > Integer.MAX_VALUE - offsets[i])
+                throw new IllegalArgumentException("Graph has too many edges");
+            offsets[i+1] += offsets[i];
+        }
+
+        int[] targets = new int[offsets[size]];
+        double[] weights = edgeWeight != null ? new double[offsets[size]] : null;
+        int[] fill = offsets.clone();
+        for(int i=0; i<size; i++) {
+            for(long e=graph.edgeStart(i), end=graph.edgeEnd(i); e<end; e++) {
+                int j = graph.target(e);
+                if(i == j) continue;
+                double w = weights != null ? edgeWeight.applyAsDouble(graph.edgeValue(e)) : 0;
+                if(weights != null) weights[fill[i]] = w;
+                targets[fill[i]++] = j;
+                if(directed) {
+                    if(weights != null) weights[fill[j]] = w;
+                    targets[fill[j]++] = i;
+                }
+            }
+        }
+        return new SymmetricAdjacency(size, offsets, targets, weights);
+    }
+
+    int degree(int node) {
+        return offsets[node+1] - offsets[node];
+    }
+
+    /**
+     * Returns all nodes in breadth-first order, starting a new traversal at the
+     * unvisited node with the lowest index whenever a component is finished.
+     */
+    int[] bfsOrder() {
+        int[] order = new int[size];
+        boolean[] visited = new boolean[size];
+        int count = 0;
+        for(int s=0; s<size; s++) {
+            if(visited[s]) continue;
+            visited[s] = true;
+            order[count] = s;
+            for(int head=count++; head<count; head++) {
+                int n = order[head];
+                for(int e=offsets[n]; e<offsets[n+1]; e++) {
+                    int m = targets[e];
+                    if(visited[m]) continue;
+                    visited[m] = true;
+                    order[count++] = m;
+                }
+            }
+        }
+        return order;
+    }
+}
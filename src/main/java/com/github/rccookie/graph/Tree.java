@@ -45,6 +45,11 @@ public interface Tree<N,E> extends Forest<N,E> {
             return false;
         }
 
+        @Override
+        public Object parent(@NotNull Object node) {
+            return null;
+        }
+
         @Override
         public Object root() {
             return null;
@@ -0,0 +1,263 @@
+package com.github.rccookie.graph;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import com.github.rccookie.util.Arguments;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Snapshot of a {@link Forest} for fast repeated traversals. The nodes are
+ * numbered in depth-first preorder, so that each subtree is a contiguous range of
+ * indices; the traversals then only scan arrays and use a single int stack of the
+ * forest's height, without visited sets, iterators or per-node allocations.
+ * <p>Nodes are passed to a {@link Visitor} by index, together with the index of
+ * their parent and their depth. The index can be used to look up the node using
+ * {@link #node(int)}, or to store per-node values in arrays. A traversal over a
+ * forest visits the trees in the iteration order of the forest's roots.</p>
+ *
+ * @param <N> The node type
+ */
+public final class TreeTraversal<N> {
+
+    private final PreorderForest<N> forest;
+    /**
+     * The nodes ordered by depth, and by index within each depth.
+     */
+    private final int[] levelOrder;
+    private final int height;
+
+    /**
+     * Creates a new traversal snapshot of the given forest.
+     *
+     * @param forest The forest to traverse
+     * @throws IllegalArgumentException If the forest contains a cycle
+     */
+    public TreeTraversal(@NotNull Forest<N,?> forest) {
+        this.forest = new PreorderForest<>(forest, e -> 0);
+        int[] depth = this.forest.depth;
+
+        int height = 0;
+        for(int d : depth) height = Math.max(height, d + 1);
+        this.height = height;
+
+        int[] offsets = new int[height + 1];
+        for(int d : depth) offsets[d+1]++;
+        for(int d=0; d<height; d++)
+            offsets[d+1] += offsets[d];
+        levelOrder = new int[depth.length];
+        for(int i=0; i<depth.length; i++)
+            levelOrder[offsets[depth[i]]++] = i;
+    }
+
+    /**
+     * Returns the number of nodes in the forest.
+     *
+     * @return The number of nodes
+     */
+    public int size() {
+        return forest.size();
+    }
+
+    /**
+     * Returns the number of nodes on the longest path from a root to a leaf.
+     *
+     * @return The height of the forest
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Returns the node with the given index.
+     *
+     * @param index The index of the node, as passed to visitors
+     * @return The node with that index
+     */
+    @NotNull
+    public N node(int index) {
+        return forest.node(index);
+    }
+
+    /**
+     * Returns the index of the given node.
+     *
+     * @param node The node to get the index of
+     * @return The index of the node
+     * @throws IllegalArgumentException If the node is not in the forest
+     */
+    public int indexOf(@NotNull Object node) {
+        return forest.indexOf(node);
+    }
+
+    /**
+     * Returns the index of the parent of the node with the given index.
+     *
+     * @param node The index of the node
+     * @return The index of the parent, or <code>-1</code> if the node is a root
+     */
+    public int parent(int node) {
+        return forest.parent[node];
+    }
+
+    /**
+     * Returns the depth of the node with the given index.
+     *
+     * @param node The index of the node
+     * @return The number of edges between the node and its root
+     */
+    public int depth(int node) {
+        return forest.depth[node];
+    }
+
+    /**
+     * Returns the number of nodes in the subtree of the node with the given index,
+     * including the node itself. The subtree consists of the nodes with the
+     * indices <code>node</code> to <code>node + subtreeSize(node) - 1</code>.
+     *
+     * @param node The index of the node
+     * @return The size of the node's subtree
+     */
+    public int subtreeSize(int node) {
+        return forest.end[node] - node;
+    }
+
+    /**
+     * Visits every node before its children.
+     *
+     * @param visitor The visitor to call for each node
+     */
+    public void prefix(@NotNull Visitor visitor) {
+        Arguments.checkNull(visitor, "visitor");
+        int[] parent = forest.parent, depth = forest.depth;
+        for(int i=0, size=size(); i<size; i++)
+            visitor.visit(i, parent[i], depth[i]);
+    }
+
+    /**
+     * Visits every node after its children. This order allows to aggregate values
+     * of subtrees, since the values of all children are known when visiting a node.
+     *
+     * @param visitor The visitor to call for each node
+     */
+    public void postfix(@NotNull Visitor visitor) {
+        Arguments.checkNull(visitor, "visitor");
+        int[] parent = forest.parent, depth = forest.depth, end = forest.end;
+        // A node is finished once the scan leaves its subtree
+        int[] stack = new int[height];
+        int top = 0;
+        for(int i=0, size=size(); i<size; i++) {
+            while(top != 0 && end[stack[top-1]] <= i) {
+                int n = stack[--top];
+                visitor.visit(n, parent[n], depth[n]);
+            }
+            stack[top++] = i;
+        }
+        while(top != 0) {
+            int n = stack[--top];
+            visitor.visit(n, parent[n], depth[n]);
+        }
+    }
+
+    /**
+     * Visits the nodes in breadth-first order: all roots, then all nodes at depth
+     * 1, and so on.
+     *
+     * @param visitor The visitor to call for each node
+     */
+    public void levelOrder(@NotNull Visitor visitor) {
+        Arguments.checkNull(visitor, "visitor");
+        int[] parent = forest.parent, depth = forest.depth;
+        for(int n : levelOrder)
+            visitor.visit(n, parent[n], depth[n]);
+    }
+
+    /**
+     * Visits the nodes in the order of an Euler tour: every node is visited when it
+     * is first reached and again after returning from each of its children, thus a
+     * tree with <code>n</code> nodes results in <code>2n - 1</code> visits.
+     *
+     * @param visitor The visitor to call for each visit of a node
+     */
+    public void eulerTour(@NotNull Visitor visitor) {
+        Arguments.checkNull(visitor, "visitor");
+        int[] parent = forest.parent, depth = forest.depth, end = forest.end;
+        int[] stack = new int[height];
+        int top = 0;
+        for(int i=0, size=size(); i<=size; i++) {
+            while(top != 0 && (i == size || end[stack[top-1]] <= i)) {
+                if(--top == 0) break;
+                int n = stack[top-1];
+                visitor.visit(n, parent[n], depth[n]);
+            }
+            if(i == size) break;
+            visitor.visit(i, parent[i], depth[i]);
+            stack[top++] = i;
+        }
+    }
+
+    /**
+     * Returns the nodes in prefix order.
+     *
+     * @return A list view of the nodes in prefix order
+     */
+    @NotNull
+    public List<N> prefixOrder() {
+        return new AbstractList<>() {
+            @Override
+            public N get(int index) {
+                return node(index);
+            }
+
+            @Override
+            public int size() {
+                return TreeTraversal.this.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the nodes in postfix order.
+     *
+     * @return A list of the nodes in postfix order
+     */
+    @NotNull
+    public List<N> postfixOrder() {
+        int[] order = new int[size()];
+        int[] count = { 0 };
+        postfix((n,p,d) -> order[count[0]++] = n);
+        return new AbstractList<>() {
+            @Override
+            public N get(int index) {
+                return node(order[index]);
+            }
+
+            @Override
+            public int size() {
+                return order.length;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Tree traversal over " + size() + " nodes";
+    }
+
+    /**
+     * Callback for the nodes of a traversal.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Called for each visited node.
+         *
+         * @param node The index of the node
+         * @param parent The index of the node's parent, or <code>-1</code> for roots
+         * @param depth The depth of the node, 0 for roots
+         */
+        void visit(int node, int parent, int depth);
+    }
+}
@@ -0,0 +1,227 @@
+package com.github.rccookie.graph;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.IterableMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An {@link IndexedGraph} together with the lengths of its edges, computed once
+ * by an edge length function and stored in a primitive array aligned with the
+ * edge indices. Shortest path algorithms read the lengths from the array instead
+ * of calling the edge length function on every relaxation. If several different
+ * length functions are used in the same program, those calls cannot be inlined
+ * by the JIT compiler and dominate the running time of the algorithms.
+ * <p>By default, the algorithms call the length function for each edge they relax,
+ * and graphs that store {@code double} weights, like {@link OffHeapGraph}
+ * and {@link MappedGraph}, are read directly when used with {@link #DOUBLE_VALUE}.
+ * To compute the lengths only once, create the weighted graph using
+ * {@link #of(ReadableGraph, ToDoubleFunction)} and pass it to the algorithms
+ * together with the same length function, which is then not called at all. This
+ * requires the number of edges to fit into an array.
+ * The weighted graph is a snapshot of the lengths; the underlying indexed graph
+ * must not change while it is in use.</p>
+ *
+ * @param <N> Type of the nodes. Null is not permitted as node
+ * @param <E> Content type of the edges (also referred to as "weights"). Null <b>is</b> permitted
+ */
+public final class WeightedGraph<N,E> implements IndexedGraph<N,E> {
+
+    /**
+     * Edge length function that returns the edge values themselves. Algorithms
+     * read the weights of off-heap and memory mapped graphs directly if this function
+     * is used.
+     */
+    public static final ToDoubleFunction<Number> DOUBLE_VALUE = Number::doubleValue;
+
+    private final IndexedGraph<N,E> graph;
+    private final ToDoubleFunction<? super E> edgeLength;
+    /**
+     * The length of each edge, by edge index.
+     */
+    final double[] lengths;
+
+    private WeightedGraph(IndexedGraph<N,E> graph, ToDoubleFunction<? super E> edgeLength) {
+        this.graph = graph;
+        this.edgeLength = edgeLength;
+        long edgeCount = graph.size() == 0 ? 0 : graph.edgeEnd(graph.size() - 1);
+        if(edgeCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Graph has too many edges");
+        lengths = new double[(int) edgeCount];
+        for(int i=0; i<lengths.length; i++)
+            lengths[i] = edgeLength.applyAsDouble(graph.edgeValue(i));
+    }
+
+    /**
+     * Returns the given graph with the edge lengths computed by the given function.
+     * If the graph already is a weighted graph with the same length function, it
+     * is returned itself; otherwise, the graph is {@link IndexedGraph#of(ReadableGraph) indexed}
+     * if necessary and the length of each edge is computed.
+     * <p>The lengths are stored in an array, so the graph must not have more
+     * than {@link Integer#MAX_VALUE} edges.</p>
+     *
+     * @param graph The graph to get the edge lengths of
+     * @param edgeLength Function to determine the length of an edge
+     * @return A weighted graph with the same nodes and edges
+     * @throws IllegalArgumentException If the graph has too many edges
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public static <N,E> WeightedGraph<N,E> of(@NotNull ReadableGraph<N,E> graph, @NotNull ToDoubleFunction<? super E> edgeLength) {
+        Arguments.checkNull(graph, "graph");
+        Arguments.checkNull(edgeLength, "edgeLength");
+        if(graph instanceof WeightedGraph) {
+            WeightedGraph<N,E> weighted = (WeightedGraph<N,E>) graph;
+            if(weighted.edgeLength == edgeLength) return weighted;
+            return new WeightedGraph<>(weighted.graph, edgeLength);
+        }
+        return new WeightedGraph<>(IndexedGraph.of(graph), edgeLength);
+    }
+
+    /**
+     * Returns the length of the given edge.
+     *
+     * @param edge The index of the edge
+     * @return The length of the edge, as returned by the length function
+     */
+    public double length(long edge) {
+        return lengths[(int) edge];
+    }
+
+    /**
+     * Returns the function the edge lengths were computed with.
+     *
+     * @return The edge length function
+     */
+    @NotNull
+    public ToDoubleFunction<? super E> edgeLength() {
+        return edgeLength;
+    }
+
+    /**
+     * Returns the indexed graph whose edge lengths this graph stores.
+     *
+     * @return The underlying graph
+     */
+    @NotNull
+    public IndexedGraph<N,E> graph() {
+        return graph;
+    }
+
+    @Override
+    public int indexOf(Object node) {
+        return graph.indexOf(node);
+    }
+
+    @Override
+    public N node(int index) {
+        return graph.node(index);
+    }
+
+    @Override
+    public long edgeStart(int node) {
+        return graph.edgeStart(node);
+    }
+
+    @Override
+    public long edgeEnd(int node) {
+        return graph.edgeEnd(node);
+    }
+
+    @Override
+    public int target(long edge) {
+        return graph.target(edge);
+    }
+
+    @Override
+    public E edgeValue(long edge) {
+        return graph.edgeValue(edge);
+    }
+
+    @Override
+    public int degree(int node) {
+        return graph.degree(node);
+    }
+
+    @Override
+    public IterableMap<N,E> adj(Object node) {
+        return graph.adj(node);
+    }
+
+    @Override
+    public Map<N, ? extends Map<N,E>> adjacencyList() {
+        return graph.adjacencyList();
+    }
+
+    @Override
+    public E edge(@NotNull Object a, @NotNull Object b) {
+        return graph.edge(a, b);
+    }
+
+    @Override
+    public boolean connected(@NotNull Object a, @NotNull Object b) {
+        return graph.connected(a, b);
+    }
+
+    @Override
+    public Set<N> nodes() {
+        return graph.nodes();
+    }
+
+    @Override
+    public Set<? extends Edge<N,E>> edges() {
+        return graph.edges();
+    }
+
+    @Override
+    public @NotNull Collection<E> weights() {
+        return graph.weights();
+    }
+
+    @Override
+    public boolean contains(Object node) {
+        return graph.contains(node);
+    }
+
+    @Override
+    public int size() {
+        return graph.size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return graph.edgeCount();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return graph.isEmpty();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return graph.isDirected();
+    }
+
+    @Override
+    public void forEach(EdgeConsumer<? super N, ? super E> action) {
+        graph.forEach(action);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<N> iterator() {
+        return graph.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "Weighted " + graph;
+    }
+}
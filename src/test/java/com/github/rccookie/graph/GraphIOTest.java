@@ -0,0 +1,54 @@
+package com.github.rccookie.graph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphIOTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("graph", ".txt");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readEdgeListWithoutTrailingNewline() throws IOException {
+        HashGraph<String,Double> graph = GraphIO.readEdgeList(write("a b 2\nx y"), true);
+        assertEquals(4, graph.size());
+        assertEquals(2.0, graph.edge("a", "b"), 0);
+        assertEquals(1.0, graph.edge("x", "y"), 0);
+    }
+
+    @Test
+    public void readEdgeListWithWeightWithoutTrailingNewline() throws IOException {
+        HashGraph<String,Double> graph = GraphIO.readEdgeList(write("x y 3.5"), false);
+        assertEquals(3.5, graph.edge("y", "x"), 0);
+    }
+
+    @Test
+    public void readDimacsWithoutTrailingNewline() throws IOException {
+        GraphIO.FlowNetwork network = GraphIO.readDimacsMaxFlow(write("p max 2 1\na 1 2 4\nn 1 s\nn 2 t"));
+        assertEquals(1, network.source);
+        assertEquals(2, network.sink);
+        assertTrue(network.graph.connected(1, 2));
+    }
+}